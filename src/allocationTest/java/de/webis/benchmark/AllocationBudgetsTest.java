@@ -0,0 +1,264 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis.benchmark;
+
+import de.webis.MutableUUID;
+import de.webis.UUIDBatch;
+import de.webis.UUIDCache;
+import de.webis.UUIDFormat;
+import de.webis.WebisUUID;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Allocation regression tests for the hot-path methods.
+ * Every method is first warmed up until it is JIT-compiled and then called {@link #CALLS_PROPERTY}
+ * times while the bytes allocated by the calling thread are measured with
+ * {@link com.sun.management.ThreadMXBean}. A test fails if its method allocates more than its
+ * declared budget per call in this steady state. Methods with primitive or caller-provided output
+ * have a budget of zero, methods returning objects may only allocate the returned object.
+ * The tests are run by {@code ./gradlew allocationTest}, which is part of {@code ./gradlew check}.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+class AllocationBudgetsTest
+{
+    /**
+     * System property for the number of measured calls per method.
+     */
+    public static final String CALLS_PROPERTY = "de.webis.uuid.allocationCalls";
+
+    /**
+     * Default number of measured calls per method. A single byte per call over the budget
+     * is still ten times the measurement slack.
+     */
+    private static final int DEFAULT_CALLS = 200_000;
+
+    /**
+     * Total bytes allowed on top of the budget, which covers the allocations of the
+     * measurement itself and of rare events like the first use of a code path.
+     */
+    private static final long MEASUREMENT_SLACK = 16 * 1024;
+
+    /**
+     * Budget of methods returning a {@link java.util.UUID}: object header and two longs.
+     */
+    private static final int UUID_BUDGET = 32;
+
+    /**
+     * Budget of methods returning a 36 character {@link String}, which is largest with the
+     * uncompressed char arrays of Java 8: 24 bytes for the string and 88 bytes for its chars.
+     */
+    private static final int STRING_BUDGET = 112;
+
+    private static final int ID_COUNT = 1024;
+
+    private static volatile long sSink;
+
+    /**
+     * Method under test, called with a running counter.
+     */
+    private interface Call
+    {
+        void run(int i);
+    }
+
+    /**
+     * Method under test with its allocation budget.
+     */
+    private static final class Case
+    {
+        final String mName;
+        final int mBudget;
+        final Call mCall;
+
+        Case(final String name, final int budget, final Call call)
+        {
+            mName = name;
+            mBudget = budget;
+            mCall = call;
+        }
+    }
+
+    @TestFactory
+    Stream<DynamicTest> methodsStayWithinBudget()
+    {
+        final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported(),
+                "Per-thread allocation measurement is not supported by this JVM");
+        final com.sun.management.ThreadMXBean mxBean = (com.sun.management.ThreadMXBean) threads;
+        mxBean.setThreadAllocatedMemoryEnabled(true);
+
+        final int calls = Integer.getInteger(CALLS_PROPERTY, DEFAULT_CALLS);
+        return cases().stream().map(c -> DynamicTest.dynamicTest(c.mName, () -> {
+            for (int i = 0; i < 200_000; ++i) {
+                c.mCall.run(i);
+            }
+
+            final long thread = Thread.currentThread().getId();
+            final long start = mxBean.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < calls; ++i) {
+                c.mCall.run(i);
+            }
+            final long allocated = mxBean.getThreadAllocatedBytes(thread) - start;
+
+            final String result = String.format(Locale.ROOT, "%-60s %8.2f bytes/call (budget %d)",
+                    c.mName, (double) allocated / calls, c.mBudget);
+            System.out.println(result);
+            assertTrue(allocated <= (long) c.mBudget * calls + MEASUREMENT_SLACK, result);
+        }));
+    }
+
+    /**
+     * @return all checked methods
+     */
+    private static List<Case> cases()
+    {
+        final String prefix = SyntheticIds.CLUEWEB12.getPrefix();
+        final String[] ids = SyntheticIds.CLUEWEB12.generate(ID_COUNT);
+        final String[] urls = SyntheticIds.URL_NON_ASCII.generate(ID_COUNT);
+        final byte[][] encoded = new byte[ID_COUNT][];
+        final ByteBuffer[] buffers = new ByteBuffer[ID_COUNT];
+        final StringBuilder[] builders = new StringBuilder[ID_COUNT];
+        for (int i = 0; i < ID_COUNT; ++i) {
+            encoded[i] = ids[i].getBytes(StandardCharsets.UTF_8);
+            buffers[i] = ByteBuffer.wrap(encoded[i]);
+            builders[i] = new StringBuilder(ids[i]);
+        }
+        final int mask = ID_COUNT - 1;
+
+        final WebisUUID generator = new WebisUUID(prefix);
+        final WebisUUID cached = new WebisUUID(prefix, generator.getEngine(), new UUIDCache(4 * ID_COUNT));
+        final MutableUUID uuid = new MutableUUID();
+        final long[] bits = new long[2];
+        final byte[] bytes = new byte[64];
+        final char[] chars = new char[64];
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(64);
+        final StringBuilder sb = new StringBuilder(64);
+        final UUIDBatch batch = new UUIDBatch(64);
+        final byte[] text = "7f476110-58fd-5698-b104-8b29c3ac6d55".getBytes(StandardCharsets.US_ASCII);
+
+        final List<Case> cases = new ArrayList<>();
+
+        // primitive and caller-provided output
+        cases.add(new Case("generateUUID(CharSequence, MutableUUID)", 0, i -> {
+            generator.generateUUID(ids[i & mask], uuid);
+            sSink += uuid.getMostSignificantBits();
+        }));
+        cases.add(new Case("generateUUID(CharSequence, MutableUUID) non-ASCII", 0, i -> {
+            generator.generateUUID(urls[i & mask], uuid);
+            sSink += uuid.getMostSignificantBits();
+        }));
+        cases.add(new Case("generateUUID(StringBuilder, MutableUUID)", 0, i -> {
+            generator.generateUUID(builders[i & mask], uuid);
+            sSink += uuid.getMostSignificantBits();
+        }));
+        cases.add(new Case("generateUUID(byte[], int, int, MutableUUID)", 0, i -> {
+            final byte[] id = encoded[i & mask];
+            generator.generateUUID(id, 0, id.length, uuid);
+            sSink += uuid.getMostSignificantBits();
+        }));
+        cases.add(new Case("generateUUID(ByteBuffer, MutableUUID)", 0, i -> {
+            generator.generateUUID(buffers[i & mask], uuid);
+            sSink += uuid.getMostSignificantBits();
+        }));
+        cases.add(new Case("generateUUID(CharSequence, long[], int)", 0, i -> {
+            generator.generateUUID(ids[i & mask], bits, 0);
+            sSink += bits[0];
+        }));
+        cases.add(new Case("generateUUID(CharSequence, byte[], int)", 0, i -> {
+            generator.generateUUID(ids[i & mask], bytes, 0);
+            sSink += bytes[0];
+        }));
+        cases.add(new Case("generateUUID(CharSequence, ByteBuffer)", 0, i -> {
+            buffer.clear();
+            // the cast avoids resolving to the static generateUUID(String prefix, ByteBuffer internalId)
+            generator.generateUUID((CharSequence) ids[i & mask], buffer);
+            sSink += buffer.get(0);
+        }));
+        cases.add(new Case("generateUUID(CharSequence, MutableUUID) cache hit", 0, i -> {
+            cached.generateUUID(ids[i & mask], uuid);
+            sSink += uuid.getMostSignificantBits();
+        }));
+        cases.add(new Case("static generateUUID(String, CharSequence, MutableUUID)", 0, i -> {
+            WebisUUID.generateUUID(prefix, ids[i & mask], uuid);
+            sSink += uuid.getMostSignificantBits();
+        }));
+        cases.add(new Case("static generateUUID(String, CharSequence, long[], int)", 0, i -> {
+            WebisUUID.generateUUID(prefix, ids[i & mask], bits, 0);
+            sSink += bits[0];
+        }));
+        cases.add(new Case("generateBatch(CharSequence[], int, int, UUIDBatch)", 0, i -> {
+            final int from = i & (mask - 63);
+            generator.generateBatch(ids, from, from + 64, batch);
+            sSink += batch.mostSignificantBits()[0];
+        }));
+        cases.add(new Case("UUIDFormat.format(long, long, char[], int)", 0, i -> {
+            UUIDFormat.format(i, ~i, chars, 0);
+            sSink += chars[0];
+        }));
+        cases.add(new Case("UUIDFormat.format(long, long, byte[], int)", 0, i -> {
+            UUIDFormat.format(i, ~i, bytes, 0);
+            sSink += bytes[0];
+        }));
+        cases.add(new Case("UUIDFormat.format(long, long, ByteBuffer) direct", 0, i -> {
+            direct.clear();
+            UUIDFormat.format(i, ~i, direct);
+            sSink += direct.get(0);
+        }));
+        cases.add(new Case("UUIDFormat.format(long, long, StringBuilder)", 0, i -> {
+            sb.setLength(0);
+            UUIDFormat.format(i, ~i, sb);
+            sSink += sb.charAt(0);
+        }));
+        cases.add(new Case("UUIDFormat.parse(byte[], int, MutableUUID)", 0, i -> {
+            UUIDFormat.parse(text, 0, uuid);
+            sSink += uuid.getLeastSignificantBits();
+        }));
+
+        // object output
+        cases.add(new Case("generateUUID(String)", UUID_BUDGET, i ->
+                sSink += generator.generateUUID(ids[i & mask]).getMostSignificantBits()));
+        cases.add(new Case("static generateUUID(String, String)", UUID_BUDGET, i ->
+                sSink += WebisUUID.generateUUID(prefix, ids[i & mask]).getMostSignificantBits()));
+        cases.add(new Case("generateUUIDString(CharSequence)", STRING_BUDGET, i ->
+                sSink += generator.generateUUIDString(ids[i & mask]).length()));
+        return cases;
+    }
+}
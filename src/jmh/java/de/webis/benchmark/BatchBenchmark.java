@@ -0,0 +1,93 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis.benchmark;
+
+import de.webis.HashEngine;
+import de.webis.UUIDBatch;
+import de.webis.WebisUUID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch generation of {@value #BATCH_SIZE} UUIDs with each engine. Scores are per UUID.
+ * The {@code VECTOR} engine requires the benchmark JVM to run on Java 17+ with
+ * {@code --add-modules jdk.incubator.vector} and the Java 17 classes on the class path,
+ * which {@code ./gradlew jmh} takes care of. Otherwise, its benchmarks fail instead of
+ * measuring the {@code BUILTIN} fallback.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class BatchBenchmark
+{
+    static final int BATCH_SIZE = 1024;
+
+    @Param({ "CLUEWEB12", "URL" })
+    public SyntheticIds corpus;
+
+    @Param({ "JCA", "BUILTIN", "VECTOR" })
+    public HashEngine engine;
+
+    private String[] mIds;
+    private WebisUUID mGenerator;
+    private UUIDBatch mBatch;
+
+    @Setup
+    public void setup()
+    {
+        if (!engine.isAvailable()) {
+            throw new IllegalStateException(engine + " engine is not available on this JVM");
+        }
+        mIds = corpus.generate(BATCH_SIZE);
+        mGenerator = new WebisUUID(corpus.getPrefix(), engine);
+        mBatch = new UUIDBatch(BATCH_SIZE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public UUIDBatch batch()
+    {
+        mGenerator.generateBatch(mIds, 0, BATCH_SIZE, mBatch);
+        return mBatch;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis.benchmark;
+
+import de.webis.HashEngine;
+import de.webis.MutableUUID;
+import de.webis.WebisUUID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of names around the SHA-1 block boundaries.
+ * With the prefix {@code clueweb12}, the namespace and {@code clueweb12:} take up 26 bytes, so an
+ * internal ID of up to 29 bytes fits into one 64-byte block together with the padding, and an ID of
+ * up to 93 bytes fits into two. IDs have the given length in UTF-8 bytes and consist either of ASCII
+ * characters only or mostly of two-byte characters, which compares the ASCII fast path of the
+ * encoder with the general UTF-8 path at an equal hash input size.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class BlockBoundaryBenchmark
+{
+    private static final int ID_COUNT = 1024;
+
+    @Param({ "28", "29", "30", "31", "92", "93", "94", "95" })
+    public int bytes;
+
+    @Param({ "true", "false" })
+    public boolean ascii;
+
+    @Param({ "JCA", "BUILTIN" })
+    public HashEngine engine;
+
+    private String[] mIds;
+    private WebisUUID mGenerator;
+    private final MutableUUID mUUID = new MutableUUID();
+    private int mNext;
+
+    @Setup
+    public void setup()
+    {
+        mGenerator = new WebisUUID("clueweb12", engine);
+        mIds = new String[ID_COUNT];
+        for (int i = 0; i < ID_COUNT; ++i) {
+            final StringBuilder sb = new StringBuilder(bytes).append(i).append('-');
+            int length = sb.length();
+            if (!ascii && 0 != (bytes - length) % 2) {
+                sb.append('x');
+                ++length;
+            }
+            while (length < bytes) {
+                sb.append(ascii ? (char) ('a' + length % 26) : '\u00fc');
+                length += ascii ? 1 : 2;
+            }
+            mIds[i] = sb.toString();
+        }
+    }
+
+    @Benchmark
+    public long generate()
+    {
+        mGenerator.generateUUID(mIds[mNext++ & (ID_COUNT - 1)], mUUID);
+        return mUUID.getMostSignificantBits() ^ mUUID.getLeastSignificantBits();
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two JMH runs saved in CSV format ({@code -rf csv -rff FILE}).
+ * For every benchmark and parameter combination found in both files, the baseline and candidate
+ * scores with their 99.9% confidence intervals and the relative change are printed. Changes whose
+ * confidence intervals do not overlap are marked as faster or slower, all others are noise.
+ *
+ * <p>Usage: {@code CompareRuns BASELINE_CSV CANDIDATE_CSV}</p>
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+public final class CompareRuns
+{
+    private CompareRuns()
+    {
+    }
+
+    public static void main(final String[] args) throws IOException
+    {
+        if (2 != args.length) {
+            System.err.println("Usage: CompareRuns BASELINE_CSV CANDIDATE_CSV");
+            System.exit(1);
+        }
+
+        final Map<String, Result> baseline = read(args[0]);
+        final Map<String, Result> candidate = read(args[1]);
+        System.out.printf(Locale.ROOT, "%-70s %24s %24s %9s%n", "Benchmark", "Baseline", "Candidate", "Change");
+        for (final Map.Entry<String, Result> entry : baseline.entrySet()) {
+            final Result base = entry.getValue();
+            final Result cand = candidate.get(entry.getKey());
+            if (null == cand) {
+                continue;
+            }
+
+            final double change = (cand.mScore - base.mScore) / base.mScore * 100.0;
+            final boolean higherIsBetter = "thrpt".equals(base.mMode);
+            String verdict = "";
+            if (cand.mScore - cand.mError > base.mScore + base.mError) {
+                verdict = higherIsBetter ? "faster" : "slower";
+            } else if (cand.mScore + cand.mError < base.mScore - base.mError) {
+                verdict = higherIsBetter ? "slower" : "faster";
+            }
+            System.out.printf(Locale.ROOT, "%-70s %12.3f +- %9.3f %12.3f +- %9.3f %+8.1f%% %s %s%n",
+                    entry.getKey(), base.mScore, base.mError, cand.mScore, cand.mError, change, base.mUnit, verdict);
+        }
+    }
+
+    /**
+     * Read the results of a JMH CSV file.
+     *
+     * @param file file name
+     * @return results by benchmark name, mode, thread count and parameters
+     * @throws IOException if the file cannot be read
+     */
+    private static Map<String, Result> read(final String file) throws IOException
+    {
+        final List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+        final Map<String, Result> results = new LinkedHashMap<>();
+        if (lines.isEmpty()) {
+            return results;
+        }
+
+        final List<String> header = split(lines.get(0));
+        for (int i = 1; i < lines.size(); ++i) {
+            final List<String> row = split(lines.get(i));
+            if (row.size() < 7) {
+                continue;
+            }
+            final StringBuilder key = new StringBuilder(row.get(0).replaceFirst("^.*\\.([^.]+\\.[^.]+)$", "$1"))
+                    .append(" (").append(row.get(1)).append(", t=").append(row.get(2));
+            for (int c = 7; c < row.size() && c < header.size(); ++c) {
+                if (!row.get(c).isEmpty()) {
+                    key.append(", ").append(header.get(c).replace("Param: ", "")).append('=').append(row.get(c));
+                }
+            }
+            key.append(')');
+            results.put(key.toString(), new Result(row.get(1), number(row.get(4)), number(row.get(5)), row.get(6)));
+        }
+        return results;
+    }
+
+    /**
+     * Split a CSV line, removing quotes.
+     *
+     * @param line CSV line
+     * @return fields
+     */
+    private static List<String> split(final String line)
+    {
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); ++i) {
+            final char c = line.charAt(i);
+            if ('"' == c) {
+                quoted = !quoted;
+            } else if (',' == c && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Parse a number written by JMH, which may use a decimal comma.
+     *
+     * @param s number
+     * @return value, NaN if there is none
+     */
+    private static double number(final String s)
+    {
+        try {
+            return Double.parseDouble(s.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Score of one benchmark.
+     */
+    private static final class Result
+    {
+        final String mMode;
+        final double mScore;
+        final double mError;
+        final String mUnit;
+
+        Result(final String mode, final double score, final double error, final String unit)
+        {
+            mMode = mode;
+            mScore = score;
+            mError = error;
+            mUnit = unit;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis.benchmark;
+
+import de.webis.MutableUUID;
+import de.webis.WebisUUID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single UUID generation through the static and the instance API, with each kind of output:
+ * {@link UUID} objects, strings and primitive bits. Each invocation hashes the next ID of a fixed
+ * set of synthetic corpus IDs, which covers ASCII and non-ASCII names of varying lengths.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class GenerateBenchmark
+{
+    /**
+     * Number of distinct IDs, a power of two.
+     */
+    static final int ID_COUNT = 1024;
+
+    @Param({ "CLUEWEB09", "CLUEWEB12", "COMMON_CRAWL", "URL", "URL_NON_ASCII" })
+    public SyntheticIds corpus;
+
+    private String mPrefix;
+    private String[] mIds;
+    private WebisUUID mGenerator;
+    private final MutableUUID mUUID = new MutableUUID();
+    private final long[] mBits = new long[2];
+    private int mNext;
+
+    @Setup
+    public void setup()
+    {
+        mPrefix = corpus.getPrefix();
+        mIds = corpus.generate(ID_COUNT);
+        mGenerator = new WebisUUID(mPrefix);
+    }
+
+    private String nextId()
+    {
+        return mIds[mNext++ & (ID_COUNT - 1)];
+    }
+
+    @Benchmark
+    public UUID staticUUID()
+    {
+        return WebisUUID.generateUUID(mPrefix, nextId());
+    }
+
+    @Benchmark
+    public String staticString()
+    {
+        return WebisUUID.generateUUIDString(mPrefix, nextId());
+    }
+
+    @Benchmark
+    public long staticPrimitive()
+    {
+        WebisUUID.generateUUID(mPrefix, nextId(), mUUID);
+        return mUUID.getMostSignificantBits() ^ mUUID.getLeastSignificantBits();
+    }
+
+    @Benchmark
+    public UUID instanceUUID()
+    {
+        return mGenerator.generateUUID(nextId());
+    }
+
+    @Benchmark
+    public String instanceString()
+    {
+        return mGenerator.generateUUIDString(nextId());
+    }
+
+    @Benchmark
+    public long instancePrimitive()
+    {
+        mGenerator.generateUUID(nextId(), mUUID);
+        return mUUID.getMostSignificantBits() ^ mUUID.getLeastSignificantBits();
+    }
+
+    @Benchmark
+    public long[] instanceLongArray()
+    {
+        mGenerator.generateUUID(nextId(), mBits, 0);
+        return mBits;
+    }
+}
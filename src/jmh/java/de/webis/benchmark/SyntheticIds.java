@@ -0,0 +1,196 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis.benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generators for synthetic internal IDs resembling those of the corpora the UUIDs are used for.
+ * IDs are generated from a fixed seed, so that all benchmark runs hash the same names.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+public enum SyntheticIds
+{
+    /**
+     * ClueWeb09 WARC-TREC-IDs, e.g. {@code clueweb09-en0001-02-21241}.
+     */
+    CLUEWEB09("clueweb09") {
+        @Override
+        String next(final SplittableRandom random)
+        {
+            final StringBuilder sb = new StringBuilder(25).append("clueweb09-")
+                    .append(CLUEWEB09_LANGUAGES[random.nextInt(CLUEWEB09_LANGUAGES.length)]);
+            digits(sb, random.nextInt(10000), 4).append('-');
+            digits(sb, random.nextInt(100), 2).append('-');
+            return digits(sb, random.nextInt(50000), 5).toString();
+        }
+    },
+
+    /**
+     * ClueWeb12 WARC-TREC-IDs, e.g. {@code clueweb12-0200wb-93-16911}.
+     */
+    CLUEWEB12("clueweb12") {
+        @Override
+        String next(final SplittableRandom random)
+        {
+            final StringBuilder sb = new StringBuilder(25).append("clueweb12-");
+            digits(sb, random.nextInt(2000), 4).append(random.nextInt(10) < 9 ? "wb-" : "tw-");
+            digits(sb, random.nextInt(100), 2).append('-');
+            return digits(sb, random.nextInt(50000), 5).toString();
+        }
+    },
+
+    /**
+     * Common Crawl WARC-Record-IDs, e.g. {@code <urn:uuid:0c8a1c4e-4e6e-4bd1-a7d4-7a1d5f8e4a1b>}.
+     */
+    COMMON_CRAWL("commoncrawl") {
+        @Override
+        String next(final SplittableRandom random)
+        {
+            final StringBuilder sb = new StringBuilder(47).append("<urn:uuid:");
+            hex(sb, random.nextLong(), 8).append('-');
+            hex(sb, random.nextLong(), 4).append("-4");
+            hex(sb, random.nextLong(), 3).append('-').append(HEX.charAt(8 + random.nextInt(4)));
+            hex(sb, random.nextLong(), 3).append('-');
+            return hex(sb, random.nextLong(), 12).append('>').toString();
+        }
+    },
+
+    /**
+     * ASCII URLs of 20 to 200 characters, as used as IDs of web crawls.
+     */
+    URL("url") {
+        @Override
+        String next(final SplittableRandom random)
+        {
+            return url(random, URL_WORDS);
+        }
+    },
+
+    /**
+     * Internationalized URLs with non-ASCII host names and paths (Latin, Cyrillic and CJK).
+     */
+    URL_NON_ASCII("url") {
+        @Override
+        String next(final SplittableRandom random)
+        {
+            return url(random, IRI_WORDS);
+        }
+    };
+
+    /**
+     * Seed of all generators.
+     */
+    public static final long SEED = 0x5eed_c1e0_3e09_2012L;
+
+    private static final String[] CLUEWEB09_LANGUAGES = { "en", "en", "en", "en", "de", "es", "fr", "ja", "zh" };
+    private static final String[] URL_WORDS = { "index", "news", "article", "products", "blog", "2017", "search",
+            "category", "item", "view", "page", "archive", "user", "profile", "forum", "thread" };
+    private static final String[] IRI_WORDS = { "b\u00fccher", "stra\u00dfe", "gr\u00f6\u00dfe", "caf\u00e9",
+            "\u043d\u043e\u0432\u043e\u0441\u0442\u0438", "\u0441\u0442\u0430\u0442\u044c\u044f",
+            "\u30cb\u30e5\u30fc\u30b9", "\u8a18\u4e8b", "\u65b0\u95fb", "\u6587\u7ae0", "index", "page" };
+    private static final String[] TLDS = { "com", "org", "de", "net", "ru", "jp", "cn" };
+    private static final String HEX = "0123456789abcdef";
+
+    private final String mPrefix;
+
+    SyntheticIds(final String prefix)
+    {
+        mPrefix = prefix;
+    }
+
+    /**
+     * @return scheme prefix of the corpus
+     */
+    public String getPrefix()
+    {
+        return mPrefix;
+    }
+
+    /**
+     * Generate internal IDs from the fixed seed.
+     *
+     * @param count number of IDs
+     * @return IDs
+     */
+    public String[] generate(final int count)
+    {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final String[] ids = new String[count];
+        for (int i = 0; i < count; ++i) {
+            ids[i] = next(random);
+        }
+        return ids;
+    }
+
+    /**
+     * Generate the next internal ID.
+     *
+     * @param random random source
+     * @return ID
+     */
+    abstract String next(SplittableRandom random);
+
+    private static StringBuilder digits(final StringBuilder sb, final int value, final int width)
+    {
+        final String s = Integer.toString(value);
+        for (int i = s.length(); i < width; ++i) {
+            sb.append('0');
+        }
+        return sb.append(s);
+    }
+
+    private static StringBuilder hex(final StringBuilder sb, final long value, final int width)
+    {
+        for (int i = width - 1; i >= 0; --i) {
+            sb.append(HEX.charAt((int) (value >>> (i << 2)) & 0xf));
+        }
+        return sb;
+    }
+
+    private static String url(final SplittableRandom random, final String[] words)
+    {
+        final int length = 20 + random.nextInt(181);
+        final StringBuilder sb = new StringBuilder(length + 16)
+                .append(random.nextBoolean() ? "https://" : "http://");
+        if (random.nextBoolean()) {
+            sb.append("www.");
+        }
+        sb.append(words[random.nextInt(words.length)]).append('-').append(random.nextInt(1000)).append('.')
+                .append(TLDS[random.nextInt(TLDS.length)]);
+        while (sb.length() < length) {
+            sb.append('/').append(words[random.nextInt(words.length)]);
+            if (0 == random.nextInt(4)) {
+                sb.append('-').append(random.nextInt(100000));
+            }
+        }
+        if (0 == random.nextInt(3)) {
+            sb.append("?id=").append(random.nextInt(1_000_000));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis.benchmark;
+
+import de.webis.MutableUUID;
+import de.webis.WebisUUID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of UUID generation from 1 to 64 threads. {@code shared} measures a single generator instance
+ * shared by all benchmark threads, each of which uses its own generator context. Its number of threads
+ * is set with JMH's {@code -t} option, e.g. in a sweep {@code for t in 1 2 4 8 16 32 64}.
+ * {@code parallel} measures fork-join generation of {@value #PARALLEL_SIZE} UUIDs in pools of 1 to 64
+ * worker threads.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ThreadScalingBenchmark
+{
+    static final int PARALLEL_SIZE = 1 << 16;
+
+    /**
+     * Generator shared by all threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Shared
+    {
+        WebisUUID mGenerator;
+
+        @Setup
+        public void setup()
+        {
+            mGenerator = new WebisUUID(SyntheticIds.CLUEWEB12.getPrefix());
+        }
+    }
+
+    /**
+     * IDs and output of one thread.
+     */
+    @State(Scope.Thread)
+    public static class PerThread
+    {
+        String[] mIds;
+        final MutableUUID mUUID = new MutableUUID();
+        int mNext;
+
+        @Setup
+        public void setup()
+        {
+            mIds = SyntheticIds.CLUEWEB12.generate(GenerateBenchmark.ID_COUNT);
+        }
+    }
+
+    /**
+     * Fork-join pool and arrays for parallel generation.
+     */
+    @State(Scope.Benchmark)
+    public static class Pool
+    {
+        @Param({ "1", "2", "4", "8", "16", "32", "64" })
+        public int parallelism;
+
+        String[] mIds;
+        long[] mMsb;
+        long[] mLsb;
+        ForkJoinPool mPool;
+
+        @Setup
+        public void setup()
+        {
+            mIds = SyntheticIds.CLUEWEB12.generate(PARALLEL_SIZE);
+            mMsb = new long[PARALLEL_SIZE];
+            mLsb = new long[PARALLEL_SIZE];
+            mPool = new ForkJoinPool(parallelism);
+        }
+
+        @TearDown
+        public void tearDown()
+        {
+            mPool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long shared(final Shared shared, final PerThread state)
+    {
+        shared.mGenerator.generateUUID(state.mIds[state.mNext++ & (GenerateBenchmark.ID_COUNT - 1)], state.mUUID);
+        return state.mUUID.getMostSignificantBits() ^ state.mUUID.getLeastSignificantBits();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PARALLEL_SIZE)
+    public long[] parallel(final Shared shared, final Pool pool)
+    {
+        shared.mGenerator.generateParallel(pool.mIds, pool.mMsb, pool.mLsb, pool.mPool);
+        return pool.mMsb;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Atomic access to longs in direct byte buffers, which are atomic across processes if the buffers
+ * are mappings of the same file. Values are stored in big-endian byte order like with
+ * {@link ByteBuffer#getLong(int)}, so that atomic and plain accesses can be mixed.
+ * This is the Java 8 version of the class. Java 8 has no public API for atomic buffer access,
+ * so it is not available and callers have to check {@link #isAvailable()} first. A multi-release
+ * variant for Java 11 and newer provides it with byte buffer view {@link java.lang.invoke.VarHandle}s.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class AtomicBuffers
+{
+    private AtomicBuffers()
+    {
+    }
+
+    /**
+     * @return whether atomic buffer access is available
+     */
+    static boolean isAvailable()
+    {
+        return false;
+    }
+
+    /**
+     * Read a long with volatile semantics.
+     *
+     * @param buffer direct buffer
+     * @param index 8-byte aligned index
+     * @return value
+     */
+    static long getLongVolatile(final ByteBuffer buffer, final int index)
+    {
+        throw new IllegalStateException("Atomic buffer access requires Java 11");
+    }
+
+    /**
+     * Write a long with volatile semantics.
+     *
+     * @param buffer direct buffer
+     * @param index 8-byte aligned index
+     * @param value value
+     */
+    static void putLongVolatile(final ByteBuffer buffer, final int index, final long value)
+    {
+        throw new IllegalStateException("Atomic buffer access requires Java 11");
+    }
+
+    /**
+     * Atomically replace a long if it has the expected value.
+     *
+     * @param buffer direct buffer
+     * @param index 8-byte aligned index
+     * @param expected expected current value
+     * @param value new value
+     * @return whether the value was replaced
+     */
+    static boolean compareAndSetLong(final ByteBuffer buffer, final int index, final long expected, final long value)
+    {
+        throw new IllegalStateException("Atomic buffer access requires Java 11");
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates UUIDs for a file of newline-separated internal IDs on multiple threads.
+ * The input file is memory-mapped and split at line boundaries into at least one chunk per
+ * thread. In a first pass, the output size of all chunks is computed in parallel, which determines
+ * where the output of each chunk starts. In a second pass, the chunks are hashed in parallel
+ * and each one is written with positional writes into its own region of the output file, so
+ * that the records are in input line order without any merging step. Each worker thread uses
+ * its own generator context. Lines are handled like in {@link StreamGenerator}.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class BulkGenerator
+{
+    /**
+     * Initial size of the output buffer of each chunk.
+     */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Target maximum size of a chunk. Chunks are mapped as a whole, so they must stay below 2 GiB
+     * even after being extended to the next line boundary.
+     */
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+
+    private final WebisUUID mGenerator;
+    private final OutputFormat mFormat;
+    private final int mThreads;
+
+    /**
+     * @param generator generator with the prefix to use
+     * @param format output record format
+     * @param threads number of worker threads
+     */
+    BulkGenerator(final WebisUUID generator, final OutputFormat format, final int threads)
+    {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        mGenerator = generator;
+        mFormat = format;
+        mThreads = threads;
+    }
+
+    /**
+     * Generate UUIDs for all lines of an input file. An existing output file is overwritten.
+     *
+     * @param input input file of newline-separated internal IDs
+     * @param output output file for the records
+     * @return number of processed lines
+     * @throws IOException if reading or writing fails
+     */
+    long run(final Path input, final Path output) throws IOException
+    {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            final List<Chunk> chunks = split(in);
+            final ExecutorService executor = Executors.newFixedThreadPool(mThreads);
+            try {
+                final List<Callable<Void>> measure = new ArrayList<>(chunks.size());
+                for (final Chunk chunk : chunks) {
+                    measure.add(() -> {
+                        chunk.measure();
+                        return null;
+                    });
+                }
+                invokeAll(executor, measure);
+
+                long lines = 0;
+                long bytes = 0;
+                for (final Chunk chunk : chunks) {
+                    chunk.mOffset = bytes;
+                    lines += chunk.mLines;
+                    bytes += chunk.mBytes;
+                }
+                if (0 < bytes) {
+                    // preallocate, so that the chunks do not extend the file concurrently
+                    out.write(ByteBuffer.wrap(new byte[1]), bytes - 1);
+                }
+
+                final List<Callable<Void>> generate = new ArrayList<>(chunks.size());
+                for (final Chunk chunk : chunks) {
+                    generate.add(() -> {
+                        chunk.generate(out);
+                        return null;
+                    });
+                }
+                invokeAll(executor, generate);
+                return lines;
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Split a file at line boundaries into memory-mapped chunks of roughly equal size.
+     *
+     * @param in input file
+     * @return chunks in file order
+     * @throws IOException if reading fails or a line is too long to be mapped
+     */
+    private List<Chunk> split(final FileChannel in) throws IOException
+    {
+        final long size = in.size();
+        final long count = Math.max(mThreads, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        final List<Chunk> chunks = new ArrayList<>();
+        final ByteBuffer probe = ByteBuffer.allocate(BUFFER_SIZE);
+
+        long start = 0;
+        for (long i = 1; i <= count && start < size; ++i) {
+            final long end = i == count ? size : nextLine(in, Math.max(start, size / count * i), probe);
+            if (end == start) {
+                continue;
+            }
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Line too long at byte offset " + start);
+            }
+            chunks.add(new Chunk(in.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Find the start of the first line after a position.
+     *
+     * @param in input file
+     * @param position position to start searching at
+     * @param probe buffer for reading the file
+     * @return offset after the next newline or the file size if there is none
+     * @throws IOException if reading fails
+     */
+    private static long nextLine(final FileChannel in, final long position, final ByteBuffer probe)
+            throws IOException
+    {
+        long pos = position;
+        while (true) {
+            probe.clear();
+            final int read = in.read(probe, pos);
+            if (read < 0) {
+                return in.size();
+            }
+            for (int i = 0; i < read; ++i) {
+                if ('\n' == probe.get(i)) {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+    }
+
+    /**
+     * Run tasks on the executor and wait for all of them to finish.
+     *
+     * @param executor executor service
+     * @param tasks tasks to run
+     * @throws IOException if a task failed with an I/O error
+     */
+    private static void invokeAll(final ExecutorService executor, final List<Callable<Void>> tasks)
+            throws IOException
+    {
+        try {
+            for (final Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Memory-mapped part of the input file that starts at a line boundary and
+     * ends after a newline or at the end of the file.
+     */
+    private final class Chunk
+    {
+        private final MappedByteBuffer mInput;
+
+        /**
+         * Number of lines in this chunk.
+         */
+        long mLines;
+
+        /**
+         * Number of output bytes of this chunk.
+         */
+        long mBytes;
+
+        /**
+         * Position of the output of this chunk in the output file.
+         */
+        long mOffset;
+
+        Chunk(final MappedByteBuffer input)
+        {
+            mInput = input;
+        }
+
+        /**
+         * Count the lines and compute the output size of this chunk.
+         */
+        void measure()
+        {
+            final Object event = FlightEvents.beginStage();
+            final ByteBuffer input = mInput;
+            final int end = input.limit();
+            long lines = 0;
+            long bytes = 0;
+            int start = 0;
+            for (int i = 0; i < end; ++i) {
+                if ('\n' == input.get(i)) {
+                    if (0 > mFormat.mFixedLength) {
+                        bytes += mFormat.length(input, start, lineEnd(input, start, i));
+                    }
+                    ++lines;
+                    start = i + 1;
+                }
+            }
+            if (start < end) {
+                if (0 > mFormat.mFixedLength) {
+                    bytes += mFormat.length(input, start, lineEnd(input, start, end));
+                }
+                ++lines;
+            }
+            mLines = lines;
+            mBytes = 0 > mFormat.mFixedLength ? bytes : lines * mFormat.mFixedLength;
+            FlightEvents.commitStage(event, FlightEvents.STAGE_READ, lines, end);
+        }
+
+        /**
+         * Generate the records of this chunk and write them to the region of the output file
+         * that belongs to this chunk.
+         *
+         * @param out output file
+         * @throws IOException if writing fails
+         */
+        void generate(final FileChannel out) throws IOException
+        {
+            final ByteBuffer input = mInput.duplicate();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            final MutableUUID uuid = new MutableUUID();
+            final int end = input.capacity();
+            long position = mOffset;
+
+            Object event = FlightEvents.beginStage();
+            int hashStart = 0;
+            long hashLines = 0;
+            int start = 0;
+            while (start < end) {
+                int newline = start;
+                while (newline < end && '\n' != input.get(newline)) {
+                    ++newline;
+                }
+                final int lineEnd = lineEnd(input, start, newline);
+
+                input.limit(lineEnd).position(start);
+                mGenerator.generateUUID(input, uuid);
+                input.limit(end);
+
+                final int length = mFormat.length(input, start, lineEnd);
+                if (length > buffer.remaining()) {
+                    FlightEvents.commitStage(event, FlightEvents.STAGE_HASH, hashLines, start - hashStart);
+                    position = write(out, buffer, position, hashLines);
+                    event = FlightEvents.beginStage();
+                    hashStart = start;
+                    hashLines = 0;
+                    if (length > buffer.capacity()) {
+                        buffer = ByteBuffer.allocateDirect(Math.max(length, buffer.capacity() * 2));
+                    }
+                }
+                mFormat.write(input, start, lineEnd, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(),
+                        buffer);
+                ++hashLines;
+                start = newline + 1;
+            }
+            FlightEvents.commitStage(event, FlightEvents.STAGE_HASH, hashLines, end - hashStart);
+            write(out, buffer, position, hashLines);
+        }
+
+        /**
+         * Strip a trailing carriage return from a line.
+         *
+         * @param input input buffer
+         * @param start start index of the line
+         * @param newline index of the newline or end of the chunk
+         * @return end index of the line content
+         */
+        private int lineEnd(final ByteBuffer input, final int start, final int newline)
+        {
+            return (newline > start && '\r' == input.get(newline - 1)) ? newline - 1 : newline;
+        }
+
+        /**
+         * Write the output buffer at a position of the output file and clear it.
+         *
+         * @param out output file
+         * @param buffer output buffer in write mode
+         * @param position file position to write to
+         * @param lines number of records in the buffer
+         * @return file position after the written bytes
+         * @throws IOException if writing fails
+         */
+        private long write(final FileChannel out, final ByteBuffer buffer, final long position, final long lines)
+                throws IOException
+        {
+            final Object event = FlightEvents.beginStage();
+            long pos = position;
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                pos += out.write(buffer, pos);
+            }
+            FlightEvents.commitStage(event, FlightEvents.STAGE_WRITE, lines, pos - position);
+            buffer.clear();
+            return pos;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+/**
+ * Java Flight Recorder events of UUID generation.
+ * This is the Java 8 version of the class, which does not emit any events. A multi-release variant
+ * for Java 11 and newer replaces it and emits {@code jdk.jfr} events for batch generation, the stages
+ * of the command line tool, prefix registry lookups and UUID cache lookups if the {@code jdk.jfr} module
+ * is present. Events are created in a begin method and
+ * passed back to the matching commit method as opaque objects, so that callers do not depend on
+ * {@code jdk.jfr}. Begin methods return null if the event is not enabled.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class FlightEvents
+{
+    /**
+     * Stage of the command line tool reading input.
+     */
+    static final String STAGE_READ = "read";
+
+    /**
+     * Stage of the command line tool hashing internal IDs and formatting records.
+     */
+    static final String STAGE_HASH = "hash";
+
+    /**
+     * Stage of the command line tool writing output.
+     */
+    static final String STAGE_WRITE = "write";
+
+    private FlightEvents()
+    {
+    }
+
+    /**
+     * Start timing the generation of a batch of UUIDs.
+     *
+     * @return event to commit, null if not enabled
+     */
+    static Object beginBatch()
+    {
+        return null;
+    }
+
+    /**
+     * Commit a batch generation event.
+     *
+     * @param event event returned by {@link #beginBatch()}, may be null
+     * @param prefix scheme prefix
+     * @param mode kind of batch, e.g. {@code batch} or {@code parallel}
+     * @param engine SHA-1 engine
+     * @param count number of UUIDs generated
+     * @param bytes total size of the encoded internal IDs in bytes
+     */
+    static void commitBatch(final Object event, final NamePrefix prefix, final String mode, final HashEngine engine,
+                            final long count, final long bytes)
+    {
+    }
+
+    /**
+     * Start timing a stage of the command line tool.
+     *
+     * @return event to commit, null if not enabled
+     */
+    static Object beginStage()
+    {
+        return null;
+    }
+
+    /**
+     * Commit a stage event of the command line tool.
+     *
+     * @param event event returned by {@link #beginStage()}, may be null
+     * @param stage one of {@link #STAGE_READ}, {@link #STAGE_HASH} and {@link #STAGE_WRITE}
+     * @param lines number of lines processed
+     * @param bytes number of bytes read or written
+     */
+    static void commitStage(final Object event, final String stage, final long lines, final long bytes)
+    {
+    }
+
+    /**
+     * Count a lookup in the shared prefix registry.
+     *
+     * @param hit whether the prefix was found in the registry
+     */
+    static void prefixLookup(final boolean hit)
+    {
+    }
+
+    /**
+     * Count a lookup in a {@link UUIDCache}.
+     *
+     * @param hit whether the UUID was found in the cache
+     */
+    static void cacheLookup(final boolean hit)
+    {
+    }
+}
@@ -0,0 +1,641 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+
+/**
+ * Per-thread state for UUID generation.
+ * Holds the SHA-1 engines and all scratch buffers needed to hash a name, so that
+ * generating a UUID does not allocate once the buffers have grown to the name length.
+ * Instances are not thread-safe and must only be used by the thread owning them.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class GeneratorContext
+{
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    /**
+     * Whether names are encoded with the platform default charset instead of UTF-8.
+     */
+    static final boolean LEGACY_CHARSET = Boolean.getBoolean(WebisUUID.LEGACY_CHARSET_PROPERTY);
+
+    private final Sha1 mSha1 = new Sha1();
+    private final CharsetEncoder mEncoder;
+    private final byte[] mDigestBuffer = new byte[20];
+    private MessageDigest mDigest;
+    private MultiBufferSha1 mMultiBufferSha1;
+    private int[] mLaneWords = new int[0];
+    private int mLaneBlocks;
+    private long mLaneBytes;
+
+    private char[] mChars = new char[INITIAL_BUFFER_SIZE];
+    private CharBuffer mCharBuffer = CharBuffer.wrap(mChars);
+    private byte[] mName = new byte[INITIAL_BUFFER_SIZE];
+    private ByteBuffer mNameBuffer = ByteBuffer.wrap(mName);
+
+    /**
+     * Prefix whose head bytes currently occupy the beginning of the name buffer.
+     */
+    private NamePrefix mLoadedPrefix;
+
+    /**
+     * Most significant bits of the last generated UUID.
+     */
+    long mMsb;
+
+    /**
+     * Least significant bits of the last generated UUID.
+     */
+    long mLsb;
+
+    /**
+     * First half of the 128-bit fingerprint of the last name passed to {@link #fingerprint(NamePrefix, CharSequence)}.
+     */
+    long mFingerprintHigh;
+
+    /**
+     * Second half of the 128-bit fingerprint of the last name passed to {@link #fingerprint(NamePrefix, CharSequence)}.
+     */
+    long mFingerprintLow;
+
+    /**
+     * Total size in bytes of the internal IDs encoded for UUID generation by this context.
+     * Batch events report the difference before and after a batch as its input size.
+     */
+    long mEncodedBytes;
+
+    GeneratorContext()
+    {
+        // behave like String.getBytes() for unmappable or malformed input
+        mEncoder = !LEGACY_CHARSET ? null : Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Look up the precomputed hash input for a prefix.
+     * The prefix loaded last is reused without consulting the shared registry.
+     *
+     * @param prefix the scheme prefix
+     * @return precomputed prefix
+     */
+    NamePrefix resolve(final String prefix)
+    {
+        if (null != mLoadedPrefix && mLoadedPrefix.mPrefix.equals(prefix)) {
+            return mLoadedPrefix;
+        }
+        return NamePrefix.of(prefix);
+    }
+
+    /**
+     * Generate a version 5 UUID for the name prefix:internalId.
+     * The result is stored in {@link #mMsb} and {@link #mLsb}.
+     *
+     * @param prefix precomputed scheme prefix
+     * @param internalId internal ID (scheme-specific part)
+     * @param engine SHA-1 engine to use
+     */
+    void generate(final NamePrefix prefix, final CharSequence internalId, final HashEngine engine)
+    {
+        final long start = UUIDMetrics.ENABLED ? System.nanoTime() : 0L;
+        final int nameLength = encodeName(prefix, internalId);
+        hash(prefix, nameLength, engine);
+        mEncodedBytes += nameLength - prefix.mHead.length;
+        if (UUIDMetrics.ENABLED) {
+            UUIDMetrics.record(prefix, 1, nameLength, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Place the encoded name prefix:internalId in the name buffer.
+     *
+     * @param prefix precomputed scheme prefix
+     * @param internalId internal ID (scheme-specific part)
+     * @return total length of the name in bytes, including the head
+     */
+    private int encodeName(final NamePrefix prefix, final CharSequence internalId)
+    {
+        final int headLength = loadPrefix(prefix);
+
+        final int idLength = internalId.length();
+        if (idLength > mChars.length) {
+            mChars = new char[Math.max(idLength, mChars.length * 2)];
+            mCharBuffer = CharBuffer.wrap(mChars);
+        }
+        if (internalId instanceof String) {
+            ((String) internalId).getChars(0, idLength, mChars, 0);
+        } else {
+            for (int i = 0; i < idLength; ++i) {
+                mChars[i] = internalId.charAt(i);
+            }
+        }
+
+        return headLength + encode(idLength, headLength);
+    }
+
+    /**
+     * Format the last generated UUID in its canonical text form. The characters are formatted
+     * into the scratch buffer, so that only the string itself is allocated.
+     *
+     * @return text form of {@link #mMsb} and {@link #mLsb}
+     */
+    String uuidString()
+    {
+        UUIDFormat.format(mMsb, mLsb, mChars, 0);
+        return new String(mChars, 0, UUIDFormat.LENGTH);
+    }
+
+    /**
+     * Generate a version 5 UUID for the name prefix:internalId with an already encoded internal ID.
+     * The result is stored in {@link #mMsb} and {@link #mLsb}.
+     *
+     * @param prefix precomputed scheme prefix
+     * @param buf buffer holding the encoded internal ID
+     * @param off offset of the internal ID in {@code buf}
+     * @param len length of the internal ID in bytes
+     * @param engine SHA-1 engine to use
+     */
+    void generate(final NamePrefix prefix, final byte[] buf, final int off, final int len, final HashEngine engine)
+    {
+        final long start = UUIDMetrics.ENABLED ? System.nanoTime() : 0L;
+        final int headLength = loadPrefix(prefix);
+        ensureNameCapacity(headLength + len);
+        System.arraycopy(buf, off, mName, headLength, len);
+        hash(prefix, headLength + len, engine);
+        if (UUIDMetrics.ENABLED) {
+            UUIDMetrics.record(prefix, 1, headLength + len, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Generate a version 5 UUID for the name prefix:internalId with an already encoded internal ID.
+     * The internal ID consists of the remaining bytes of {@code internalId}, whose position is not changed.
+     * The result is stored in {@link #mMsb} and {@link #mLsb}.
+     *
+     * @param prefix precomputed scheme prefix
+     * @param internalId buffer holding the encoded internal ID
+     * @param engine SHA-1 engine to use
+     */
+    void generate(final NamePrefix prefix, final ByteBuffer internalId, final HashEngine engine)
+    {
+        final int len = internalId.remaining();
+        if (internalId.hasArray()) {
+            generate(prefix, internalId.array(), internalId.arrayOffset() + internalId.position(), len, engine);
+            return;
+        }
+
+        final long start = UUIDMetrics.ENABLED ? System.nanoTime() : 0L;
+        final int headLength = loadPrefix(prefix);
+        ensureNameCapacity(headLength + len);
+        final int position = internalId.position();
+        internalId.get(mName, headLength, len);
+        internalId.position(position);
+        hash(prefix, headLength + len, engine);
+        if (UUIDMetrics.ENABLED) {
+            UUIDMetrics.record(prefix, 1, headLength + len, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Generate version 5 UUIDs for a range of internal IDs in one tight loop.
+     * The UUID of {@code ids[i]} is stored at index {@code dstOff + i - from} of the output arrays.
+     * With the {@link HashEngine#VECTOR} engine, groups of IDs are hashed together in SIMD lanes.
+     *
+     * @param prefix precomputed scheme prefix
+     * @param ids internal IDs
+     * @param from index of the first internal ID
+     * @param to end index of the internal IDs (exclusive)
+     * @param engine SHA-1 engine to use
+     * @param msb output array for the most significant bits
+     * @param lsb output array for the least significant bits
+     * @param dstOff index in the output arrays for the first UUID
+     */
+    void generate(final NamePrefix prefix, final CharSequence[] ids, final int from, final int to,
+                  final HashEngine engine, final long[] msb, final long[] lsb, final int dstOff)
+    {
+        int i = from;
+        int j = dstOff;
+        if (HashEngine.VECTOR == engine && null != multiBufferSha1()) {
+            final int lanes = mMultiBufferSha1.lanes();
+            for (; to - i >= lanes; i += lanes, j += lanes) {
+                final long start = UUIDMetrics.ENABLED ? System.nanoTime() : 0L;
+                if (packLanes(prefix, ids, i, lanes)) {
+                    mMultiBufferSha1.digest(prefix.mState, mLaneWords, mLaneBlocks, msb, lsb, j);
+                    mEncodedBytes += mLaneBytes - (long) lanes * prefix.mHead.length;
+                    for (int l = j; l < j + lanes; ++l) {
+                        msb[l] = versionMsb(msb[l]);
+                        lsb[l] = variantLsb(lsb[l]);
+                    }
+                    if (UUIDMetrics.ENABLED) {
+                        UUIDMetrics.record(prefix, lanes, mLaneBytes, System.nanoTime() - start);
+                    }
+                } else {
+                    generate(prefix, ids, i, i + lanes, HashEngine.BUILTIN, msb, lsb, j);
+                }
+            }
+        }
+
+        for (; i < to; ++i, ++j) {
+            generate(prefix, ids[i], engine);
+            msb[j] = mMsb;
+            lsb[j] = mLsb;
+        }
+    }
+
+    /**
+     * Encode the names of a group of internal IDs and pack them into the interleaved lane words.
+     * Packing fails if the names do not all occupy the same number of SHA-1 blocks.
+     *
+     * @param prefix precomputed scheme prefix
+     * @param ids internal IDs
+     * @param from index of the first internal ID
+     * @param lanes number of lanes
+     * @return true if all lanes have been packed
+     */
+    private boolean packLanes(final NamePrefix prefix, final CharSequence[] ids, final int from, final int lanes)
+    {
+        mLaneBytes = 0;
+        for (int l = 0; l < lanes; ++l) {
+            final int nameLength = encodeName(prefix, ids[from + l]);
+            mLaneBytes += nameLength;
+            final int blocks = MultiBufferSha1.blocks(nameLength - prefix.mStateBytes);
+            if (0 == l) {
+                mLaneBlocks = blocks;
+                if (mLaneWords.length < blocks * 16 * lanes) {
+                    mLaneWords = new int[blocks * 16 * lanes];
+                }
+            } else if (blocks != mLaneBlocks) {
+                return false;
+            }
+            MultiBufferSha1.pack(mName, prefix.mStateBytes, nameLength, prefix.mStateBytes, mLaneWords, l, lanes);
+        }
+        return true;
+    }
+
+    /**
+     * @return multi-buffer SHA-1 engine of this context, null if SIMD is not available
+     */
+    private MultiBufferSha1 multiBufferSha1()
+    {
+        if (null == mMultiBufferSha1 && VectorSupport.isAvailable()) {
+            mMultiBufferSha1 = VectorSupport.newMultiBufferSha1();
+        }
+        return mMultiBufferSha1;
+    }
+
+    /**
+     * Generate version 5 UUIDs for all remaining internal IDs of an iterator and append them to a batch.
+     *
+     * @param prefix precomputed scheme prefix
+     * @param ids internal IDs
+     * @param engine SHA-1 engine to use
+     * @param out batch receiving the UUIDs
+     */
+    void generate(final NamePrefix prefix, final Iterator<? extends CharSequence> ids, final HashEngine engine,
+                  final UUIDBatch out)
+    {
+        while (ids.hasNext()) {
+            generate(prefix, ids.next(), engine);
+            out.add(mMsb, mLsb);
+        }
+    }
+
+    /**
+     * Compute a 128-bit fingerprint of the name prefix:internalId with MurmurHash3 (x64, 128-bit variant).
+     * The fingerprint identifies the name in shared caches much faster than the SHA-1 hash of the UUID.
+     * The result is stored in {@link #mFingerprintHigh} and {@link #mFingerprintLow}.
+     *
+     * @param prefix precomputed scheme prefix
+     * @param internalId internal ID (scheme-specific part)
+     */
+    void fingerprint(final NamePrefix prefix, final CharSequence internalId)
+    {
+        final int length = encodeName(prefix, internalId);
+        final byte[] name = mName;
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        long h1 = 0;
+        long h2 = 0;
+
+        final int blocksEnd = length & ~15;
+        for (int i = 0; i < blocksEnd; i += 16) {
+            long k1 = littleEndianLong(name, i, 8);
+            long k2 = littleEndianLong(name, i + 8, 8);
+            k1 *= c1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= c2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            k2 *= c2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= c1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        final int tail = length - blocksEnd;
+        if (tail > 8) {
+            long k2 = littleEndianLong(name, blocksEnd + 8, tail - 8);
+            k2 *= c2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= c1;
+            h2 ^= k2;
+        }
+        if (tail > 0) {
+            long k1 = littleEndianLong(name, blocksEnd, Math.min(tail, 8));
+            k1 *= c1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= c2;
+            h1 ^= k1;
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        mFingerprintHigh = h1;
+        mFingerprintLow = h2;
+    }
+
+    /**
+     * Read up to 8 bytes as a little-endian long.
+     *
+     * @param buf buffer
+     * @param off offset of the first byte
+     * @param len number of bytes
+     * @return value
+     */
+    private static long littleEndianLong(final byte[] buf, final int off, final int len)
+    {
+        long value = 0;
+        for (int i = len - 1; i >= 0; --i) {
+            value = (value << 8) | (buf[off + i] & 0xff);
+        }
+        return value;
+    }
+
+    /**
+     * MurmurHash3 64-bit finalization mix.
+     *
+     * @param k value
+     * @return mixed value
+     */
+    private static long fmix(final long k)
+    {
+        long h = k;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Make sure the name buffer starts with the head bytes of a prefix.
+     *
+     * @param prefix precomputed scheme prefix
+     * @return length of the head in bytes
+     */
+    private int loadPrefix(final NamePrefix prefix)
+    {
+        final int headLength = prefix.mHead.length;
+        if (prefix != mLoadedPrefix) {
+            ensureNameCapacity(headLength);
+            System.arraycopy(prefix.mHead, 0, mName, 0, headLength);
+            mLoadedPrefix = prefix;
+        }
+        return headLength;
+    }
+
+    /**
+     * Hash the name currently in the name buffer and store the UUID bits.
+     *
+     * @param prefix prefix whose head starts the name buffer
+     * @param nameLength total length of the name in bytes, including the head
+     * @param engine SHA-1 engine to use
+     */
+    private void hash(final NamePrefix prefix, final int nameLength, final HashEngine engine)
+    {
+        final long msb;
+        final long lsb;
+        if (HashEngine.JCA != engine) {
+            mSha1.digest(prefix.mState, prefix.mStateBytes, mName, prefix.mStateBytes, nameLength);
+            msb = mSha1.mMsb;
+            lsb = mSha1.mLsb;
+        } else {
+            if (null == mDigest) {
+                mDigest = newDigest();
+            }
+            mDigest.update(mName, 0, nameLength);
+            try {
+                mDigest.digest(mDigestBuffer, 0, mDigestBuffer.length);
+            } catch (DigestException e) {
+                // should never happen, the buffer is large enough for a SHA-1 digest
+                throw new IllegalStateException(e);
+            }
+
+            long m = 0;
+            long l = 0;
+            for (int i = 0; i < 8; ++i) {
+                m = (m << 8) | (mDigestBuffer[i] & 0xff);
+            }
+            for (int i = 8; i < 16; ++i) {
+                l = (l << 8) | (mDigestBuffer[i] & 0xff);
+            }
+            msb = m;
+            lsb = l;
+        }
+
+        mMsb = versionMsb(msb);
+        mLsb = variantLsb(lsb);
+    }
+
+    /**
+     * @param msb most significant digest bits
+     * @return {@code msb} with the version (high nibble of byte 6) set to 5
+     */
+    private static long versionMsb(final long msb)
+    {
+        return (msb & ~0xf000L) | 0x5000L;
+    }
+
+    /**
+     * @param lsb digest bits 64 to 127
+     * @return {@code lsb} with the variant (two high bits of byte 8) set to RFC 4122
+     */
+    private static long variantLsb(final long lsb)
+    {
+        return (lsb & 0x3fffffffffffffffL) | 0x8000000000000000L;
+    }
+
+    /**
+     * Create a new SHA-1 message digest from the JCA provider list.
+     *
+     * @return SHA-1 digest
+     */
+    private static MessageDigest newDigest()
+    {
+        try {
+            return MessageDigest.getInstance("SHA1");
+        } catch (NoSuchAlgorithmException e) {
+            // should never happen, every Java platform is required to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Encode the first {@code length} chars of the char buffer into the name buffer
+     * at {@code offset} as UTF-8, growing the name buffer as needed.
+     * Pure ASCII input is copied in a single pass without branching on the characters.
+     *
+     * @param length number of chars to encode
+     * @param offset offset in the name buffer
+     * @return number of encoded bytes
+     */
+    private int encode(final int length, final int offset)
+    {
+        if (LEGACY_CHARSET) {
+            return encodeLegacy(length, offset);
+        }
+
+        ensureNameCapacity(offset + length);
+        final char[] chars = mChars;
+        final byte[] name = mName;
+        int bits = 0;
+        for (int i = 0; i < length; ++i) {
+            final char c = chars[i];
+            bits |= c;
+            name[offset + i] = (byte) c;
+        }
+        if (bits < 0x80) {
+            return length;
+        }
+        return encodeUtf8(length, offset);
+    }
+
+    /**
+     * Encode the first {@code length} chars of the char buffer into the name buffer
+     * at {@code offset} as UTF-8. Unpaired surrogates are replaced with '?' like String.getBytes() does.
+     *
+     * @param length number of chars to encode
+     * @param offset offset in the name buffer
+     * @return number of encoded bytes
+     */
+    private int encodeUtf8(final int length, final int offset)
+    {
+        // at most three bytes per char, surrogate pairs take four bytes for two chars
+        ensureNameCapacity(offset + 3 * length);
+        final char[] chars = mChars;
+        final byte[] name = mName;
+        int pos = offset;
+        for (int i = 0; i < length; ++i) {
+            final char c = chars[i];
+            if (c < 0x80) {
+                name[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                name[pos++] = (byte) (0xc0 | (c >> 6));
+                name[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (!Character.isSurrogate(c)) {
+                name[pos++] = (byte) (0xe0 | (c >> 12));
+                name[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                name[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars[i + 1])) {
+                final int codePoint = Character.toCodePoint(c, chars[++i]);
+                name[pos++] = (byte) (0xf0 | (codePoint >> 18));
+                name[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                name[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                name[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else {
+                name[pos++] = '?';
+            }
+        }
+        return pos - offset;
+    }
+
+    /**
+     * Encode the first {@code length} chars of the char buffer into the name buffer
+     * at {@code offset} using the platform default charset, growing the name buffer as needed.
+     *
+     * @param length number of chars to encode
+     * @param offset offset in the name buffer
+     * @return number of encoded bytes
+     */
+    private int encodeLegacy(final int length, final int offset)
+    {
+        mCharBuffer.clear().limit(length);
+        mNameBuffer.clear().position(offset);
+        mEncoder.reset();
+        while (true) {
+            CoderResult result = mEncoder.encode(mCharBuffer, mNameBuffer, true);
+            if (!result.isOverflow()) {
+                result = mEncoder.flush(mNameBuffer);
+            }
+            if (!result.isOverflow()) {
+                return mNameBuffer.position() - offset;
+            }
+
+            // output buffer too small, grow and keep the bytes encoded so far
+            final int position = mNameBuffer.position();
+            ensureNameCapacity(mName.length * 2);
+            mNameBuffer.position(position);
+        }
+    }
+
+    /**
+     * Grow the name buffer to at least the given capacity, keeping its contents.
+     *
+     * @param capacity minimum capacity in bytes
+     */
+    private void ensureNameCapacity(final int capacity)
+    {
+        if (capacity <= mName.length) {
+            return;
+        }
+        final byte[] grown = new byte[Math.max(capacity, mName.length * 2)];
+        System.arraycopy(mName, 0, grown, 0, mName.length);
+        mName = grown;
+        mNameBuffer = ByteBuffer.wrap(mName);
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * SHA-1 implementations available for UUID generation.
+ * All engines produce bit-identical UUIDs and only differ in speed. Which engine is
+ * fastest depends on the machine: the JCA implementation is intrinsified by the JIT on
+ * CPUs with SHA extensions, while the built-in engine avoids its overhead on older CPUs.
+ * By default, the engine for generating many UUIDs is selected by a short calibration run
+ * on first use, while single UUIDs from the static API are hashed with {@link #JCA}.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+public enum HashEngine
+{
+    /**
+     * SHA-1 {@link java.security.MessageDigest} of the installed JCA provider.
+     * Benefits from the JIT intrinsics for SHA-1 on CPUs with SHA extensions.
+     */
+    JCA,
+
+    /**
+     * Built-in allocation-free SHA-1 engine. Reuses the compressed state of the
+     * prefix blocks and works directly on message words.
+     */
+    BUILTIN,
+
+    /**
+     * Multi-buffer SHA-1 hashing several IDs of a batch at once in SIMD lanes.
+     * Requires Java 17 or newer started with {@code --add-modules jdk.incubator.vector}.
+     * Only batch generation from arrays is vectorized, single names are hashed with {@link #BUILTIN}.
+     */
+    VECTOR;
+
+    /**
+     * System property for selecting the engine used by the static API and by
+     * instances created without an explicit engine. Accepts the name of an engine
+     * (case-insensitive) or {@code auto} (the default) for selecting the fastest engine
+     * on this machine. Invalid names and engines that are not available on this JVM
+     * are logged as a warning and replaced with {@code auto}.
+     *
+     * <p>With {@code auto}, the engines are calibrated when the default engine for generating many
+     * UUIDs is first needed, i.e. on the first call of a static batch or parallel method, on creating
+     * the first instance without an explicit engine, or in the streaming and bulk modes of the command
+     * line. Calibration generates 20,000 warm-up UUIDs per available engine and then measures the
+     * engines for at least 50 ms. Including JIT compilation, this adds about 0.4 s on a single core,
+     * or 1 s if {@link #VECTOR} is available as well. The static methods generating a single UUID and
+     * the single-ID command line use {@link #JCA} with {@code auto} instead, since calibration would
+     * take far longer than hashing a single name with any engine.</p>
+     */
+    public static final String ENGINE_PROPERTY = "de.webis.uuid.engine";
+
+    private static final Logger LOGGER = Logger.getLogger(HashEngine.class.getName());
+
+    /**
+     * Minimum total time spent on calibration.
+     */
+    private static final long CALIBRATION_NANOS = 50_000_000L;
+
+    /**
+     * Number of UUIDs generated per engine before measuring, so that the hot
+     * methods of all engines are JIT-compiled when the measurement starts.
+     */
+    private static final int CALIBRATION_WARMUP = 20_000;
+
+    /**
+     * Number of UUIDs generated per engine in each calibration round.
+     */
+    private static final int CALIBRATION_BATCH = 2000;
+
+    /**
+     * @return whether this engine can run on this JVM, engines that cannot fall back to {@link #BUILTIN}
+     */
+    public boolean isAvailable()
+    {
+        return VECTOR != this || VectorSupport.isAvailable();
+    }
+
+    /**
+     * Engine configured via {@link #ENGINE_PROPERTY}, calibrated if unset or {@code auto}.
+     *
+     * @return configured engine
+     */
+    static HashEngine configured()
+    {
+        return configured(System.getProperty(ENGINE_PROPERTY, "auto"));
+    }
+
+    /**
+     * Engine selected by a value of {@link #ENGINE_PROPERTY}, calibrated if {@code auto}.
+     * The default engine is initialized in a static initializer, which must not fail on a misconfigured
+     * property, so invalid values and unavailable engines are logged and fall back to {@code auto}.
+     *
+     * @param value property value
+     * @return selected engine
+     */
+    static HashEngine configured(final String value)
+    {
+        final HashEngine engine = parse(value);
+        return null != engine ? engine : calibrate();
+    }
+
+    /**
+     * Engine configured via {@link #ENGINE_PROPERTY} for generating single UUIDs, {@link #JCA} if unset
+     * or {@code auto}.
+     *
+     * @return configured engine
+     */
+    static HashEngine configuredForSingleNames()
+    {
+        return configuredForSingleNames(System.getProperty(ENGINE_PROPERTY, "auto"));
+    }
+
+    /**
+     * Engine selected by a value of {@link #ENGINE_PROPERTY} for generating single UUIDs,
+     * {@link #JCA} without calibration if {@code auto}. Invalid values and unavailable engines
+     * are logged and fall back to {@code auto} as in {@link #configured(String)}.
+     *
+     * @param value property value
+     * @return selected engine
+     */
+    static HashEngine configuredForSingleNames(final String value)
+    {
+        final HashEngine engine = parse(value);
+        return null != engine ? engine : JCA;
+    }
+
+    /**
+     * Parse a value of {@link #ENGINE_PROPERTY}.
+     *
+     * @param value property value
+     * @return named engine, null for {@code auto} and for invalid values and unavailable engines, which are logged
+     */
+    private static HashEngine parse(final String value)
+    {
+        final String name = value.trim();
+        if (name.isEmpty() || "auto".equalsIgnoreCase(name)) {
+            return null;
+        }
+
+        for (final HashEngine engine : values()) {
+            if (engine.name().equalsIgnoreCase(name)) {
+                if (engine.isAvailable()) {
+                    return engine;
+                }
+                LOGGER.warning("Engine " + name + " set with -D" + ENGINE_PROPERTY + " is not available on this JVM "
+                        + "(vector requires Java 17+ with --add-modules jdk.incubator.vector), using auto");
+                return null;
+            }
+        }
+
+        LOGGER.warning("Invalid engine '" + value + "' set with -D" + ENGINE_PROPERTY + ", valid values are auto, "
+                + Arrays.stream(values()).map(e -> e.name().toLowerCase(Locale.ROOT))
+                        .collect(Collectors.joining(", ")) + ", using auto");
+        return null;
+    }
+
+    /**
+     * Briefly measure all available engines on synthetic corpus IDs and return the fastest one.
+     * Engines are measured on batches of IDs, which is where throughput matters and where
+     * multi-buffer engines can make use of their lanes. After a warm-up phase, engines are
+     * measured in interleaved rounds and each engine is rated by its best round, so that
+     * JIT compilation and other warm-up effects do not favor one engine.
+     *
+     * @return fastest engine
+     */
+    static HashEngine calibrate()
+    {
+        final HashEngine[] engines = Arrays.stream(values())
+                .filter(HashEngine::isAvailable)
+                .toArray(HashEngine[]::new);
+        if (1 == engines.length) {
+            return engines[0];
+        }
+        final long[] best = new long[engines.length];
+        Arrays.fill(best, Long.MAX_VALUE);
+
+        final NamePrefix prefix = new NamePrefix("clueweb12", false);
+        final String[] ids = new String[64];
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = String.format(Locale.ROOT, "clueweb12-%04dwb-%02d-%05d", i * 37, i, i * 1031);
+        }
+
+        final GeneratorContext context = new GeneratorContext();
+        final long[] msb = new long[ids.length];
+        final long[] lsb = new long[ids.length];
+        for (final HashEngine engine : engines) {
+            for (int i = 0; i < CALIBRATION_WARMUP; i += ids.length) {
+                context.generate(prefix, ids, 0, ids.length, engine, msb, lsb, 0);
+            }
+        }
+
+        final long start = System.nanoTime();
+        for (int round = 0; round < 3 || System.nanoTime() - start < CALIBRATION_NANOS; ++round) {
+            for (int e = 0; e < engines.length; ++e) {
+                final long roundStart = System.nanoTime();
+                for (int i = 0; i < CALIBRATION_BATCH; i += ids.length) {
+                    context.generate(prefix, ids, 0, ids.length, engines[e], msb, lsb, 0);
+                }
+                best[e] = Math.min(best[e], System.nanoTime() - roundStart);
+            }
+        }
+
+        int fastest = 0;
+        for (int e = 1; e < engines.length; ++e) {
+            if (best[e] < best[fastest]) {
+                fastest = e;
+            }
+        }
+
+        return engines[fastest];
+    }
+}
@@ -0,0 +1,598 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Compressed dictionary of sorted internal IDs, which maps every internal ID to its ordinal, i.e. its
+ * position in sort order, and back. Internal IDs of a corpus share long prefixes, so they are stored
+ * front-coded: IDs are grouped in blocks of a fixed number of IDs, the first ID of each block is stored
+ * in full and every following ID only as the length of the prefix it shares with its predecessor and the
+ * remaining suffix. Lengths are stored as variable-length integers.
+ *
+ * <p>The file is memory-mapped, only the positions of the blocks are loaded into memory as a sparse
+ * index. An ordinal is decoded by scanning its block from the start. An internal ID is found with a
+ * binary search on the first IDs of the blocks, which are compared without decoding, followed by a scan
+ * of one block. Larger blocks compress better, smaller blocks are faster to scan.</p>
+ *
+ * <p>The dictionary pairs with files of fixed-width records like a {@link UUIDFile}: if record i of
+ * such a file holds the UUID of the internal ID with ordinal i, both files together form a compact
+ * persistent mapping between internal IDs and UUIDs.</p>
+ *
+ * <p>Internal IDs are sorted by their UTF-8 encoding, which is the order of {@link #ORDER}.</p>
+ *
+ * <p>Layout (big-endian):</p>
+ * <pre>
+ * offset  size  field
+ *      0     8  magic "WEBISDIC"
+ *      8     4  format version
+ *     12     4  number of IDs per block
+ *     16     8  number of IDs
+ *     24     8  length of the block data d
+ *     32     4  length of the longest encoded ID in bytes
+ *     40     d  blocks, zero-padded to a multiple of 8 bytes
+ *  40+d'   8*b  file positions of the b blocks
+ * </pre>
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+public final class IdDictionary
+{
+    /**
+     * Version of the file format written by this class.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Default number of IDs per block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 32;
+
+    /**
+     * Order of internal IDs in a dictionary: lexicographic order of Unicode code points, which equals
+     * the order of their UTF-8 encodings and, for IDs without supplementary characters, {@link String#compareTo}.
+     */
+    public static final Comparator<CharSequence> ORDER = IdDictionary::compare;
+
+    private static final byte[] MAGIC = { 'W', 'E', 'B', 'I', 'S', 'D', 'I', 'C' };
+    private static final int HEADER_LENGTH = 40;
+
+    private IdDictionary()
+    {
+    }
+
+    /**
+     * Create a dictionary file with the default block size, overwriting any existing file.
+     *
+     * @param file file to create
+     * @return builder for the dictionary
+     * @throws IOException if the file cannot be created
+     */
+    public static Builder create(final Path file) throws IOException
+    {
+        return create(file, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Create a dictionary file, overwriting any existing file.
+     *
+     * @param file file to create
+     * @param blockSize number of IDs per block
+     * @return builder for the dictionary
+     * @throws IOException if the file cannot be created
+     */
+    public static Builder create(final Path file, final int blockSize) throws IOException
+    {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        return new Builder(FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING), blockSize);
+    }
+
+    /**
+     * Build a dictionary file with the default block size.
+     *
+     * @param file file to create
+     * @param ids internal IDs in {@link #ORDER}
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the IDs are not sorted or not unique
+     */
+    public static void build(final Path file, final Iterable<? extends CharSequence> ids) throws IOException
+    {
+        try (Builder builder = create(file)) {
+            for (final CharSequence id : ids) {
+                builder.add(id);
+            }
+        }
+    }
+
+    /**
+     * Open an existing dictionary file for reading.
+     *
+     * @param file file to open
+     * @return reader for the dictionary
+     * @throws IOException if the file cannot be read or is not a dictionary file of a supported version
+     */
+    public static Reader open(final Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Unexpected end of dictionary header: " + file);
+                }
+            }
+            header.flip();
+            final byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(MAGIC, magic)) {
+                throw new IOException("Not a dictionary file: " + file);
+            }
+            final int version = header.getInt();
+            if (VERSION != version) {
+                throw new IOException("Unsupported dictionary version " + version + ": " + file);
+            }
+            final int blockSize = header.getInt();
+            final long count = header.getLong();
+            final long dataLength = header.getLong();
+            final int maxLength = header.getInt();
+
+            // no decoded ID is longer than the block data, which is not longer than the file
+            if (blockSize < 1 || count < 0 || count / blockSize >= Integer.MAX_VALUE || dataLength < 0
+                    || dataLength > channel.size() || maxLength < 0 || maxLength > dataLength) {
+                throw new IOException("Corrupt dictionary header: " + file);
+            }
+            final long blocks = (count + blockSize - 1) / blockSize;
+            final long offsetsPosition = HEADER_LENGTH + ((dataLength + 7) & -8);
+            if (channel.size() < offsetsPosition + 8 * blocks) {
+                throw new IOException("Corrupt dictionary header: " + file);
+            }
+
+            final MappedFile mapped = new MappedFile(channel, FileChannel.MapMode.READ_ONLY,
+                    offsetsPosition + 8 * blocks);
+            final long[] offsets = new long[(int) blocks];
+            for (int i = 0; i < offsets.length; ++i) {
+                // every block holds at least the length of its first ID
+                offsets[i] = mapped.getLong(offsetsPosition + 8L * i);
+                final long previous = 0 == i ? HEADER_LENGTH - 1 : offsets[i - 1];
+                if (offsets[i] <= previous || offsets[i] >= HEADER_LENGTH + dataLength) {
+                    throw new IOException("Corrupt dictionary block index: " + file);
+                }
+            }
+            return new Reader(mapped, blockSize, count, maxLength, offsets);
+        }
+    }
+
+    /**
+     * Compare two character sequences by code points.
+     *
+     * @param a first sequence
+     * @param b second sequence
+     * @return negative, zero or positive if {@code a} is less than, equal to or greater than {@code b}
+     */
+    private static int compare(final CharSequence a, final CharSequence b)
+    {
+        final int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; ++i) {
+            final char ca = a.charAt(i);
+            final char cb = b.charAt(i);
+            if (ca != cb) {
+                // surrogates encode supplementary code points, which sort after all other characters
+                final boolean sa = Character.isSurrogate(ca);
+                final boolean sb = Character.isSurrogate(cb);
+                return sa == sb ? ca - cb : (sa ? 1 : -1);
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    /**
+     * Encode an internal ID as UTF-8.
+     *
+     * @param internalId internal ID
+     * @return encoded internal ID
+     */
+    private static byte[] encode(final CharSequence internalId)
+    {
+        return internalId.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Builder of a dictionary file. IDs must be added in {@link #ORDER} and without duplicates.
+     * Builders are not thread-safe. The dictionary is only valid after {@link #close()}.
+     */
+    public static final class Builder implements Closeable
+    {
+        private final FileChannel mChannel;
+        private final int mBlockSize;
+        private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(1 << 16);
+
+        private long[] mOffsets = new long[1024];
+        private byte[] mPrevious = new byte[0];
+        private long mCount;
+        private long mPosition = HEADER_LENGTH;
+        private int mMaxLength;
+
+        Builder(final FileChannel channel, final int blockSize)
+        {
+            mChannel = channel;
+            mBlockSize = blockSize;
+        }
+
+        /**
+         * Add the next internal ID, which gets the number of previously added IDs as its ordinal.
+         *
+         * @param internalId internal ID
+         * @throws IOException if writing fails
+         * @throws IllegalArgumentException if the ID is not greater than the previous ID
+         */
+        public void add(final CharSequence internalId) throws IOException
+        {
+            final byte[] id = encode(internalId);
+            int shared = 0;
+            final int limit = Math.min(id.length, mPrevious.length);
+            while (shared < limit && id[shared] == mPrevious[shared]) {
+                ++shared;
+            }
+            if (0 < mCount && (shared == id.length
+                    || shared < mPrevious.length && (id[shared] & 0xff) < (mPrevious[shared] & 0xff))) {
+                throw new IllegalArgumentException("IDs are not sorted or not unique at ordinal " + mCount);
+            }
+
+            if (0 == mCount % mBlockSize) {
+                final int block = (int) (mCount / mBlockSize);
+                if (block == mOffsets.length) {
+                    mOffsets = Arrays.copyOf(mOffsets, mOffsets.length * 2);
+                }
+                mOffsets[block] = mPosition;
+                shared = 0;
+            } else {
+                writeVarint(shared);
+            }
+            writeVarint(id.length - shared);
+            write(id, shared, id.length - shared);
+
+            mPrevious = id;
+            mMaxLength = Math.max(mMaxLength, id.length);
+            ++mCount;
+        }
+
+        /**
+         * @return number of IDs added
+         */
+        public long size()
+        {
+            return mCount;
+        }
+
+        /**
+         * Write the block index and the header and close the file.
+         *
+         * @throws IOException if writing fails
+         */
+        @Override
+        public void close() throws IOException
+        {
+            try {
+                final long dataLength = mPosition - HEADER_LENGTH;
+                while (0 != (mPosition & 7)) {
+                    writeByte(0);
+                }
+                final long blocks = (mCount + mBlockSize - 1) / mBlockSize;
+                for (int i = 0; i < blocks; ++i) {
+                    if (mBuffer.remaining() < 8) {
+                        flush();
+                    }
+                    mBuffer.putLong(mOffsets[i]);
+                    mPosition += 8;
+                }
+                flush();
+
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+                header.put(MAGIC).putInt(VERSION).putInt(mBlockSize).putLong(mCount).putLong(dataLength)
+                        .putInt(mMaxLength);
+                header.clear();
+                while (header.hasRemaining()) {
+                    mChannel.write(header, header.position());
+                }
+                mChannel.force(false);
+            } finally {
+                mChannel.close();
+            }
+        }
+
+        private void writeVarint(final int value) throws IOException
+        {
+            int v = value;
+            while (v >= 0x80) {
+                writeByte(v & 0x7f | 0x80);
+                v >>>= 7;
+            }
+            writeByte(v);
+        }
+
+        private void writeByte(final int b) throws IOException
+        {
+            if (!mBuffer.hasRemaining()) {
+                flush();
+            }
+            mBuffer.put((byte) b);
+            ++mPosition;
+        }
+
+        private void write(final byte[] src, final int off, final int len) throws IOException
+        {
+            int done = 0;
+            while (done < len) {
+                if (!mBuffer.hasRemaining()) {
+                    flush();
+                }
+                final int n = Math.min(len - done, mBuffer.remaining());
+                mBuffer.put(src, off + done, n);
+                mPosition += n;
+                done += n;
+            }
+        }
+
+        /**
+         * Write the buffer to the file, in front of the current position.
+         *
+         * @throws IOException if writing fails
+         */
+        private void flush() throws IOException
+        {
+            mBuffer.flip();
+            long position = mPosition - mBuffer.remaining();
+            while (mBuffer.hasRemaining()) {
+                position += mChannel.write(mBuffer, position);
+            }
+            mBuffer.clear();
+        }
+    }
+
+    /**
+     * Reader for a memory-mapped dictionary file. Reading is thread-safe.
+     */
+    public static final class Reader implements Closeable
+    {
+        private final MappedFile mFile;
+        private final int mBlockSize;
+        private final long mCount;
+        private final int mMaxLength;
+        private final long[] mOffsets;
+
+        Reader(final MappedFile file, final int blockSize, final long count, final int maxLength,
+               final long[] offsets)
+        {
+            mFile = file;
+            mBlockSize = blockSize;
+            mCount = count;
+            mMaxLength = maxLength;
+            mOffsets = offsets;
+        }
+
+        /**
+         * @return number of internal IDs
+         */
+        public long size()
+        {
+            return mCount;
+        }
+
+        /**
+         * @return number of IDs per block
+         */
+        public int getBlockSize()
+        {
+            return mBlockSize;
+        }
+
+        /**
+         * Decode the internal ID with an ordinal.
+         *
+         * @param ordinal ordinal of the internal ID
+         * @return internal ID
+         * @throws IndexOutOfBoundsException if there is no such ID
+         */
+        public String get(final long ordinal)
+        {
+            if (ordinal < 0 || ordinal >= mCount) {
+                throw new IndexOutOfBoundsException("Ordinal: " + ordinal + ", Size: " + mCount);
+            }
+            final byte[] id = new byte[mMaxLength];
+            final Cursor cursor = new Cursor(mOffsets[(int) (ordinal / mBlockSize)]);
+            int length = cursor.readVarint();
+            mFile.get(cursor.mPosition, id, 0, length);
+            cursor.mPosition += length;
+            for (int i = (int) (ordinal % mBlockSize); i > 0; --i) {
+                final int shared = cursor.readVarint();
+                final int suffix = cursor.readVarint();
+                mFile.get(cursor.mPosition, id, shared, suffix);
+                cursor.mPosition += suffix;
+                length = shared + suffix;
+            }
+            return new String(id, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Find the ordinal of an internal ID with a binary search.
+         *
+         * @param internalId internal ID
+         * @return ordinal of the internal ID, or {@code -(insertion point) - 1} if it is not in the
+         *         dictionary, like {@link Arrays#binarySearch(long[], long)}
+         */
+        public long ordinal(final CharSequence internalId)
+        {
+            final byte[] key = encode(internalId);
+
+            // last block whose first ID is not greater than the key
+            int low = 0;
+            int high = mOffsets.length - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int cmp = compareFirst(mid, key);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return (long) mid * mBlockSize;
+                }
+            }
+            if (high < 0) {
+                return -1;
+            }
+
+            // scan the block, the first ID is known to be smaller than the key
+            final long first = (long) high * mBlockSize;
+            final int entries = (int) Math.min(mBlockSize, mCount - first);
+            final Cursor cursor = new Cursor(mOffsets[high]);
+            int matched = cursor.matchFull(key);
+            for (int i = 1; i < entries; ++i) {
+                final int shared = cursor.readVarint();
+                final int suffix = cursor.readVarint();
+                if (shared < matched) {
+                    // shares less with the key than its smaller predecessor, so it is greater than the key
+                    return -(first + i) - 1;
+                }
+                if (shared > matched) {
+                    // equals the predecessor at the first differing position, so it is still smaller
+                    cursor.mPosition += suffix;
+                    continue;
+                }
+                final int cmp = cursor.compareSuffix(key, shared, suffix);
+                if (0 == cmp) {
+                    return first + i;
+                }
+                if (cmp > 0) {
+                    return -(first + i) - 1;
+                }
+                matched = cursor.mMatched;
+            }
+            return -(first + entries) - 1;
+        }
+
+        /**
+         * Compare the first ID of a block to a key without decoding it.
+         *
+         * @param block block index
+         * @param key encoded key
+         * @return negative, zero or positive if the first ID is less than, equal to or greater than the key
+         */
+        private int compareFirst(final int block, final byte[] key)
+        {
+            final Cursor cursor = new Cursor(mOffsets[block]);
+            return cursor.compareSuffix(key, 0, cursor.readVarint());
+        }
+
+        /**
+         * Readers hold no resources besides the mapping, which is released once the reader is unreachable.
+         */
+        @Override
+        public void close()
+        {
+        }
+
+        /**
+         * Read position in the block data.
+         */
+        private final class Cursor
+        {
+            long mPosition;
+
+            /**
+             * Length of the common prefix of the key and the ID last compared by
+             * {@link #compareSuffix(byte[], int, int)}.
+             */
+            int mMatched;
+
+            Cursor(final long position)
+            {
+                mPosition = position;
+            }
+
+            int readVarint()
+            {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = mFile.get(mPosition++);
+                    value |= (b & 0x7f) << shift;
+                    shift += 7;
+                } while (b < 0);
+                return value;
+            }
+
+            /**
+             * Compare an ID whose first {@code shared} bytes equal the key to the key and skip its suffix.
+             *
+             * @param key encoded key
+             * @param shared length of the prefix shared with the key
+             * @param suffix length of the suffix at the current position
+             * @return negative, zero or positive if the ID is less than, equal to or greater than the key
+             */
+            int compareSuffix(final byte[] key, final int shared, final int suffix)
+            {
+                final long start = mPosition;
+                mPosition += suffix;
+                final int length = shared + suffix;
+                final int limit = Math.min(length, key.length);
+                for (int i = shared; i < limit; ++i) {
+                    final int cmp = (mFile.get(start + i - shared) & 0xff) - (key[i] & 0xff);
+                    if (0 != cmp) {
+                        mMatched = i;
+                        return cmp;
+                    }
+                }
+                mMatched = limit;
+                return length - key.length;
+            }
+
+            /**
+             * Read the full first ID of a block, which is smaller than the key.
+             *
+             * @param key encoded key
+             * @return length of the common prefix of the ID and the key
+             */
+            int matchFull(final byte[] key)
+            {
+                compareSuffix(key, 0, readVarint());
+                return mMatched;
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory mapping of a whole file of any size.
+ * A single mapped buffer is limited to 2 GiB, so the file is mapped in consecutive segments
+ * of {@link #SEGMENT_SIZE} bytes that are addressed with 64-bit file positions. Values are
+ * stored in big-endian byte order. All accessors use absolute positions and do not change
+ * any buffer state, so that threads may access disjoint parts of the file concurrently. Atomic
+ * accessors allow threads and processes to share data in the file without locking.
+ * The mapping stays valid after the channel it was created from is closed.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class MappedFile
+{
+    /**
+     * Size of each mapped segment. Values aligned to their own size never cross a segment boundary.
+     */
+    static final long SEGMENT_SIZE = 1L << 30;
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final int SEGMENT_MASK = (int) SEGMENT_SIZE - 1;
+
+    private final MappedByteBuffer[] mSegments;
+    private final long mSize;
+
+    /**
+     * Map the first {@code size} bytes of a file.
+     *
+     * @param channel file channel, must be readable and, for {@link FileChannel.MapMode#READ_WRITE}, writable
+     * @param mode mapping mode
+     * @param size number of bytes to map, the file is extended if it is shorter
+     * @throws IOException if the file cannot be mapped
+     */
+    MappedFile(final FileChannel channel, final FileChannel.MapMode mode, final long size) throws IOException
+    {
+        mSize = size;
+        mSegments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+        for (int i = 0; i < mSegments.length; ++i) {
+            final long start = (long) i << SEGMENT_SHIFT;
+            mSegments[i] = channel.map(mode, start, Math.min(SEGMENT_SIZE, size - start));
+        }
+    }
+
+    /**
+     * @return number of mapped bytes
+     */
+    long size()
+    {
+        return mSize;
+    }
+
+    /**
+     * Read a long at an 8-byte aligned position.
+     *
+     * @param position file position
+     * @return value
+     */
+    long getLong(final long position)
+    {
+        return mSegments[(int) (position >>> SEGMENT_SHIFT)].getLong((int) position & SEGMENT_MASK);
+    }
+
+    /**
+     * Write a long at an 8-byte aligned position.
+     *
+     * @param position file position
+     * @param value value
+     */
+    void putLong(final long position, final long value)
+    {
+        mSegments[(int) (position >>> SEGMENT_SHIFT)].putLong((int) position & SEGMENT_MASK, value);
+    }
+
+    /**
+     * Read a byte.
+     *
+     * @param position file position
+     * @return value
+     */
+    byte get(final long position)
+    {
+        return mSegments[(int) (position >>> SEGMENT_SHIFT)].get((int) position & SEGMENT_MASK);
+    }
+
+    /**
+     * Read bytes at any position, which may span segments.
+     *
+     * @param position file position of the first byte
+     * @param dst destination array
+     * @param off offset in {@code dst}
+     * @param len number of bytes
+     */
+    void get(final long position, final byte[] dst, final int off, final int len)
+    {
+        long pos = position;
+        int done = 0;
+        while (done < len) {
+            final ByteBuffer segment = mSegments[(int) (pos >>> SEGMENT_SHIFT)].duplicate();
+            final int index = (int) pos & SEGMENT_MASK;
+            final int n = Math.min(len - done, segment.capacity() - index);
+            segment.position(index);
+            segment.get(dst, off + done, n);
+            done += n;
+            pos += n;
+        }
+    }
+
+    /**
+     * Read a long at an 8-byte aligned position with volatile semantics.
+     *
+     * @param position file position
+     * @return value
+     */
+    long getLongVolatile(final long position)
+    {
+        return AtomicBuffers.getLongVolatile(mSegments[(int) (position >>> SEGMENT_SHIFT)],
+                (int) position & SEGMENT_MASK);
+    }
+
+    /**
+     * Write a long at an 8-byte aligned position with volatile semantics.
+     * Plain writes before this one become visible to threads and processes that read this value.
+     *
+     * @param position file position
+     * @param value value
+     */
+    void putLongVolatile(final long position, final long value)
+    {
+        AtomicBuffers.putLongVolatile(mSegments[(int) (position >>> SEGMENT_SHIFT)],
+                (int) position & SEGMENT_MASK, value);
+    }
+
+    /**
+     * Atomically replace a long at an 8-byte aligned position if it has the expected value.
+     * The operation is atomic across all processes mapping the file.
+     *
+     * @param position file position
+     * @param expected expected current value
+     * @param value new value
+     * @return whether the value was replaced
+     */
+    boolean compareAndSetLong(final long position, final long expected, final long value)
+    {
+        return AtomicBuffers.compareAndSetLong(mSegments[(int) (position >>> SEGMENT_SHIFT)],
+                (int) position & SEGMENT_MASK, expected, value);
+    }
+
+    /**
+     * Flush changes to the storage device.
+     */
+    void force()
+    {
+        for (final MappedByteBuffer segment : mSegments) {
+            segment.force();
+        }
+    }
+}
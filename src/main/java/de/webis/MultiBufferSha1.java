@@ -0,0 +1,110 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+/**
+ * SHA-1 engine hashing several independent messages at once, one per SIMD lane.
+ * The input of all lanes is packed into one interleaved array of message words, in which
+ * word t of block b of lane l is stored at index {@code (b * 16 + t) * lanes + l}.
+ * All lanes of one call must consist of the same number of blocks and start from
+ * the same midstate, which is the case for IDs of the same prefix and similar length.
+ * Implementations are not thread-safe.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+abstract class MultiBufferSha1
+{
+    /**
+     * @return number of messages hashed per call
+     */
+    abstract int lanes();
+
+    /**
+     * Hash one message per lane and store the first 128 bits of each digest.
+     *
+     * @param state shared midstate (five words)
+     * @param words interleaved message words of all lanes, already padded
+     * @param blocks number of blocks per lane
+     * @param msb output array for the most significant 64 bits of each lane
+     * @param lsb output array for bits 64 to 127 of each lane
+     * @param off index in the output arrays for the first lane
+     */
+    abstract void digest(int[] state, int[] words, int blocks, long[] msb, long[] lsb, int off);
+
+    /**
+     * Number of blocks a message occupies after padding.
+     *
+     * @param length message length in bytes after the midstate
+     * @return number of blocks
+     */
+    static int blocks(final int length)
+    {
+        // message, 0x80 terminator and 64-bit length
+        return (length + 8) / Sha1.BLOCK_SIZE + 1;
+    }
+
+    /**
+     * Pack a padded message into the interleaved word array.
+     *
+     * @param data input buffer
+     * @param from offset of the first byte after the midstate
+     * @param to end offset (exclusive)
+     * @param stateBytes number of input bytes the midstate represents
+     * @param words interleaved message words
+     * @param lane lane to write
+     * @param lanes total number of lanes
+     */
+    static void pack(final byte[] data, final int from, final int to, final int stateBytes,
+                     final int[] words, final int lane, final int lanes)
+    {
+        final int length = to - from;
+        final int wordCount = blocks(length) * 16;
+        final int fullWords = length >>> 2;
+
+        int pos = from;
+        for (int t = 0; t < fullWords; ++t, pos += 4) {
+            words[t * lanes + lane] = (data[pos] << 24) | ((data[pos + 1] & 0xff) << 16)
+                    | ((data[pos + 2] & 0xff) << 8) | (data[pos + 3] & 0xff);
+        }
+        int word = 0;
+        for (int j = 0; j < 4; ++j, ++pos) {
+            word <<= 8;
+            if (pos < to) {
+                word |= data[pos] & 0xff;
+            } else if (pos == to) {
+                word |= 0x80;
+            }
+        }
+        words[fullWords * lanes + lane] = word;
+        for (int t = fullWords + 1; t < wordCount - 2; ++t) {
+            words[t * lanes + lane] = 0;
+        }
+
+        final long bitLength = ((long) stateBytes + length) << 3;
+        words[(wordCount - 2) * lanes + lane] = (int) (bitLength >>> 32);
+        words[(wordCount - 1) * lanes + lane] = (int) bitLength;
+    }
+}
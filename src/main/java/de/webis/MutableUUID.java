@@ -0,0 +1,119 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.util.UUID;
+
+/**
+ * Reusable holder for the 128 bits of a UUID.
+ * Allows generating UUIDs without allocating a {@link UUID} object per record.
+ * Instances are not thread-safe.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+public final class MutableUUID
+{
+    private long mMsb;
+    private long mLsb;
+
+    /**
+     * Create a holder for the nil UUID.
+     */
+    public MutableUUID()
+    {
+    }
+
+    /**
+     * Create a holder for the given UUID bits.
+     *
+     * @param msb most significant 64 bits
+     * @param lsb least significant 64 bits
+     */
+    public MutableUUID(final long msb, final long lsb)
+    {
+        mMsb = msb;
+        mLsb = lsb;
+    }
+
+    /**
+     * @return most significant 64 bits
+     */
+    public long getMostSignificantBits()
+    {
+        return mMsb;
+    }
+
+    /**
+     * @return least significant 64 bits
+     */
+    public long getLeastSignificantBits()
+    {
+        return mLsb;
+    }
+
+    /**
+     * Replace the held UUID bits.
+     *
+     * @param msb most significant 64 bits
+     * @param lsb least significant 64 bits
+     */
+    public void set(final long msb, final long lsb)
+    {
+        mMsb = msb;
+        mLsb = lsb;
+    }
+
+    /**
+     * @return new {@link UUID} with the held bits
+     */
+    public UUID toUUID()
+    {
+        return new UUID(mMsb, mLsb);
+    }
+
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (!(obj instanceof MutableUUID)) {
+            return false;
+        }
+        final MutableUUID other = (MutableUUID) obj;
+        return mMsb == other.mMsb && mLsb == other.mLsb;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        final long hilo = mMsb ^ mLsb;
+        return ((int) (hilo >> 32)) ^ (int) hilo;
+    }
+
+    @Override
+    public String toString()
+    {
+        return UUIDFormat.toString(mMsb, mLsb);
+    }
+}
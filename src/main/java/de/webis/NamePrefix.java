@@ -0,0 +1,140 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Precomputed hash input for a scheme prefix.
+ * Every name hashed for a prefix starts with the same bytes: the RFC 4122 URL namespace,
+ * the encoded prefix and a colon. These are encoded once and shared by all threads,
+ * so that only the record-specific internal ID has to be encoded per UUID. For the
+ * built-in SHA-1 engine, all full blocks of the head are compressed in advance as well.
+ * Instances are immutable.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class NamePrefix
+{
+    // RFC 4122 defines 6ba7b811-9dad-11d1-80b4-00c04fd430c8
+    private static final byte[] UUID_NAMESPACE_URL = { 107, -89, -72, 17, -99, -83, 17, -47, -128, -76, 0, -64, 79, -44, 48, -56 };
+
+    /**
+     * Maximum number of prefixes kept in the registry. Corpora only use a handful of
+     * prefixes, the bound merely protects against callers passing arbitrary strings.
+     */
+    private static final int MAX_REGISTRY_SIZE = 1024;
+
+    private static final ConcurrentMap<String, NamePrefix> REGISTRY = new ConcurrentHashMap<>();
+
+    /**
+     * The scheme prefix.
+     */
+    final String mPrefix;
+
+    /**
+     * Hash input preceding the internal ID: namespace || prefix || ':'.
+     */
+    final byte[] mHead;
+
+    /**
+     * SHA-1 midstate after compressing all full blocks of the head.
+     */
+    final int[] mState;
+
+    /**
+     * Number of head bytes represented by {@link #mState}.
+     */
+    final int mStateBytes;
+
+    /**
+     * Counter of the UUIDs generated for this prefix, null if metrics are disabled or not collected.
+     */
+    final LongAdder mCounter;
+
+    NamePrefix(final String prefix)
+    {
+        this(prefix, true);
+    }
+
+    /**
+     * @param prefix the scheme prefix
+     * @param counted whether UUIDs of this prefix are counted in the {@link UUIDMetrics}
+     */
+    NamePrefix(final String prefix, final boolean counted)
+    {
+        mPrefix = prefix;
+
+        final String head = prefix + ":";
+        final byte[] encoded = GeneratorContext.LEGACY_CHARSET
+                ? head.getBytes()
+                : head.getBytes(StandardCharsets.UTF_8);
+        mHead = new byte[UUID_NAMESPACE_URL.length + encoded.length];
+        System.arraycopy(UUID_NAMESPACE_URL, 0, mHead, 0, UUID_NAMESPACE_URL.length);
+        System.arraycopy(encoded, 0, mHead, UUID_NAMESPACE_URL.length, encoded.length);
+
+        final int blocks = mHead.length / Sha1.BLOCK_SIZE;
+        mState = Sha1.midstate(mHead, blocks);
+        mStateBytes = blocks * Sha1.BLOCK_SIZE;
+        mCounter = counted ? UUIDMetrics.prefixCounter(prefix) : null;
+    }
+
+    /**
+     * Look up the precomputed hash input for a prefix in the shared registry.
+     * Once the registry is full, new prefixes are computed on every call without being cached.
+     *
+     * @param prefix the scheme prefix
+     * @return precomputed prefix
+     */
+    static NamePrefix of(final String prefix)
+    {
+        NamePrefix namePrefix = REGISTRY.get(prefix);
+        FlightEvents.prefixLookup(null != namePrefix);
+        if (null != namePrefix) {
+            return namePrefix;
+        }
+
+        namePrefix = new NamePrefix(prefix);
+        if (REGISTRY.size() < MAX_REGISTRY_SIZE) {
+            final NamePrefix existing = REGISTRY.putIfAbsent(prefix, namePrefix);
+            if (null != existing) {
+                return existing;
+            }
+        }
+        return namePrefix;
+    }
+
+    /**
+     * @return number of prefixes in the shared registry
+     */
+    static int registrySize()
+    {
+        return REGISTRY.size();
+    }
+}
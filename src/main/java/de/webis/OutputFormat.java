@@ -0,0 +1,213 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Record formats for UUIDs generated by the command line tool.
+ * Records are written straight from the UUID bits and the encoded internal ID into a byte buffer,
+ * without creating intermediate objects.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+enum OutputFormat
+{
+    /**
+     * One UUID in canonical text form per line.
+     */
+    UUID(UUIDFormat.LENGTH + 1) {
+        @Override
+        int length(final ByteBuffer id, final int from, final int to)
+        {
+            return UUIDFormat.LENGTH + 1;
+        }
+
+        @Override
+        void write(final ByteBuffer id, final int from, final int to, final long msb, final long lsb,
+                   final ByteBuffer dst)
+        {
+            UUIDFormat.format(msb, lsb, dst);
+            dst.put((byte) '\n');
+        }
+    },
+
+    /**
+     * Tab-separated internal ID and UUID per line. Internal IDs are written unchanged,
+     * so they must not contain tabs themselves.
+     */
+    TSV(-1) {
+        @Override
+        int length(final ByteBuffer id, final int from, final int to)
+        {
+            return to - from + UUIDFormat.LENGTH + 2;
+        }
+
+        @Override
+        void write(final ByteBuffer id, final int from, final int to, final long msb, final long lsb,
+                   final ByteBuffer dst)
+        {
+            copy(id, from, to, dst);
+            dst.put((byte) '\t');
+            UUIDFormat.format(msb, lsb, dst);
+            dst.put((byte) '\n');
+        }
+    },
+
+    /**
+     * One JSON object {@code {"id":"...","uuid":"..."}} per line. Quotes, backslashes and control
+     * characters in internal IDs are escaped, all other bytes are written unchanged, so internal IDs
+     * are expected to be valid UTF-8.
+     */
+    JSONL(-1) {
+        @Override
+        int length(final ByteBuffer id, final int from, final int to)
+        {
+            int length = JSON_ID.length + JSON_UUID.length + UUIDFormat.LENGTH + JSON_END.length;
+            for (int i = from; i < to; ++i) {
+                final int b = id.get(i) & 0xff;
+                if ('"' == b || '\\' == b) {
+                    length += 2;
+                } else if (b < 0x20) {
+                    length += 6;
+                } else {
+                    ++length;
+                }
+            }
+            return length;
+        }
+
+        @Override
+        void write(final ByteBuffer id, final int from, final int to, final long msb, final long lsb,
+                   final ByteBuffer dst)
+        {
+            dst.put(JSON_ID);
+            for (int i = from; i < to; ++i) {
+                final byte b = id.get(i);
+                if ('"' == b || '\\' == b) {
+                    dst.put((byte) '\\').put(b);
+                } else if (b >= 0 && b < 0x20) {
+                    dst.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                            .put(HEX_DIGITS[b >>> 4]).put(HEX_DIGITS[b & 0xf]);
+                } else {
+                    dst.put(b);
+                }
+            }
+            dst.put(JSON_UUID);
+            UUIDFormat.format(msb, lsb, dst);
+            dst.put(JSON_END);
+        }
+    },
+
+    /**
+     * Fixed-size 16-byte records holding the big-endian UUID bits, without separators.
+     */
+    BINARY(UUIDBits.BYTES) {
+        @Override
+        int length(final ByteBuffer id, final int from, final int to)
+        {
+            return UUIDBits.BYTES;
+        }
+
+        @Override
+        void write(final ByteBuffer id, final int from, final int to, final long msb, final long lsb,
+                   final ByteBuffer dst)
+        {
+            UUIDBits.put(msb, lsb, dst);
+        }
+    };
+
+    private static final byte[] JSON_ID = { '{', '"', 'i', 'd', '"', ':', '"' };
+    private static final byte[] JSON_UUID = { '"', ',', '"', 'u', 'u', 'i', 'd', '"', ':', '"' };
+    private static final byte[] JSON_END = { '"', '}', '\n' };
+    private static final byte[] HEX_DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7',
+                                               '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+
+    /**
+     * Size of each record in bytes, -1 if it depends on the internal ID.
+     */
+    final int mFixedLength;
+
+    OutputFormat(final int fixedLength)
+    {
+        mFixedLength = fixedLength;
+    }
+
+    /**
+     * Compute the size of a record.
+     *
+     * @param id buffer holding the encoded internal ID
+     * @param from index of the first byte of the internal ID
+     * @param to end index of the internal ID (exclusive)
+     * @return record size in bytes
+     */
+    abstract int length(ByteBuffer id, int from, int to);
+
+    /**
+     * Write a record at the position of a buffer, which must have at least
+     * {@link #length(ByteBuffer, int, int)} bytes remaining. The position of {@code id} is not changed.
+     *
+     * @param id buffer holding the encoded internal ID
+     * @param from index of the first byte of the internal ID
+     * @param to end index of the internal ID (exclusive)
+     * @param msb most significant bits of the UUID
+     * @param lsb least significant bits of the UUID
+     * @param dst destination buffer
+     */
+    abstract void write(ByteBuffer id, int from, int to, long msb, long lsb, ByteBuffer dst);
+
+    /**
+     * Look up a format by its case-insensitive name.
+     *
+     * @param name format name
+     * @return format
+     * @throws IllegalArgumentException if there is no format with this name
+     */
+    static OutputFormat of(final String name)
+    {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Copy {@code src[from:to]} to the position of {@code dst} with a single bulk transfer.
+     *
+     * @param src source buffer, whose position and limit are restored afterwards
+     * @param from start index
+     * @param to end index (exclusive)
+     * @param dst destination buffer
+     */
+    private static void copy(final ByteBuffer src, final int from, final int to, final ByteBuffer dst)
+    {
+        final int position = src.position();
+        final int limit = src.limit();
+        src.limit(to);
+        src.position(from);
+        dst.put(src);
+        src.limit(limit);
+        src.position(position);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join task generating UUIDs for a range of internal IDs.
+ * Ranges are split in halves until they are small enough for a worker to process
+ * in a single batch loop. Each worker hashes with its own per-thread context and
+ * writes to a disjoint part of the output arrays, so workers share no mutable state.
+ * The encoded input size of each range is added up when its halves have been joined.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class ParallelGenerator extends RecursiveAction
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Smallest range that is split further. Large enough to amortize the task overhead.
+     */
+    private static final int MIN_SPLIT_SIZE = 1024;
+
+    private final NamePrefix mPrefix;
+    private final CharSequence[] mIds;
+    private final HashEngine mEngine;
+    private final long[] mMsb;
+    private final long[] mLsb;
+    private final int mFrom;
+    private final int mTo;
+    private final int mSplitSize;
+    private long mEncodedBytes;
+
+    /**
+     * @param prefix precomputed scheme prefix
+     * @param ids internal IDs
+     * @param engine SHA-1 engine
+     * @param msb output array for the most significant bits
+     * @param lsb output array for the least significant bits
+     * @param parallelism number of workers the input is distributed over
+     */
+    ParallelGenerator(final NamePrefix prefix, final CharSequence[] ids, final HashEngine engine,
+                      final long[] msb, final long[] lsb, final int parallelism)
+    {
+        // a few tasks per worker allow for balancing when workers progress at different speeds
+        this(prefix, ids, engine, msb, lsb, 0, ids.length,
+                Math.max(MIN_SPLIT_SIZE, ids.length / (Math.max(1, parallelism) * 4)));
+    }
+
+    private ParallelGenerator(final NamePrefix prefix, final CharSequence[] ids, final HashEngine engine,
+                              final long[] msb, final long[] lsb, final int from, final int to, final int splitSize)
+    {
+        mPrefix = prefix;
+        mIds = ids;
+        mEngine = engine;
+        mMsb = msb;
+        mLsb = lsb;
+        mFrom = from;
+        mTo = to;
+        mSplitSize = splitSize;
+    }
+
+    /**
+     * @return total size in bytes of the encoded internal IDs of this task's range, once the task has completed
+     */
+    long encodedBytes()
+    {
+        return mEncodedBytes;
+    }
+
+    @Override
+    protected void compute()
+    {
+        if (mTo - mFrom <= mSplitSize) {
+            final GeneratorContext context = WebisUUID.context();
+            final long bytes = context.mEncodedBytes;
+            final Object event = FlightEvents.beginBatch();
+            context.generate(mPrefix, mIds, mFrom, mTo, mEngine, mMsb, mLsb, mFrom);
+            mEncodedBytes = context.mEncodedBytes - bytes;
+            FlightEvents.commitBatch(event, mPrefix, "parallel-task", mEngine, mTo - mFrom, mEncodedBytes);
+            return;
+        }
+
+        final int mid = (mFrom + mTo) >>> 1;
+        final ParallelGenerator low = new ParallelGenerator(mPrefix, mIds, mEngine, mMsb, mLsb, mFrom, mid, mSplitSize);
+        final ParallelGenerator high = new ParallelGenerator(mPrefix, mIds, mEngine, mMsb, mLsb, mid, mTo, mSplitSize);
+        invokeAll(low, high);
+        mEncodedBytes = low.mEncodedBytes + high.mEncodedBytes;
+    }
+}
@@ -0,0 +1,526 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Index from UUIDs back to the internal IDs they were generated from. Version 5 UUIDs cannot be
+ * inverted, so the index stores all internal IDs of a corpus together with their UUIDs.
+ *
+ * <p>The index file holds an open-addressed hash table with linear probing, followed by a blob
+ * of the UTF-8 encoded internal IDs. Each table slot stores the 128-bit UUID and the position and
+ * length of its internal ID in the blob. UUIDs are uniformly distributed, so the slot of a UUID is
+ * derived from its bits directly. At a load factor of at most 0.75, a lookup reads a few consecutive
+ * slots and then the internal ID, which usually touches one page of the table and one page of the
+ * blob. The file is memory-mapped in segments, so that indexes of billions of entries are read
+ * without any heap objects besides the returned strings.</p>
+ *
+ * <p>Layout (big-endian):</p>
+ * <pre>
+ * offset  size  field
+ *      0     8  magic "WEBISRIX"
+ *      8     4  format version
+ *     12     4  header length h
+ *     16     8  number of entries
+ *     24     8  number of slots n
+ *     32     8  blob length
+ *     40     4  prefix length in bytes
+ *     44     p  UTF-8 encoded prefix, zero-padded to the header length
+ *      h  24*n  slots of most and least significant UUID bits and ID location (blob position &lt;&lt; 24 | length)
+ * h+24*n     b  blob of UTF-8 encoded internal IDs
+ * </pre>
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+public final class ReverseIndex
+{
+    /**
+     * Version of the file format written by this class.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Maximum length of an encoded internal ID in bytes.
+     */
+    public static final int MAX_ID_LENGTH = (1 << 24) - 1;
+
+    /**
+     * Maximum length of the blob of internal IDs in bytes.
+     */
+    public static final long MAX_BLOB_LENGTH = 1L << 40;
+
+    private static final byte[] MAGIC = { 'W', 'E', 'B', 'I', 'S', 'R', 'I', 'X' };
+
+    /**
+     * Size of the header without the prefix.
+     */
+    private static final int FIXED_HEADER_LENGTH = 44;
+
+    private static final int COUNT_POSITION = 16;
+    private static final int BLOB_LENGTH_POSITION = 32;
+    private static final int SLOT_SIZE = 24;
+    private static final int LENGTH_BITS = 24;
+
+    /**
+     * Maximum number of slots, so that the file length fits into a long with any header and blob length.
+     */
+    private static final long MAX_SLOTS = (Long.MAX_VALUE - Integer.MAX_VALUE - MAX_BLOB_LENGTH) / SLOT_SIZE;
+
+    private ReverseIndex()
+    {
+    }
+
+    /**
+     * Create an index file, overwriting any existing file. The table is sized for the expected number
+     * of internal IDs, which must not be exceeded.
+     *
+     * @param file file to create
+     * @param prefix scheme prefix of the UUIDs
+     * @param expectedCount maximum number of internal IDs
+     * @return builder for the index
+     * @throws IOException if the file cannot be created
+     */
+    public static Builder create(final Path file, final String prefix, final long expectedCount) throws IOException
+    {
+        if (expectedCount < 0 || expectedCount >= MAX_SLOTS / 4 * 3) {
+            throw new IllegalArgumentException("Invalid count: " + expectedCount);
+        }
+        final byte[] encodedPrefix = prefix.getBytes(StandardCharsets.UTF_8);
+        final int headerLength = (FIXED_HEADER_LENGTH + encodedPrefix.length + 7) & -8;
+        final long slots = expectedCount + expectedCount / 3 + 1;
+
+        final ByteBuffer header = ByteBuffer.allocate(headerLength);
+        header.put(MAGIC).putInt(VERSION).putInt(headerLength).putLong(0).putLong(slots).putLong(0)
+                .putInt(encodedPrefix.length).put(encodedPrefix);
+        header.clear();
+
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            final MappedFile mapped = new MappedFile(channel, FileChannel.MapMode.READ_WRITE,
+                    headerLength + slots * SLOT_SIZE);
+            return new Builder(channel, mapped, prefix, headerLength, slots, expectedCount);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Build an index file of a collection of internal IDs.
+     *
+     * @param file file to create
+     * @param prefix scheme prefix of the UUIDs
+     * @param ids internal IDs
+     * @throws IOException if the file cannot be written
+     */
+    public static void build(final Path file, final String prefix, final Collection<? extends CharSequence> ids)
+            throws IOException
+    {
+        try (Builder builder = create(file, prefix, ids.size())) {
+            for (final CharSequence id : ids) {
+                builder.add(id);
+            }
+        }
+    }
+
+    /**
+     * Open an existing index file for reading.
+     *
+     * @param file file to open
+     * @return reader for the index
+     * @throws IOException if the file cannot be read or is not an index file of a supported version
+     */
+    public static Reader open(final Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer fixed = read(channel, 0, FIXED_HEADER_LENGTH);
+            final byte[] magic = new byte[MAGIC.length];
+            fixed.get(magic);
+            for (int i = 0; i < MAGIC.length; ++i) {
+                if (MAGIC[i] != magic[i]) {
+                    throw new IOException("Not a reverse index file: " + file);
+                }
+            }
+            final int version = fixed.getInt();
+            if (VERSION != version) {
+                throw new IOException("Unsupported reverse index version " + version + ": " + file);
+            }
+            final int headerLength = fixed.getInt();
+            final long count = fixed.getLong();
+            final long slots = fixed.getLong();
+            final long blobLength = fixed.getLong();
+            final int prefixLength = fixed.getInt();
+            // the header fields are checked against the limits first, so that the file length cannot overflow
+            if (prefixLength < 0 || headerLength < FIXED_HEADER_LENGTH + (long) prefixLength
+                    || 0 != headerLength % 8 || slots < 1 || slots > MAX_SLOTS || count < 0 || count >= slots
+                    || blobLength < 0 || blobLength > MAX_BLOB_LENGTH
+                    || channel.size() < headerLength + slots * SLOT_SIZE + blobLength) {
+                throw new IOException("Corrupt reverse index header: " + file);
+            }
+            final ByteBuffer prefix = read(channel, FIXED_HEADER_LENGTH, prefixLength);
+            final MappedFile mapped = new MappedFile(channel, FileChannel.MapMode.READ_ONLY,
+                    headerLength + slots * SLOT_SIZE + blobLength);
+            return new Reader(mapped, new String(prefix.array(), StandardCharsets.UTF_8), headerLength, count, slots);
+        }
+    }
+
+    /**
+     * Read a part of a file completely.
+     *
+     * @param channel file channel
+     * @param position file position
+     * @param length number of bytes
+     * @return buffer holding the bytes, ready for reading
+     * @throws IOException if reading fails or the file is too short
+     */
+    private static ByteBuffer read(final FileChannel channel, final long position, final int length)
+            throws IOException
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of reverse index header");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Position of the first slot to probe for a UUID.
+     *
+     * @param lsb least significant bits of the UUID, whose low bits are uniformly distributed
+     * @param slots number of slots
+     * @return slot index
+     */
+    private static long home(final long lsb, final long slots)
+    {
+        return Long.remainderUnsigned(lsb, slots);
+    }
+
+    /**
+     * Builder of an index file. Builders are not thread-safe.
+     * The index is only valid after {@link #close()}.
+     */
+    public static final class Builder implements Closeable
+    {
+        private final FileChannel mChannel;
+        private final MappedFile mFile;
+        private final int mHeaderLength;
+        private final long mSlots;
+        private final long mMaxCount;
+        private final long mBlobStart;
+        private final WebisUUID mGenerator;
+        private final MutableUUID mUUID = new MutableUUID();
+        private final CharsetEncoder mEncoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer mBlobBuffer = ByteBuffer.allocateDirect(1 << 16);
+        private ByteBuffer mId = ByteBuffer.allocate(256);
+
+        private long mCount;
+        private long mBlobLength;
+        private long mBlobWritten;
+
+        Builder(final FileChannel channel, final MappedFile file, final String prefix, final int headerLength,
+                final long slots, final long maxCount)
+        {
+            mChannel = channel;
+            mFile = file;
+            mHeaderLength = headerLength;
+            mSlots = slots;
+            mMaxCount = maxCount;
+            mBlobStart = headerLength + slots * SLOT_SIZE;
+            mGenerator = new WebisUUID(prefix);
+        }
+
+        /**
+         * Add an internal ID to the index. Internal IDs that are already in the index are skipped.
+         *
+         * @param internalId internal ID
+         * @return whether the internal ID was added
+         * @throws IOException if writing fails
+         * @throws IllegalStateException if the index already holds the expected number of internal IDs
+         * @throws IllegalArgumentException if the internal ID is longer than {@link #MAX_ID_LENGTH}
+         */
+        public boolean add(final CharSequence internalId) throws IOException
+        {
+            mGenerator.generateUUID(internalId, mUUID);
+            final long msb = mUUID.getMostSignificantBits();
+            final long lsb = mUUID.getLeastSignificantBits();
+
+            long slot = home(lsb, mSlots);
+            long position = mHeaderLength + slot * SLOT_SIZE;
+            long existing;
+            while (0 != (existing = mFile.getLong(position))) {
+                if (msb == existing && lsb == mFile.getLong(position + 8)) {
+                    return false;
+                }
+                if (++slot == mSlots) {
+                    slot = 0;
+                }
+                position = mHeaderLength + slot * SLOT_SIZE;
+            }
+            if (mCount == mMaxCount) {
+                throw new IllegalStateException("Index already holds the expected number of IDs: " + mMaxCount);
+            }
+
+            final int length = encode(internalId);
+            if (length > MAX_ID_LENGTH) {
+                throw new IllegalArgumentException("Internal ID too long: " + length + " bytes");
+            }
+            if (mBlobLength + length > MAX_BLOB_LENGTH) {
+                throw new IllegalStateException("Internal IDs exceed the maximum blob length");
+            }
+            mFile.putLong(position + 8, lsb);
+            mFile.putLong(position + 16, mBlobLength << LENGTH_BITS | length);
+            mFile.putLong(position, msb);
+            appendBlob(length);
+            ++mCount;
+            return true;
+        }
+
+        /**
+         * @return number of internal IDs added
+         */
+        public long size()
+        {
+            return mCount;
+        }
+
+        /**
+         * Write the remaining internal IDs and the final header and close the file.
+         *
+         * @throws IOException if writing fails
+         */
+        @Override
+        public void close() throws IOException
+        {
+            try {
+                flushBlob();
+                mFile.putLong(COUNT_POSITION, mCount);
+                mFile.putLong(BLOB_LENGTH_POSITION, mBlobLength);
+                mFile.force();
+                mChannel.force(false);
+            } finally {
+                mChannel.close();
+            }
+        }
+
+        /**
+         * Encode an internal ID as UTF-8 into the ID buffer.
+         *
+         * @param internalId internal ID
+         * @return encoded length in bytes
+         */
+        private int encode(final CharSequence internalId)
+        {
+            final CharBuffer chars = CharBuffer.wrap(internalId);
+            mEncoder.reset();
+            mId.clear();
+            while (true) {
+                CoderResult result = mEncoder.encode(chars, mId, true);
+                if (!result.isOverflow()) {
+                    result = mEncoder.flush(mId);
+                }
+                if (!result.isOverflow()) {
+                    mId.flip();
+                    return mId.remaining();
+                }
+                final ByteBuffer grown = ByteBuffer.allocate(mId.capacity() * 2);
+                mId.flip();
+                mId = grown.put(mId);
+            }
+        }
+
+        /**
+         * Append the encoded internal ID in the ID buffer to the blob.
+         *
+         * @param length encoded length in bytes
+         * @throws IOException if writing fails
+         */
+        private void appendBlob(final int length) throws IOException
+        {
+            while (mId.hasRemaining()) {
+                if (!mBlobBuffer.hasRemaining()) {
+                    flushBlob();
+                }
+                final int n = Math.min(mId.remaining(), mBlobBuffer.remaining());
+                final int limit = mId.limit();
+                mId.limit(mId.position() + n);
+                mBlobBuffer.put(mId);
+                mId.limit(limit);
+            }
+            mBlobLength += length;
+        }
+
+        /**
+         * Write the blob buffer to the end of the file.
+         *
+         * @throws IOException if writing fails
+         */
+        private void flushBlob() throws IOException
+        {
+            mBlobBuffer.flip();
+            while (mBlobBuffer.hasRemaining()) {
+                mBlobWritten += mChannel.write(mBlobBuffer, mBlobStart + mBlobWritten);
+            }
+            mBlobBuffer.clear();
+        }
+    }
+
+    /**
+     * Reader for a memory-mapped index file. Reading is thread-safe.
+     */
+    public static final class Reader implements Closeable
+    {
+        private final MappedFile mFile;
+        private final String mPrefix;
+        private final int mHeaderLength;
+        private final long mCount;
+        private final long mSlots;
+        private final long mBlobStart;
+
+        Reader(final MappedFile file, final String prefix, final int headerLength, final long count,
+               final long slots)
+        {
+            mFile = file;
+            mPrefix = prefix;
+            mHeaderLength = headerLength;
+            mCount = count;
+            mSlots = slots;
+            mBlobStart = headerLength + slots * SLOT_SIZE;
+        }
+
+        /**
+         * @return scheme prefix of the UUIDs
+         */
+        public String getPrefix()
+        {
+            return mPrefix;
+        }
+
+        /**
+         * @return number of internal IDs
+         */
+        public long size()
+        {
+            return mCount;
+        }
+
+        /**
+         * Look up the internal ID of a UUID.
+         *
+         * @param uuid UUID
+         * @return internal ID, null if the UUID is not in the index
+         */
+        public String get(final UUID uuid)
+        {
+            return get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        }
+
+        /**
+         * Look up the internal ID of a UUID.
+         *
+         * @param msb most significant bits of the UUID
+         * @param lsb least significant bits of the UUID
+         * @return internal ID, null if the UUID is not in the index
+         */
+        public String get(final long msb, final long lsb)
+        {
+            final long location = find(msb, lsb);
+            if (-1 == location) {
+                return null;
+            }
+            final int length = (int) location & MAX_ID_LENGTH;
+            final byte[] id = new byte[length];
+            mFile.get(mBlobStart + (location >>> LENGTH_BITS), id, 0, length);
+            return new String(id, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @param uuid UUID
+         * @return whether the UUID is in the index
+         */
+        public boolean contains(final UUID uuid)
+        {
+            return -1 != find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        }
+
+        /**
+         * Find the slot of a UUID.
+         *
+         * @param msb most significant bits of the UUID
+         * @param lsb least significant bits of the UUID
+         * @return location of the internal ID in the blob, -1 if the UUID is not in the index
+         */
+        private long find(final long msb, final long lsb)
+        {
+            if (0 == msb) {
+                // marks empty slots, no version 5 UUID has all zero most significant bits
+                return -1;
+            }
+            long slot = home(lsb, mSlots);
+            long position = mHeaderLength + slot * SLOT_SIZE;
+            long existing;
+            while (0 != (existing = mFile.getLong(position))) {
+                if (msb == existing && lsb == mFile.getLong(position + 8)) {
+                    return mFile.getLong(position + 16);
+                }
+                if (++slot == mSlots) {
+                    slot = 0;
+                }
+                position = mHeaderLength + slot * SLOT_SIZE;
+            }
+            return -1;
+        }
+
+        /**
+         * Readers hold no resources besides the mapping, which is released once the reader is unreachable.
+         */
+        @Override
+        public void close()
+        {
+        }
+    }
+}
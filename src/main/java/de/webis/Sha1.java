@@ -0,0 +1,233 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+/**
+ * Built-in SHA-1 (FIPS 180-4) engine specialized for short names.
+ * The engine packs the input bytes straight into 16 message words, applies the padding
+ * while doing so and only keeps the first 128 bits of the result, which is all a
+ * version 5 UUID needs. Hashing may start from a precomputed midstate, so that blocks
+ * shared by all names of a prefix are compressed only once.
+ * Instances are not thread-safe.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class Sha1
+{
+    /**
+     * SHA-1 initial hash value.
+     */
+    static final int[] INITIAL_STATE = { 0x67452301, 0xefcdab89, 0x98badcfe, 0x10325476, 0xc3d2e1f0 };
+
+    /**
+     * SHA-1 block size in bytes.
+     */
+    static final int BLOCK_SIZE = 64;
+
+    private final int[] mWords = new int[80];
+
+    private int mH0;
+    private int mH1;
+    private int mH2;
+    private int mH3;
+    private int mH4;
+
+    /**
+     * Most significant 64 bits of the last digest.
+     */
+    long mMsb;
+
+    /**
+     * Bits 64 to 127 of the last digest.
+     */
+    long mLsb;
+
+    /**
+     * Hash {@code data[from:to]}, continuing from a midstate.
+     * The first 128 bits of the digest are stored in {@link #mMsb} and {@link #mLsb}.
+     *
+     * @param state midstate (five words) after {@code stateBytes} bytes of input
+     * @param stateBytes number of input bytes the midstate represents (multiple of the block size)
+     * @param data input buffer
+     * @param from offset of the first byte after the midstate
+     * @param to end offset (exclusive)
+     */
+    void digest(final int[] state, final int stateBytes, final byte[] data, final int from, final int to)
+    {
+        mH0 = state[0];
+        mH1 = state[1];
+        mH2 = state[2];
+        mH3 = state[3];
+        mH4 = state[4];
+
+        final int[] w = mWords;
+        int pos = from;
+        while (to - pos >= BLOCK_SIZE) {
+            for (int i = 0; i < 16; ++i, pos += 4) {
+                w[i] = (data[pos] << 24) | ((data[pos + 1] & 0xff) << 16)
+                        | ((data[pos + 2] & 0xff) << 8) | (data[pos + 3] & 0xff);
+            }
+            compress();
+        }
+
+        // final block(s): remaining bytes, 0x80 terminator, zero padding and bit length
+        final int remaining = to - pos;
+        final int fullWords = remaining >>> 2;
+        for (int i = 0; i < fullWords; ++i, pos += 4) {
+            w[i] = (data[pos] << 24) | ((data[pos + 1] & 0xff) << 16)
+                    | ((data[pos + 2] & 0xff) << 8) | (data[pos + 3] & 0xff);
+        }
+        int word = 0;
+        for (int j = 0; j < 4; ++j, ++pos) {
+            word <<= 8;
+            if (pos < to) {
+                word |= data[pos] & 0xff;
+            } else if (pos == to) {
+                word |= 0x80;
+            }
+        }
+        w[fullWords] = word;
+        for (int i = fullWords + 1; i < 16; ++i) {
+            w[i] = 0;
+        }
+
+        if (remaining >= BLOCK_SIZE - 8) {
+            compress();
+            for (int i = 0; i < 14; ++i) {
+                w[i] = 0;
+            }
+        }
+        final long bitLength = ((long) stateBytes + (to - from)) << 3;
+        w[14] = (int) (bitLength >>> 32);
+        w[15] = (int) bitLength;
+        compress();
+
+        mMsb = ((long) mH0 << 32) | (mH1 & 0xffffffffL);
+        mLsb = ((long) mH2 << 32) | (mH3 & 0xffffffffL);
+    }
+
+    /**
+     * Compute the midstate after compressing the first {@code blocks} full blocks of {@code data}.
+     *
+     * @param data input buffer
+     * @param blocks number of blocks to compress
+     * @return five state words
+     */
+    static int[] midstate(final byte[] data, final int blocks)
+    {
+        final Sha1 sha1 = new Sha1();
+        sha1.mH0 = INITIAL_STATE[0];
+        sha1.mH1 = INITIAL_STATE[1];
+        sha1.mH2 = INITIAL_STATE[2];
+        sha1.mH3 = INITIAL_STATE[3];
+        sha1.mH4 = INITIAL_STATE[4];
+
+        int pos = 0;
+        for (int b = 0; b < blocks; ++b) {
+            for (int i = 0; i < 16; ++i, pos += 4) {
+                sha1.mWords[i] = (data[pos] << 24) | ((data[pos + 1] & 0xff) << 16)
+                        | ((data[pos + 2] & 0xff) << 8) | (data[pos + 3] & 0xff);
+            }
+            sha1.compress();
+        }
+        return new int[] { sha1.mH0, sha1.mH1, sha1.mH2, sha1.mH3, sha1.mH4 };
+    }
+
+    /**
+     * Apply the SHA-1 compression function to the current message words.
+     * The rounds are unrolled by five, so that the working variables rotate
+     * through their roles instead of being shifted each round.
+     */
+    private void compress()
+    {
+        final int[] w = mWords;
+        for (int i = 16; i < 80; ++i) {
+            final int x = w[i - 3] ^ w[i - 8] ^ w[i - 14] ^ w[i - 16];
+            w[i] = (x << 1) | (x >>> 31);
+        }
+
+        int a = mH0;
+        int b = mH1;
+        int c = mH2;
+        int d = mH3;
+        int e = mH4;
+
+        for (int i = 0; i < 20; i += 5) {
+            e += ((a << 5) | (a >>> 27)) + ((b & c) | (~b & d)) + w[i] + 0x5a827999;
+            b = (b << 30) | (b >>> 2);
+            d += ((e << 5) | (e >>> 27)) + ((a & b) | (~a & c)) + w[i + 1] + 0x5a827999;
+            a = (a << 30) | (a >>> 2);
+            c += ((d << 5) | (d >>> 27)) + ((e & a) | (~e & b)) + w[i + 2] + 0x5a827999;
+            e = (e << 30) | (e >>> 2);
+            b += ((c << 5) | (c >>> 27)) + ((d & e) | (~d & a)) + w[i + 3] + 0x5a827999;
+            d = (d << 30) | (d >>> 2);
+            a += ((b << 5) | (b >>> 27)) + ((c & d) | (~c & e)) + w[i + 4] + 0x5a827999;
+            c = (c << 30) | (c >>> 2);
+        }
+        for (int i = 20; i < 40; i += 5) {
+            e += ((a << 5) | (a >>> 27)) + (b ^ c ^ d) + w[i] + 0x6ed9eba1;
+            b = (b << 30) | (b >>> 2);
+            d += ((e << 5) | (e >>> 27)) + (a ^ b ^ c) + w[i + 1] + 0x6ed9eba1;
+            a = (a << 30) | (a >>> 2);
+            c += ((d << 5) | (d >>> 27)) + (e ^ a ^ b) + w[i + 2] + 0x6ed9eba1;
+            e = (e << 30) | (e >>> 2);
+            b += ((c << 5) | (c >>> 27)) + (d ^ e ^ a) + w[i + 3] + 0x6ed9eba1;
+            d = (d << 30) | (d >>> 2);
+            a += ((b << 5) | (b >>> 27)) + (c ^ d ^ e) + w[i + 4] + 0x6ed9eba1;
+            c = (c << 30) | (c >>> 2);
+        }
+        for (int i = 40; i < 60; i += 5) {
+            e += ((a << 5) | (a >>> 27)) + ((b & c) | (b & d) | (c & d)) + w[i] + 0x8f1bbcdc;
+            b = (b << 30) | (b >>> 2);
+            d += ((e << 5) | (e >>> 27)) + ((a & b) | (a & c) | (b & c)) + w[i + 1] + 0x8f1bbcdc;
+            a = (a << 30) | (a >>> 2);
+            c += ((d << 5) | (d >>> 27)) + ((e & a) | (e & b) | (a & b)) + w[i + 2] + 0x8f1bbcdc;
+            e = (e << 30) | (e >>> 2);
+            b += ((c << 5) | (c >>> 27)) + ((d & e) | (d & a) | (e & a)) + w[i + 3] + 0x8f1bbcdc;
+            d = (d << 30) | (d >>> 2);
+            a += ((b << 5) | (b >>> 27)) + ((c & d) | (c & e) | (d & e)) + w[i + 4] + 0x8f1bbcdc;
+            c = (c << 30) | (c >>> 2);
+        }
+        for (int i = 60; i < 80; i += 5) {
+            e += ((a << 5) | (a >>> 27)) + (b ^ c ^ d) + w[i] + 0xca62c1d6;
+            b = (b << 30) | (b >>> 2);
+            d += ((e << 5) | (e >>> 27)) + (a ^ b ^ c) + w[i + 1] + 0xca62c1d6;
+            a = (a << 30) | (a >>> 2);
+            c += ((d << 5) | (d >>> 27)) + (e ^ a ^ b) + w[i + 2] + 0xca62c1d6;
+            e = (e << 30) | (e >>> 2);
+            b += ((c << 5) | (c >>> 27)) + (d ^ e ^ a) + w[i + 3] + 0xca62c1d6;
+            d = (d << 30) | (d >>> 2);
+            a += ((b << 5) | (b >>> 27)) + (c ^ d ^ e) + w[i + 4] + 0xca62c1d6;
+            c = (c << 30) | (c >>> 2);
+        }
+
+        mH0 += a;
+        mH1 += b;
+        mH2 += c;
+        mH3 += d;
+        mH4 += e;
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * UUID cache in a memory-mapped file that is shared by all processes on a host opening the same file,
+ * so that each internal ID is hashed once per host instead of once per JVM. A shared cache is passed to
+ * {@link WebisUUID#WebisUUID(String, HashEngine, UUIDCache, SharedUUIDCache)} and is consulted after
+ * the (optional) in-heap {@link UUIDCache}.
+ *
+ * <p>The file holds a fixed-size, open-addressed hash table with linear probing. Each slot stores a
+ * 128-bit fingerprint of the name prefix:internalId and the UUID. Fingerprints are MurmurHash3 hashes,
+ * which are much cheaper than SHA-1, and are long enough to make false hits practically impossible.
+ * Entries are never removed, so once the table is full, new UUIDs are no longer cached.</p>
+ *
+ * <p>Processes insert without locking: a slot is claimed by atomically replacing its empty first word
+ * with a marker, the rest of the slot is written and the first word is finally set to the first half
+ * of the fingerprint, which publishes the slot to readers. Slots claimed by a process that died before
+ * publishing stay unused. Concurrent insertions of the same name may store it twice.</p>
+ *
+ * <p>Shared caches require Java 11 or newer, which provides atomic access to mapped files. On Java 8,
+ * {@link #open(Path, long)} throws an {@link UnsupportedOperationException}, which callers that should
+ * also run on Java 8 can avoid by checking {@link #isSupported()} first.</p>
+ *
+ * <p>File layout (big-endian):</p>
+ * <pre>
+ * offset  size  field
+ *      0     8  magic "WEBISUSC"
+ *      8     4  format version
+ *     16     8  number of slots (power of two)
+ *     24     8  number of entries
+ *     64  32*n  slots of fingerprint (16 bytes), most and least significant UUID bits (8 bytes each)
+ * </pre>
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+public final class SharedUUIDCache
+{
+    /**
+     * Version of the file format written by this class.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Maximum number of slots probed for a name. Lookups touch at most two pages of the table.
+     */
+    static final int MAX_PROBES = 32;
+
+    /**
+     * Maximum number of slots, so that the table size fits into a long.
+     */
+    private static final long MAX_SLOTS = 1L << 57;
+
+    private static final long MAGIC = 0x5745424953555343L;
+    private static final int HEADER_LENGTH = 64;
+    private static final int SIZE_POSITION = 24;
+    private static final int SLOT_SHIFT = 5;
+
+    /**
+     * Values of the first word of a slot that are not fingerprints.
+     */
+    private static final long EMPTY = 0;
+    private static final long CLAIMED = 1;
+
+    private final MappedFile mFile;
+    private final long mMask;
+
+    private final LongAdder mHits = new LongAdder();
+    private final LongAdder mMisses = new LongAdder();
+
+    private SharedUUIDCache(final MappedFile file, final long slots)
+    {
+        mFile = file;
+        mMask = slots - 1;
+    }
+
+    /**
+     * Open a shared cache file, creating it if it does not exist. Creation is synchronized between
+     * processes with a file lock, so that all of them may open the file at the same time.
+     *
+     * @param file cache file, which should be on a memory-backed or local file system
+     * @param slots number of slots of a new file, rounded up to a power of two. Ignored if the file exists.
+     * @return shared cache
+     * @throws IOException if the file cannot be created or is not a cache file of a supported version
+     * @throws UnsupportedOperationException if shared caches are not supported by this JVM, see {@link #isSupported()}
+     */
+    public static SharedUUIDCache open(final Path file, final long slots) throws IOException
+    {
+        if (slots < 1 || slots > MAX_SLOTS) {
+            throw new IllegalArgumentException("Invalid number of slots: " + slots);
+        }
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Shared UUID caches require Java 11 or newer");
+        }
+        final long tableSlots = 1 == slots ? 1 : Long.highestOneBit(slots - 1) << 1;
+
+        // file locks are held by the whole JVM, so openings within one JVM must not overlap
+        synchronized (SharedUUIDCache.class) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE)) {
+                // released when the channel is closed
+                channel.lock();
+                if (0 == channel.size()) {
+                    final MappedFile mapped = new MappedFile(channel, FileChannel.MapMode.READ_WRITE,
+                            HEADER_LENGTH + (tableSlots << SLOT_SHIFT));
+                    mapped.putLong(16, tableSlots);
+                    mapped.putLong(8, (long) VERSION << 32);
+                    mapped.putLongVolatile(0, MAGIC);
+                    return new SharedUUIDCache(mapped, tableSlots);
+                }
+
+                final ByteBuffer header = ByteBuffer.allocate(24);
+                while (header.hasRemaining()) {
+                    if (channel.read(header, header.position()) < 0) {
+                        throw new IOException("Corrupt shared UUID cache header: " + file);
+                    }
+                }
+                header.flip();
+                if (MAGIC != header.getLong()) {
+                    throw new IOException("Not a shared UUID cache: " + file);
+                }
+                final int version = header.getInt();
+                if (VERSION != version) {
+                    throw new IOException("Unsupported shared UUID cache version " + version + ": " + file);
+                }
+                header.getInt();
+                final long existingSlots = header.getLong();
+                if (existingSlots < 1 || existingSlots > MAX_SLOTS || 0 != (existingSlots & (existingSlots - 1))
+                        || channel.size() < HEADER_LENGTH + (existingSlots << SLOT_SHIFT)) {
+                    throw new IOException("Corrupt shared UUID cache header: " + file);
+                }
+                return new SharedUUIDCache(new MappedFile(channel, FileChannel.MapMode.READ_WRITE,
+                        HEADER_LENGTH + (existingSlots << SLOT_SHIFT)), existingSlots);
+            }
+        }
+    }
+
+    /**
+     * Look up the UUID of an internal ID. The fingerprint of the name is computed into the context,
+     * where {@link #put(GeneratorContext)} expects it after a miss. On a hit, the UUID is stored in the
+     * {@link GeneratorContext#mMsb} and {@link GeneratorContext#mLsb} fields of the context.
+     *
+     * @param prefix scheme prefix
+     * @param internalId internal ID
+     * @param context context of the calling thread
+     * @return whether the UUID was found
+     */
+    boolean get(final NamePrefix prefix, final CharSequence internalId, final GeneratorContext context)
+    {
+        context.fingerprint(prefix, internalId);
+        final long high = tag(context.mFingerprintHigh);
+        final long low = context.mFingerprintLow;
+
+        long slot = low & mMask;
+        for (int n = 0; n < MAX_PROBES; ++n, slot = (slot + 1) & mMask) {
+            final long position = HEADER_LENGTH + (slot << SLOT_SHIFT);
+            final long first = mFile.getLongVolatile(position);
+            if (EMPTY == first) {
+                break;
+            }
+            if (high == first && low == mFile.getLong(position + 8)) {
+                context.mMsb = mFile.getLong(position + 16);
+                context.mLsb = mFile.getLong(position + 24);
+                mHits.increment();
+                FlightEvents.cacheLookup(true);
+                return true;
+            }
+        }
+        mMisses.increment();
+        FlightEvents.cacheLookup(false);
+        return false;
+    }
+
+    /**
+     * Insert the UUID generated after a missed {@link #get(NamePrefix, CharSequence, GeneratorContext)}.
+     * The fingerprint and the UUID are taken from the context.
+     *
+     * @param context context of the calling thread
+     */
+    void put(final GeneratorContext context)
+    {
+        final long high = tag(context.mFingerprintHigh);
+        final long low = context.mFingerprintLow;
+
+        long slot = low & mMask;
+        for (int n = 0; n < MAX_PROBES; ++n, slot = (slot + 1) & mMask) {
+            final long position = HEADER_LENGTH + (slot << SLOT_SHIFT);
+            long first = mFile.getLongVolatile(position);
+            if (EMPTY == first) {
+                if (mFile.compareAndSetLong(position, EMPTY, CLAIMED)) {
+                    mFile.putLong(position + 8, low);
+                    mFile.putLong(position + 16, context.mMsb);
+                    mFile.putLong(position + 24, context.mLsb);
+                    mFile.putLongVolatile(position, high);
+                    incrementSize();
+                    return;
+                }
+                first = mFile.getLongVolatile(position);
+            }
+            if (high == first && low == mFile.getLong(position + 8)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return whether this JVM supports shared caches, which requires Java 11 or newer
+     */
+    public static boolean isSupported()
+    {
+        return AtomicBuffers.isAvailable();
+    }
+
+    /**
+     * @return number of slots
+     */
+    public long capacity()
+    {
+        return mMask + 1;
+    }
+
+    /**
+     * @return number of entries inserted by all processes
+     */
+    public long size()
+    {
+        return mFile.getLongVolatile(SIZE_POSITION);
+    }
+
+    /**
+     * @return number of lookups of this process that found the UUID
+     */
+    public long getHitCount()
+    {
+        return mHits.sum();
+    }
+
+    /**
+     * @return number of lookups of this process that did not find the UUID
+     */
+    public long getMissCount()
+    {
+        return mMisses.sum();
+    }
+
+    /**
+     * @return fraction of lookups of this process that found the UUID, 0 if there were no lookups
+     */
+    public double getHitRate()
+    {
+        final long hits = mHits.sum();
+        final long lookups = hits + mMisses.sum();
+        return 0 == lookups ? 0.0 : (double) hits / lookups;
+    }
+
+    /**
+     * Map the first half of a fingerprint to a value that is neither {@link #EMPTY} nor {@link #CLAIMED}.
+     *
+     * @param high first half of a fingerprint
+     * @return first word of the slot
+     */
+    private static long tag(final long high)
+    {
+        return EMPTY == high || CLAIMED == high ? high + 2 : high;
+    }
+
+    private void incrementSize()
+    {
+        long size;
+        do {
+            size = mFile.getLongVolatile(SIZE_POSITION);
+        } while (!mFile.compareAndSetLong(SIZE_POSITION, size, size + 1));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Generates UUIDs for a stream of newline-separated internal IDs.
+ * Input and output are processed in large byte buffers, IDs are hashed directly from the
+ * input buffer and records are written directly into the output buffer, so that no objects
+ * are created per line. One record is written per input line, including empty lines.
+ * A trailing carriage return is stripped from every line.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class StreamGenerator
+{
+    /**
+     * Initial size of the input and output buffers.
+     */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private final WebisUUID mGenerator;
+    private final OutputFormat mFormat;
+    private final MutableUUID mUUID = new MutableUUID();
+
+    private byte[] mIn = new byte[BUFFER_SIZE];
+    private ByteBuffer mInBuffer = ByteBuffer.wrap(mIn);
+    private ByteBuffer mOut = ByteBuffer.allocate(BUFFER_SIZE);
+    private int mBufferedRecords;
+
+    /**
+     * @param generator generator with the prefix to use
+     * @param format output record format
+     */
+    StreamGenerator(final WebisUUID generator, final OutputFormat format)
+    {
+        mGenerator = generator;
+        mFormat = format;
+    }
+
+    /**
+     * Generate UUIDs for all lines of an input stream. The output stream is flushed, but not closed.
+     *
+     * @param in input stream of newline-separated internal IDs
+     * @param out output stream for the records
+     * @return number of processed lines
+     * @throws IOException if reading or writing fails
+     */
+    long run(final InputStream in, final OutputStream out) throws IOException
+    {
+        long lines = 0;
+        int start = 0;
+        int end = 0;
+        while (true) {
+            // make room for more input, keeping the incomplete last line
+            if (end == mIn.length) {
+                if (0 == start) {
+                    final byte[] grown = new byte[mIn.length * 2];
+                    System.arraycopy(mIn, 0, grown, 0, end);
+                    mIn = grown;
+                    mInBuffer = ByteBuffer.wrap(mIn);
+                } else {
+                    System.arraycopy(mIn, start, mIn, 0, end - start);
+                    end -= start;
+                    start = 0;
+                }
+            }
+
+            final Object readEvent = FlightEvents.beginStage();
+            final int read = in.read(mIn, end, mIn.length - end);
+            FlightEvents.commitStage(readEvent, FlightEvents.STAGE_READ, 0, Math.max(read, 0));
+            if (read < 0) {
+                break;
+            }
+
+            final Object hashEvent = FlightEvents.beginStage();
+            final long linesBefore = lines;
+            final int scanFrom = end;
+            end += read;
+            for (int i = scanFrom; i < end; ++i) {
+                if ('\n' == mIn[i]) {
+                    line(start, i, out);
+                    ++lines;
+                    start = i + 1;
+                }
+            }
+            FlightEvents.commitStage(hashEvent, FlightEvents.STAGE_HASH, lines - linesBefore, read);
+        }
+
+        if (start < end) {
+            line(start, end, out);
+            ++lines;
+        }
+        flush(out);
+        return lines;
+    }
+
+    /**
+     * Generate and buffer the record for one line of the input buffer.
+     *
+     * @param from start offset of the line
+     * @param to end offset of the line, excluding the newline
+     * @param out output stream, written to when the output buffer is full
+     * @throws IOException if writing fails
+     */
+    private void line(final int from, final int to, final OutputStream out) throws IOException
+    {
+        final int end = (to > from && '\r' == mIn[to - 1]) ? to - 1 : to;
+        mGenerator.generateUUID(mIn, from, end - from, mUUID);
+
+        final int length = mFormat.length(mInBuffer, from, end);
+        if (length > mOut.remaining()) {
+            flush(out);
+            if (length > mOut.capacity()) {
+                mOut = ByteBuffer.allocate(Math.max(length, mOut.capacity() * 2));
+            }
+        }
+        mFormat.write(mInBuffer, from, end,
+                mUUID.getMostSignificantBits(), mUUID.getLeastSignificantBits(), mOut);
+        ++mBufferedRecords;
+    }
+
+    /**
+     * Write out and flush the output buffer.
+     *
+     * @param out output stream
+     * @throws IOException if writing fails
+     */
+    private void flush(final OutputStream out) throws IOException
+    {
+        final Object event = FlightEvents.beginStage();
+        out.write(mOut.array(), 0, mOut.position());
+        out.flush();
+        FlightEvents.commitStage(event, FlightEvents.STAGE_WRITE, mBufferedRecords, mOut.position());
+        mBufferedRecords = 0;
+        mOut.clear();
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Reusable struct-of-arrays container for the results of batch UUID generation.
+ * The UUID of the i-th record is stored in the parallel arrays returned by
+ * {@link #mostSignificantBits()} and {@link #leastSignificantBits()} at index i.
+ * The arrays grow as needed and are kept across batches, so that generating batches
+ * of similar size does not allocate. Instances are not thread-safe.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+public final class UUIDBatch
+{
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private long[] mMsb;
+    private long[] mLsb;
+    private int mSize;
+
+    /**
+     * Create an empty batch with a default initial capacity.
+     */
+    public UUIDBatch()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty batch.
+     *
+     * @param capacity initial capacity in records
+     */
+    public UUIDBatch(final int capacity)
+    {
+        mMsb = new long[capacity];
+        mLsb = new long[capacity];
+    }
+
+    /**
+     * @return number of UUIDs in this batch
+     */
+    public int size()
+    {
+        return mSize;
+    }
+
+    /**
+     * @return number of UUIDs this batch can hold without growing
+     */
+    public int capacity()
+    {
+        return mMsb.length;
+    }
+
+    /**
+     * Backing array of the most significant bits. Only the first {@link #size()} entries are valid.
+     * The array is replaced when the batch grows, so it should not be held across batches.
+     *
+     * @return most significant bits of all UUIDs
+     */
+    public long[] mostSignificantBits()
+    {
+        return mMsb;
+    }
+
+    /**
+     * Backing array of the least significant bits. Only the first {@link #size()} entries are valid.
+     * The array is replaced when the batch grows, so it should not be held across batches.
+     *
+     * @return least significant bits of all UUIDs
+     */
+    public long[] leastSignificantBits()
+    {
+        return mLsb;
+    }
+
+    /**
+     * @param index record index
+     * @return new {@link UUID} of the record at {@code index}
+     */
+    public UUID get(final int index)
+    {
+        checkIndex(index);
+        return new UUID(mMsb[index], mLsb[index]);
+    }
+
+    /**
+     * Copy the UUID of a record into a reusable holder.
+     *
+     * @param index record index
+     * @param out holder receiving the UUID bits
+     */
+    public void get(final int index, final MutableUUID out)
+    {
+        checkIndex(index);
+        out.set(mMsb[index], mLsb[index]);
+    }
+
+    /**
+     * Remove all UUIDs, keeping the allocated capacity.
+     */
+    public void clear()
+    {
+        mSize = 0;
+    }
+
+    /**
+     * Make sure the batch can hold at least {@code capacity} records, keeping its contents.
+     *
+     * @param capacity minimum capacity in records
+     */
+    public void ensureCapacity(final int capacity)
+    {
+        if (capacity > mMsb.length) {
+            final int grown = Math.max(capacity, mMsb.length + (mMsb.length >> 1) + 1);
+            mMsb = Arrays.copyOf(mMsb, grown);
+            mLsb = Arrays.copyOf(mLsb, grown);
+        }
+    }
+
+    /**
+     * Set the number of valid records after the backing arrays have been filled directly.
+     *
+     * @param size number of records
+     */
+    void setSize(final int size)
+    {
+        mSize = size;
+    }
+
+    /**
+     * Append a UUID, growing the batch as needed.
+     *
+     * @param msb most significant 64 bits
+     * @param lsb least significant 64 bits
+     */
+    void add(final long msb, final long lsb)
+    {
+        if (mSize == mMsb.length) {
+            ensureCapacity(mSize + 1);
+        }
+        mMsb[mSize] = msb;
+        mLsb[mSize] = lsb;
+        ++mSize;
+    }
+
+    private void checkIndex(final int index)
+    {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + mSize);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Helpers for storing the 128 bits of a UUID in primitive buffers.
+ * UUIDs are always stored in big-endian (network) byte order, as defined by RFC 4122.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class UUIDBits
+{
+    /**
+     * Size of a binary UUID in bytes.
+     */
+    static final int BYTES = 16;
+
+    private UUIDBits()
+    {
+    }
+
+    /**
+     * Store UUID bits in a byte array.
+     *
+     * @param msb most significant 64 bits
+     * @param lsb least significant 64 bits
+     * @param dst destination array
+     * @param off offset of the first of the 16 bytes to write
+     */
+    static void put(final long msb, final long lsb, final byte[] dst, final int off)
+    {
+        if (off < 0 || off > dst.length - BYTES) {
+            throw new IndexOutOfBoundsException("offset: " + off + ", length: " + dst.length);
+        }
+        for (int i = 0; i < 8; ++i) {
+            dst[off + i] = (byte) (msb >>> (56 - (i << 3)));
+            dst[off + 8 + i] = (byte) (lsb >>> (56 - (i << 3)));
+        }
+    }
+
+    /**
+     * Store UUID bits at the current position of a byte buffer and advance its position by 16.
+     * The bytes are written in big-endian order regardless of the buffer's byte order.
+     *
+     * @param msb most significant 64 bits
+     * @param lsb least significant 64 bits
+     * @param dst destination buffer
+     * @throws BufferOverflowException if fewer than 16 bytes remain in the buffer
+     */
+    static void put(final long msb, final long lsb, final ByteBuffer dst)
+    {
+        if (dst.remaining() < BYTES) {
+            throw new BufferOverflowException();
+        }
+        if (ByteOrder.BIG_ENDIAN == dst.order()) {
+            dst.putLong(msb).putLong(lsb);
+        } else {
+            dst.putLong(Long.reverseBytes(msb)).putLong(Long.reverseBytes(lsb));
+        }
+    }
+}
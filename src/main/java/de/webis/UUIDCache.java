@@ -0,0 +1,348 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of generated UUIDs for workloads that hash the same internal IDs over and over,
+ * e.g. popular link targets. A cache is passed to {@link WebisUUID#WebisUUID(String, HashEngine, UUIDCache)}
+ * and is consulted by all instance methods generating a single UUID from a {@link CharSequence}.
+ * On a hit, SHA-1 is skipped entirely. A cache can be shared by generators of different prefixes.
+ * The static methods of {@link WebisUUID}, batch methods and methods for encoded internal IDs never
+ * use a cache, callers who want caching have to generate UUIDs with a generator instance.
+ *
+ * <p>Entries are kept in a fixed table of buckets with {@link #WAYS} slots each. An entry stores the
+ * prefix, the internal ID and the two longs of the UUID, but no {@link java.util.UUID} object.
+ * Lookups read the slots of one bucket without locking. New entries claim a slot with
+ * compare-and-set and, if the bucket is full, replace an entry chosen by the CLOCK policy: every
+ * hit marks an entry as referenced and the bucket's clock hand skips (and clears) referenced
+ * entries. Frequently used IDs therefore stay in the cache while one-off IDs are evicted first.</p>
+ *
+ * <p>String internal IDs are stored by reference, other character sequences are copied to
+ * a string when they are inserted. All methods are thread-safe.</p>
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+public final class UUIDCache
+{
+    /**
+     * Number of slots per bucket.
+     */
+    public static final int WAYS = 8;
+
+    /**
+     * Array header size on a 64-bit JVM with compressed references, the default for heaps below 32 GB.
+     * The other sizes below assume the same layout: 12-byte object headers, 4-byte references and
+     * objects aligned to 8 bytes.
+     */
+    private static final int ARRAY_HEADER = 16;
+
+    /**
+     * Size of a table slot.
+     */
+    private static final int REFERENCE_SIZE = 4;
+
+    /**
+     * Size of an {@link Entry}: header, hash, two references, two longs and the reference bit.
+     */
+    private static final int ENTRY_SIZE = 48;
+
+    /**
+     * Size of a string without its value array, the same on Java 8 and newer.
+     */
+    private static final int STRING_SIZE = 24;
+
+    /**
+     * Bytes per character in the value array of a string: two for the char arrays of Java 8,
+     * one for the compact Latin-1 strings of Java 9 and newer.
+     */
+    private static final int CHAR_SIZE = System.getProperty("java.specification.version").startsWith("1.") ? 2 : 1;
+
+    private final AtomicReferenceArray<Entry> mSlots;
+    private final byte[] mHands;
+    private final int mBuckets;
+
+    private final LongAdder mHits = new LongAdder();
+    private final LongAdder mMisses = new LongAdder();
+    private final LongAdder mEvictions = new LongAdder();
+    private final LongAdder mSize = new LongAdder();
+
+    /**
+     * Create a cache holding at most {@code maxEntries} UUIDs.
+     *
+     * @param maxEntries maximum number of entries, at least {@link #WAYS}
+     */
+    public UUIDCache(final int maxEntries)
+    {
+        if (maxEntries < WAYS) {
+            throw new IllegalArgumentException("Cache must hold at least " + WAYS + " entries");
+        }
+        mBuckets = maxEntries / WAYS;
+        mSlots = new AtomicReferenceArray<>(mBuckets * WAYS);
+        mHands = new byte[mBuckets];
+    }
+
+    /**
+     * Create a cache that takes up about {@code maxBytes} of heap memory when full. The size is computed
+     * from the layout of the table, the entries and their strings on a 64-bit JVM with compressed references
+     * and is an estimate for other JVM configurations and for internal IDs with characters outside Latin-1.
+     * It includes the internal IDs, which may be shared with the caller and then take up no extra memory.
+     *
+     * @param maxBytes maximum heap memory in bytes
+     * @param averageIdLength expected average internal ID length in characters
+     * @return cache
+     */
+    public static UUIDCache ofMemory(final long maxBytes, final int averageIdLength)
+    {
+        final long idSize = (ARRAY_HEADER + (long) CHAR_SIZE * averageIdLength + 7) & ~7L;
+        final long bucketSize = WAYS * (REFERENCE_SIZE + ENTRY_SIZE + STRING_SIZE + idSize) + 1;
+        final long entries = (maxBytes - 2 * ARRAY_HEADER) / bucketSize * WAYS;
+        return new UUIDCache((int) Math.max(WAYS, Math.min(entries, Integer.MAX_VALUE - WAYS)));
+    }
+
+    /**
+     * Look up the UUID of an internal ID. On a hit, the UUID is stored in the
+     * {@link GeneratorContext#mMsb} and {@link GeneratorContext#mLsb} fields of the context.
+     *
+     * @param prefix scheme prefix
+     * @param internalId internal ID
+     * @param out context receiving the UUID
+     * @return whether the UUID was found
+     */
+    boolean get(final NamePrefix prefix, final CharSequence internalId, final GeneratorContext out)
+    {
+        final int hash = hash(prefix, internalId);
+        final int base = bucket(hash) * WAYS;
+        for (int i = base; i < base + WAYS; ++i) {
+            final Entry entry = mSlots.get(i);
+            if (null != entry && entry.matches(hash, prefix, internalId)) {
+                // only write if needed, so that hot entries are not written on every hit
+                if (!entry.mReferenced) {
+                    entry.mReferenced = true;
+                }
+                out.mMsb = entry.mMsb;
+                out.mLsb = entry.mLsb;
+                mHits.increment();
+                FlightEvents.cacheLookup(true);
+                return true;
+            }
+        }
+        mMisses.increment();
+        FlightEvents.cacheLookup(false);
+        return false;
+    }
+
+    /**
+     * Insert the UUID of an internal ID, evicting another entry of its bucket if necessary.
+     * Concurrent insertions of the same ID may store it twice, which only wastes a slot
+     * until one of the copies is evicted.
+     *
+     * @param prefix scheme prefix
+     * @param internalId internal ID
+     * @param msb most significant bits of the UUID
+     * @param lsb least significant bits of the UUID
+     */
+    void put(final NamePrefix prefix, final CharSequence internalId, final long msb, final long lsb)
+    {
+        final int hash = hash(prefix, internalId);
+        final int bucket = bucket(hash);
+        final int base = bucket * WAYS;
+        final Entry entry = new Entry(hash, prefix.mPrefix, internalId.toString(), msb, lsb);
+
+        for (int i = base; i < base + WAYS; ++i) {
+            if (null == mSlots.get(i) && mSlots.compareAndSet(i, null, entry)) {
+                mSize.increment();
+                return;
+            }
+        }
+
+        // races on the clock hand are harmless, they only change which entry is evicted
+        int hand = mHands[bucket];
+        for (int n = 0; n < 2 * WAYS; ++n) {
+            final int slot = base + (hand & (WAYS - 1));
+            hand = (hand + 1) & (WAYS - 1);
+            final Entry victim = mSlots.get(slot);
+            if (null != victim && victim.mReferenced) {
+                victim.mReferenced = false;
+                continue;
+            }
+            if (mSlots.compareAndSet(slot, victim, entry)) {
+                mHands[bucket] = (byte) hand;
+                if (null == victim) {
+                    mSize.increment();
+                } else {
+                    mEvictions.increment();
+                }
+                return;
+            }
+        }
+        // lost every race against concurrent insertions, the entry is simply not cached
+    }
+
+    /**
+     * Remove all entries. Statistics are not reset.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < mSlots.length(); ++i) {
+            if (null != mSlots.getAndSet(i, null)) {
+                mSize.decrement();
+            }
+        }
+    }
+
+    /**
+     * @return maximum number of entries
+     */
+    public int capacity()
+    {
+        return mSlots.length();
+    }
+
+    /**
+     * @return current number of entries
+     */
+    public long size()
+    {
+        return mSize.sum();
+    }
+
+    /**
+     * @return number of lookups that found the UUID
+     */
+    public long getHitCount()
+    {
+        return mHits.sum();
+    }
+
+    /**
+     * @return number of lookups that did not find the UUID
+     */
+    public long getMissCount()
+    {
+        return mMisses.sum();
+    }
+
+    /**
+     * @return number of entries replaced by newer ones
+     */
+    public long getEvictionCount()
+    {
+        return mEvictions.sum();
+    }
+
+    /**
+     * @return fraction of lookups that found the UUID, 0 if there were no lookups
+     */
+    public double getHitRate()
+    {
+        final long hits = mHits.sum();
+        final long lookups = hits + mMisses.sum();
+        return 0 == lookups ? 0.0 : (double) hits / lookups;
+    }
+
+    /**
+     * Select the bucket of a hash with a multiply-shift range reduction, which works for any number of buckets.
+     *
+     * @param hash key hash
+     * @return bucket index
+     */
+    private int bucket(final int hash)
+    {
+        return (int) (((hash & 0xffffffffL) * mBuckets) >>> 32);
+    }
+
+    /**
+     * Hash a key. The internal ID is hashed like {@link String#hashCode()}, so that the cached hash
+     * of strings is used and other character sequences with the same content hash to the same value.
+     *
+     * @param prefix scheme prefix
+     * @param internalId internal ID
+     * @return well-mixed hash
+     */
+    private static int hash(final NamePrefix prefix, final CharSequence internalId)
+    {
+        int h;
+        if (internalId instanceof String) {
+            h = internalId.hashCode();
+        } else {
+            h = 0;
+            for (int i = 0; i < internalId.length(); ++i) {
+                h = 31 * h + internalId.charAt(i);
+            }
+        }
+        h ^= prefix.mPrefix.hashCode() * 0x9e3779b9;
+
+        // MurmurHash3 finalizer
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Cached UUID. All fields but the reference bit are immutable, so that entries read
+     * without locking are always consistent.
+     */
+    private static final class Entry
+    {
+        final int mHash;
+        final String mPrefix;
+        final String mInternalId;
+        final long mMsb;
+        final long mLsb;
+
+        /**
+         * CLOCK reference bit, set on hits and cleared by the clock hand. Races only
+         * affect the eviction order, so the field is not volatile.
+         */
+        boolean mReferenced;
+
+        Entry(final int hash, final String prefix, final String internalId, final long msb, final long lsb)
+        {
+            mHash = hash;
+            mPrefix = prefix;
+            mInternalId = internalId;
+            mMsb = msb;
+            mLsb = lsb;
+        }
+
+        /**
+         * @param hash key hash
+         * @param prefix scheme prefix
+         * @param internalId internal ID
+         * @return whether this entry holds the UUID of the key
+         */
+        boolean matches(final int hash, final NamePrefix prefix, final CharSequence internalId)
+        {
+            return mHash == hash && mInternalId.contentEquals(internalId)
+                    && (mPrefix == prefix.mPrefix || mPrefix.equals(prefix.mPrefix));
+        }
+    }
+}
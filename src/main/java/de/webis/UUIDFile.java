@@ -0,0 +1,382 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * File of fixed-width binary UUID records, where record i holds the UUID of the i-th internal ID
+ * of a corpus. A short header stores the scheme prefix, the number of records and the file format
+ * version. It is followed by the records of 16 big-endian bytes each, so record i starts at byte
+ * {@code headerLength + 16 * i}. The header length is a multiple of 16.
+ *
+ * <p>A {@link Writer} maps the whole file, so that any number of threads can write their own
+ * ranges of records concurrently, without coordination and in any order. A {@link Reader} maps
+ * the file read-only and provides constant-time random access to every record.</p>
+ *
+ * <p>Header layout (big-endian):</p>
+ * <pre>
+ * offset  size  field
+ *      0     8  magic "WEBISUID"
+ *      8     4  format version
+ *     12     4  header length
+ *     16     8  number of records
+ *     24     4  prefix length in bytes
+ *     28     n  UTF-8 encoded prefix, zero-padded to the header length
+ * </pre>
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+public final class UUIDFile
+{
+    /**
+     * Version of the file format written by this class.
+     */
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = { 'W', 'E', 'B', 'I', 'S', 'U', 'I', 'D' };
+
+    /**
+     * Size of the header without the prefix.
+     */
+    private static final int FIXED_HEADER_LENGTH = 28;
+
+    /**
+     * Maximum number of records, so that the file length fits into a long with any header length.
+     */
+    private static final long MAX_COUNT = (Long.MAX_VALUE - Integer.MAX_VALUE) / UUIDBits.BYTES;
+
+    private UUIDFile()
+    {
+    }
+
+    /**
+     * Create a file for a fixed number of records, overwriting any existing file.
+     * All records are initially zero.
+     *
+     * @param file file to create
+     * @param prefix scheme prefix of the UUIDs
+     * @param count number of records
+     * @return writer for the file
+     * @throws IOException if the file cannot be created
+     */
+    public static Writer create(final Path file, final String prefix, final long count) throws IOException
+    {
+        if (count < 0 || count > MAX_COUNT) {
+            throw new IllegalArgumentException("Invalid record count: " + count);
+        }
+        final byte[] encodedPrefix = prefix.getBytes(StandardCharsets.UTF_8);
+        final int headerLength = (FIXED_HEADER_LENGTH + encodedPrefix.length + UUIDBits.BYTES - 1)
+                & -UUIDBits.BYTES;
+
+        final ByteBuffer header = ByteBuffer.allocate(headerLength);
+        header.put(MAGIC).putInt(VERSION).putInt(headerLength).putLong(count)
+                .putInt(encodedPrefix.length).put(encodedPrefix);
+        header.clear();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            final MappedFile mapped = new MappedFile(channel, FileChannel.MapMode.READ_WRITE,
+                    headerLength + count * UUIDBits.BYTES);
+            return new Writer(mapped, prefix, headerLength, count);
+        }
+    }
+
+    /**
+     * Open an existing file for reading.
+     *
+     * @param file file to open
+     * @return reader for the file
+     * @throws IOException if the file cannot be read or is not a UUID file of a supported version
+     */
+    public static Reader open(final Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer fixed = read(channel, 0, FIXED_HEADER_LENGTH);
+            final byte[] magic = new byte[MAGIC.length];
+            fixed.get(magic);
+            for (int i = 0; i < MAGIC.length; ++i) {
+                if (MAGIC[i] != magic[i]) {
+                    throw new IOException("Not a UUID file: " + file);
+                }
+            }
+            final int version = fixed.getInt();
+            if (VERSION != version) {
+                throw new IOException("Unsupported UUID file version " + version + ": " + file);
+            }
+            final int headerLength = fixed.getInt();
+            final long count = fixed.getLong();
+            final int prefixLength = fixed.getInt();
+            // the header fields are checked against the limits first, so that the file length cannot overflow
+            if (prefixLength < 0 || headerLength < FIXED_HEADER_LENGTH + (long) prefixLength
+                    || 0 != headerLength % UUIDBits.BYTES || count < 0 || count > MAX_COUNT
+                    || channel.size() < headerLength + count * UUIDBits.BYTES) {
+                throw new IOException("Corrupt UUID file header: " + file);
+            }
+            final ByteBuffer prefix = read(channel, FIXED_HEADER_LENGTH, prefixLength);
+            final MappedFile mapped = new MappedFile(channel, FileChannel.MapMode.READ_ONLY,
+                    headerLength + count * UUIDBits.BYTES);
+            return new Reader(mapped, new String(prefix.array(), StandardCharsets.UTF_8), headerLength, count);
+        }
+    }
+
+    /**
+     * Read a part of a file completely.
+     *
+     * @param channel file channel
+     * @param position file position
+     * @param length number of bytes
+     * @return buffer holding the bytes, ready for reading
+     * @throws IOException if reading fails or the file is too short
+     */
+    private static ByteBuffer read(final FileChannel channel, final long position, final int length)
+            throws IOException
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of UUID file header");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Common part of readers and writers.
+     */
+    private abstract static class Records implements Closeable
+    {
+        final MappedFile mFile;
+        final String mPrefix;
+        final int mHeaderLength;
+        final long mCount;
+
+        Records(final MappedFile file, final String prefix, final int headerLength, final long count)
+        {
+            mFile = file;
+            mPrefix = prefix;
+            mHeaderLength = headerLength;
+            mCount = count;
+        }
+
+        /**
+         * @return scheme prefix of the UUIDs
+         */
+        public String getPrefix()
+        {
+            return mPrefix;
+        }
+
+        /**
+         * @return number of records
+         */
+        public long size()
+        {
+            return mCount;
+        }
+
+        /**
+         * File position of a record.
+         *
+         * @param index record index
+         * @return position of the first byte of the record
+         * @throws IndexOutOfBoundsException if there is no such record
+         */
+        final long position(final long index)
+        {
+            if (index < 0 || index >= mCount) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mCount);
+            }
+            return mHeaderLength + (index << 4);
+        }
+    }
+
+    /**
+     * Writer for a memory-mapped UUID file.
+     * Writing is thread-safe as long as threads write different records. Changes become visible to
+     * readers in other processes, but are only guaranteed to be stored after {@link #close()}, which
+     * must be called once all writing threads have finished.
+     */
+    public static final class Writer extends Records
+    {
+        private final NamePrefix mNamePrefix;
+        private final HashEngine mEngine;
+
+        Writer(final MappedFile file, final String prefix, final int headerLength, final long count)
+        {
+            super(file, prefix, headerLength, count);
+            mNamePrefix = NamePrefix.of(prefix);
+            mEngine = WebisUUID.getDefaultEngine();
+        }
+
+        /**
+         * Store the bits of a UUID as record {@code index}.
+         *
+         * @param index record index
+         * @param msb most significant bits
+         * @param lsb least significant bits
+         * @throws IndexOutOfBoundsException if there is no such record
+         */
+        public void put(final long index, final long msb, final long lsb)
+        {
+            final long position = position(index);
+            mFile.putLong(position, msb);
+            mFile.putLong(position + 8, lsb);
+        }
+
+        /**
+         * Store a UUID as record {@code index}.
+         *
+         * @param index record index
+         * @param uuid UUID
+         * @throws IndexOutOfBoundsException if there is no such record
+         */
+        public void put(final long index, final MutableUUID uuid)
+        {
+            put(index, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        }
+
+        /**
+         * Generate the UUID for an internal ID with the prefix of this file and store it as record {@code index}.
+         *
+         * @param index record index
+         * @param internalId internal record ID
+         * @throws IndexOutOfBoundsException if there is no such record
+         */
+        public void put(final long index, final CharSequence internalId)
+        {
+            final GeneratorContext context = WebisUUID.context();
+            context.generate(mNamePrefix, internalId, mEngine);
+            put(index, context.mMsb, context.mLsb);
+        }
+
+        /**
+         * Store all UUIDs of a batch as consecutive records, starting at record {@code index}.
+         *
+         * @param index index of the record for the first UUID of the batch
+         * @param batch UUID batch
+         * @throws IndexOutOfBoundsException if the batch does not fit into the file at this index
+         */
+        public void put(final long index, final UUIDBatch batch)
+        {
+            final int size = batch.size();
+            if (0 == size) {
+                return;
+            }
+            position(index + size - 1);
+            long position = position(index);
+            final long[] msb = batch.mostSignificantBits();
+            final long[] lsb = batch.leastSignificantBits();
+            for (int i = 0; i < size; ++i, position += UUIDBits.BYTES) {
+                mFile.putLong(position, msb[i]);
+                mFile.putLong(position + 8, lsb[i]);
+            }
+        }
+
+        /**
+         * Flush all records to the storage device.
+         */
+        @Override
+        public void close()
+        {
+            mFile.force();
+        }
+    }
+
+    /**
+     * Reader for a memory-mapped UUID file. Reading is thread-safe.
+     */
+    public static final class Reader extends Records
+    {
+        Reader(final MappedFile file, final String prefix, final int headerLength, final long count)
+        {
+            super(file, prefix, headerLength, count);
+        }
+
+        /**
+         * @param index record index
+         * @return most significant bits of the UUID of record {@code index}
+         * @throws IndexOutOfBoundsException if there is no such record
+         */
+        public long getMostSignificantBits(final long index)
+        {
+            return mFile.getLong(position(index));
+        }
+
+        /**
+         * @param index record index
+         * @return least significant bits of the UUID of record {@code index}
+         * @throws IndexOutOfBoundsException if there is no such record
+         */
+        public long getLeastSignificantBits(final long index)
+        {
+            return mFile.getLong(position(index) + 8);
+        }
+
+        /**
+         * Read the UUID of a record without allocating.
+         *
+         * @param index record index
+         * @param out receives the UUID
+         * @throws IndexOutOfBoundsException if there is no such record
+         */
+        public void get(final long index, final MutableUUID out)
+        {
+            final long position = position(index);
+            out.set(mFile.getLong(position), mFile.getLong(position + 8));
+        }
+
+        /**
+         * @param index record index
+         * @return UUID of record {@code index}
+         * @throws IndexOutOfBoundsException if there is no such record
+         */
+        public UUID get(final long index)
+        {
+            final long position = position(index);
+            return new UUID(mFile.getLong(position), mFile.getLong(position + 8));
+        }
+
+        /**
+         * Readers hold no resources besides the mapping, which is released once the reader is unreachable.
+         */
+        @Override
+        public void close()
+        {
+        }
+    }
+}
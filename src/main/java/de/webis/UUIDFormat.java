@@ -0,0 +1,412 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Table-driven conversion between UUID bits and the canonical 36-character text form
+ * (e.g. 7f476110-58fd-5698-b104-8b29c3ac6d55), working directly on caller-supplied
+ * buffers without intermediate strings. Hex digits are written in lower case like
+ * {@link java.util.UUID#toString()}.
+ * <p>
+ * Unlike {@link java.util.UUID#fromString(String)}, the parser is strict: it only accepts
+ * exactly 36 characters with dashes at positions 8, 13, 18 and 23 and hex digits (in
+ * either case) everywhere else. Malformed input is reported by return value instead of
+ * an exception and parsing does not allocate.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+public final class UUIDFormat
+{
+    /**
+     * Length of the canonical text form.
+     */
+    public static final int LENGTH = 36;
+
+    /**
+     * Two lower-case hex digits for every byte value.
+     */
+    private static final char[] HEX_PAIRS = new char[512];
+
+    /**
+     * Position of the two hex digits of each of the 16 bytes within the text form.
+     */
+    private static final int[] BYTE_POSITIONS = { 0, 2, 4, 6, 9, 11, 14, 16, 19, 21, 24, 26, 28, 30, 32, 34 };
+
+    /**
+     * Value of every ASCII hex digit, -1 for all other ASCII characters.
+     */
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        final char[] digits = "0123456789abcdef".toCharArray();
+        for (int i = 0; i < 256; ++i) {
+            HEX_PAIRS[i << 1] = digits[i >>> 4];
+            HEX_PAIRS[(i << 1) + 1] = digits[i & 0x0f];
+        }
+
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 16; ++i) {
+            HEX_VALUES[digits[i]] = (byte) i;
+            HEX_VALUES[Character.toUpperCase(digits[i])] = (byte) i;
+        }
+    }
+
+    private UUIDFormat()
+    {
+    }
+
+    /**
+     * Format UUID bits as a new string.
+     *
+     * @param msb most significant 64 bits
+     * @param lsb least significant 64 bits
+     * @return canonical text form
+     */
+    public static String toString(final long msb, final long lsb)
+    {
+        final char[] chars = new char[LENGTH];
+        format(msb, lsb, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Format UUID bits into a char array.
+     *
+     * @param msb most significant 64 bits
+     * @param lsb least significant 64 bits
+     * @param dst destination array
+     * @param off offset of the first of the 36 chars to write
+     */
+    public static void format(final long msb, final long lsb, final char[] dst, final int off)
+    {
+        if (off < 0 || off > dst.length - LENGTH) {
+            throw new IndexOutOfBoundsException("offset: " + off + ", length: " + dst.length);
+        }
+        for (int b = 0; b < 16; ++b) {
+            final int pair = byteAt(msb, lsb, b) << 1;
+            final int pos = off + BYTE_POSITIONS[b];
+            dst[pos] = HEX_PAIRS[pair];
+            dst[pos + 1] = HEX_PAIRS[pair + 1];
+        }
+        dst[off + 8] = '-';
+        dst[off + 13] = '-';
+        dst[off + 18] = '-';
+        dst[off + 23] = '-';
+    }
+
+    /**
+     * Format UUID bits into a byte array as ASCII.
+     *
+     * @param msb most significant 64 bits
+     * @param lsb least significant 64 bits
+     * @param dst destination array
+     * @param off offset of the first of the 36 bytes to write
+     */
+    public static void format(final long msb, final long lsb, final byte[] dst, final int off)
+    {
+        if (off < 0 || off > dst.length - LENGTH) {
+            throw new IndexOutOfBoundsException("offset: " + off + ", length: " + dst.length);
+        }
+        for (int b = 0; b < 16; ++b) {
+            final int pair = byteAt(msb, lsb, b) << 1;
+            final int pos = off + BYTE_POSITIONS[b];
+            dst[pos] = (byte) HEX_PAIRS[pair];
+            dst[pos + 1] = (byte) HEX_PAIRS[pair + 1];
+        }
+        dst[off + 8] = '-';
+        dst[off + 13] = '-';
+        dst[off + 18] = '-';
+        dst[off + 23] = '-';
+    }
+
+    /**
+     * Format UUID bits into a byte buffer as ASCII.
+     * The bytes are written at the current position, which is advanced by 36.
+     *
+     * @param msb most significant 64 bits
+     * @param lsb least significant 64 bits
+     * @param dst destination buffer
+     * @throws BufferOverflowException if fewer than 36 bytes remain in the buffer
+     */
+    public static void format(final long msb, final long lsb, final ByteBuffer dst)
+    {
+        if (dst.remaining() < LENGTH) {
+            throw new BufferOverflowException();
+        }
+        final int position = dst.position();
+        if (dst.hasArray()) {
+            format(msb, lsb, dst.array(), dst.arrayOffset() + position);
+        } else {
+            for (int b = 0; b < 16; ++b) {
+                final int pair = byteAt(msb, lsb, b) << 1;
+                final int pos = position + BYTE_POSITIONS[b];
+                dst.put(pos, (byte) HEX_PAIRS[pair]);
+                dst.put(pos + 1, (byte) HEX_PAIRS[pair + 1]);
+            }
+            dst.put(position + 8, (byte) '-');
+            dst.put(position + 13, (byte) '-');
+            dst.put(position + 18, (byte) '-');
+            dst.put(position + 23, (byte) '-');
+        }
+        dst.position(position + LENGTH);
+    }
+
+    /**
+     * Append the text form of UUID bits to a string builder.
+     *
+     * @param msb most significant 64 bits
+     * @param lsb least significant 64 bits
+     * @param dst destination builder
+     * @return {@code dst}
+     */
+    public static StringBuilder format(final long msb, final long lsb, final StringBuilder dst)
+    {
+        dst.ensureCapacity(dst.length() + LENGTH);
+        for (int b = 0; b < 16; ++b) {
+            if (4 == b || 6 == b || 8 == b || 10 == b) {
+                dst.append('-');
+            }
+            final int pair = byteAt(msb, lsb, b) << 1;
+            dst.append(HEX_PAIRS[pair]).append(HEX_PAIRS[pair + 1]);
+        }
+        return dst;
+    }
+
+    /**
+     * Append the text form of UUID bits to an {@link Appendable}.
+     *
+     * @param msb most significant 64 bits
+     * @param lsb least significant 64 bits
+     * @param dst destination
+     * @return {@code dst}
+     * @throws IOException if appending to {@code dst} fails
+     */
+    public static Appendable format(final long msb, final long lsb, final Appendable dst) throws IOException
+    {
+        if (dst instanceof StringBuilder) {
+            return format(msb, lsb, (StringBuilder) dst);
+        }
+        for (int b = 0; b < 16; ++b) {
+            if (4 == b || 6 == b || 8 == b || 10 == b) {
+                dst.append('-');
+            }
+            final int pair = byteAt(msb, lsb, b) << 1;
+            dst.append(HEX_PAIRS[pair]).append(HEX_PAIRS[pair + 1]);
+        }
+        return dst;
+    }
+
+    /**
+     * Parse the canonical text form at an offset of a char sequence.
+     *
+     * @param src source sequence
+     * @param off offset of the first of the 36 chars to parse
+     * @param out holder receiving the parsed bits, unchanged if the input is malformed
+     * @return true if the input is a well-formed UUID, false otherwise
+     */
+    public static boolean parse(final CharSequence src, final int off, final MutableUUID out)
+    {
+        if (off < 0 || off > src.length() - LENGTH || !isDash(src.charAt(off + 8)) || !isDash(src.charAt(off + 13))
+                || !isDash(src.charAt(off + 18)) || !isDash(src.charAt(off + 23))) {
+            return false;
+        }
+
+        long msb = 0;
+        long lsb = 0;
+        int invalid = 0;
+        for (int b = 0; b < 16; ++b) {
+            final int pos = off + BYTE_POSITIONS[b];
+            final int hi = hexValue(src.charAt(pos));
+            final int lo = hexValue(src.charAt(pos + 1));
+            invalid |= hi | lo;
+            if (b < 8) {
+                msb = (msb << 8) | (hi << 4) | lo;
+            } else {
+                lsb = (lsb << 8) | (hi << 4) | lo;
+            }
+        }
+        return store(msb, lsb, invalid, out);
+    }
+
+    /**
+     * Parse the canonical text form at an offset of a char array.
+     *
+     * @param src source array
+     * @param off offset of the first of the 36 chars to parse
+     * @param out holder receiving the parsed bits, unchanged if the input is malformed
+     * @return true if the input is a well-formed UUID, false otherwise
+     */
+    public static boolean parse(final char[] src, final int off, final MutableUUID out)
+    {
+        if (off < 0 || off > src.length - LENGTH || !isDash(src[off + 8]) || !isDash(src[off + 13])
+                || !isDash(src[off + 18]) || !isDash(src[off + 23])) {
+            return false;
+        }
+
+        long msb = 0;
+        long lsb = 0;
+        int invalid = 0;
+        for (int b = 0; b < 16; ++b) {
+            final int pos = off + BYTE_POSITIONS[b];
+            final int hi = hexValue(src[pos]);
+            final int lo = hexValue(src[pos + 1]);
+            invalid |= hi | lo;
+            if (b < 8) {
+                msb = (msb << 8) | (hi << 4) | lo;
+            } else {
+                lsb = (lsb << 8) | (hi << 4) | lo;
+            }
+        }
+        return store(msb, lsb, invalid, out);
+    }
+
+    /**
+     * Parse the canonical text form at an offset of an ASCII byte array.
+     *
+     * @param src source array
+     * @param off offset of the first of the 36 bytes to parse
+     * @param out holder receiving the parsed bits, unchanged if the input is malformed
+     * @return true if the input is a well-formed UUID, false otherwise
+     */
+    public static boolean parse(final byte[] src, final int off, final MutableUUID out)
+    {
+        if (off < 0 || off > src.length - LENGTH || !isDash(src[off + 8]) || !isDash(src[off + 13])
+                || !isDash(src[off + 18]) || !isDash(src[off + 23])) {
+            return false;
+        }
+
+        long msb = 0;
+        long lsb = 0;
+        int invalid = 0;
+        for (int b = 0; b < 16; ++b) {
+            final int pos = off + BYTE_POSITIONS[b];
+            final int hi = hexValue(src[pos] & 0xff);
+            final int lo = hexValue(src[pos + 1] & 0xff);
+            invalid |= hi | lo;
+            if (b < 8) {
+                msb = (msb << 8) | (hi << 4) | lo;
+            } else {
+                lsb = (lsb << 8) | (hi << 4) | lo;
+            }
+        }
+        return store(msb, lsb, invalid, out);
+    }
+
+    /**
+     * Parse the canonical text form at an absolute index of an ASCII byte buffer.
+     * The buffer position is not changed.
+     *
+     * @param src source buffer
+     * @param index index of the first of the 36 bytes to parse
+     * @param out holder receiving the parsed bits, unchanged if the input is malformed
+     * @return true if the input is a well-formed UUID, false otherwise
+     */
+    public static boolean parse(final ByteBuffer src, final int index, final MutableUUID out)
+    {
+        if (index < 0 || index > src.limit() - LENGTH) {
+            return false;
+        }
+        if (src.hasArray()) {
+            return parse(src.array(), src.arrayOffset() + index, out);
+        }
+        if (!isDash(src.get(index + 8)) || !isDash(src.get(index + 13))
+                || !isDash(src.get(index + 18)) || !isDash(src.get(index + 23))) {
+            return false;
+        }
+
+        long msb = 0;
+        long lsb = 0;
+        int invalid = 0;
+        for (int b = 0; b < 16; ++b) {
+            final int pos = index + BYTE_POSITIONS[b];
+            final int hi = hexValue(src.get(pos) & 0xff);
+            final int lo = hexValue(src.get(pos + 1) & 0xff);
+            invalid |= hi | lo;
+            if (b < 8) {
+                msb = (msb << 8) | (hi << 4) | lo;
+            } else {
+                lsb = (lsb << 8) | (hi << 4) | lo;
+            }
+        }
+        return store(msb, lsb, invalid, out);
+    }
+
+    /**
+     * Store parsed bits unless an invalid digit was encountered.
+     *
+     * @param msb parsed most significant 64 bits
+     * @param lsb parsed least significant 64 bits
+     * @param invalid OR of all digit values, negative if any digit was invalid
+     * @param out holder receiving the parsed bits
+     * @return true if the bits were stored
+     */
+    private static boolean store(final long msb, final long lsb, final int invalid, final MutableUUID out)
+    {
+        if (invalid < 0) {
+            return false;
+        }
+        out.set(msb, lsb);
+        return true;
+    }
+
+    /**
+     * @param c character
+     * @return value of hex digit {@code c}, negative if {@code c} is not a hex digit
+     */
+    private static int hexValue(final int c)
+    {
+        // characters outside ASCII map to a negative value through their high bits
+        return HEX_VALUES[c & 0x7f] | -(c >>> 7);
+    }
+
+    /**
+     * @param c character
+     * @return true if {@code c} is a dash
+     */
+    private static boolean isDash(final int c)
+    {
+        return '-' == c;
+    }
+
+    /**
+     * Byte of the UUID in big-endian order.
+     *
+     * @param msb most significant 64 bits
+     * @param lsb least significant 64 bits
+     * @param b byte index (0 to 15)
+     * @return unsigned byte value
+     */
+    private static int byteAt(final long msb, final long lsb, final int b)
+    {
+        final long bits = b < 8 ? msb : lsb;
+        return (int) (bits >>> (56 - ((b & 7) << 3))) & 0xff;
+    }
+}
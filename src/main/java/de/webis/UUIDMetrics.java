@@ -0,0 +1,315 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Optional usage metrics of UUID generation: the number of UUIDs generated per prefix, the number of
+ * bytes hashed and a histogram of the time it takes to generate a UUID. Metrics are disabled by default
+ * and enabled by setting the system property {@value #METRICS_PROPERTY} to {@code true} at startup.
+ * Whether metrics are enabled is a constant, so the JIT removes the instrumentation from the generation
+ * paths entirely when they are disabled.
+ *
+ * <p>UUIDs are counted when they are returned to the caller, including UUIDs found in a {@link UUIDCache}
+ * or {@link SharedUUIDCache}. Cache hits count towards the UUIDs per prefix and the latency histogram
+ * with the time of the lookup, but hash no bytes.</p>
+ *
+ * <p>All counters are {@link LongAdder}s, which are updated without locks and striped across threads
+ * under contention. They are monotonic, rates can be computed from the difference of two snapshots.
+ * When enabled, the metrics are also registered as a platform MXBean named {@value #OBJECT_NAME}.</p>
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+public final class UUIDMetrics
+{
+    /**
+     * System property for enabling metrics.
+     */
+    public static final String METRICS_PROPERTY = "de.webis.uuid.metrics";
+
+    /**
+     * JMX object name of the metrics MXBean.
+     */
+    public static final String OBJECT_NAME = "de.webis:type=UUIDMetrics";
+
+    /**
+     * Number of latency histogram buckets. Bucket 0 counts latencies of 0 ns, bucket i > 0 counts
+     * latencies in [2^(i-1), 2^i) ns. The last bucket also counts all longer latencies.
+     */
+    public static final int LATENCY_BUCKETS = 40;
+
+    /**
+     * Prefix under which UUIDs are counted once {@link #MAX_PREFIXES} distinct prefixes have been seen.
+     */
+    public static final String OTHER_PREFIXES = "(other)";
+
+    static final boolean ENABLED = Boolean.getBoolean(METRICS_PROPERTY);
+
+    /**
+     * Maximum number of prefixes counted separately, like the bound of the prefix registry.
+     */
+    private static final int MAX_PREFIXES = 1024;
+
+    private static final ConcurrentMap<String, LongAdder> PREFIX_COUNTERS = new ConcurrentHashMap<>();
+    private static final LongAdder BYTES_HASHED = new LongAdder();
+    private static final LongAdder[] LATENCY = new LongAdder[LATENCY_BUCKETS];
+
+    static {
+        for (int i = 0; i < LATENCY_BUCKETS; ++i) {
+            LATENCY[i] = new LongAdder();
+        }
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MXBean(), new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                // already registered, e.g. by a copy of this class in another class loader
+            }
+        }
+    }
+
+    private UUIDMetrics()
+    {
+    }
+
+    /**
+     * @return whether metrics are collected
+     */
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    /**
+     * Take a snapshot of the current metrics. The counters are read one after another while
+     * generation may go on, so a snapshot is not an atomic view of all counters.
+     *
+     * @return snapshot, all zero if metrics are disabled
+     */
+    public static Snapshot snapshot()
+    {
+        final Map<String, Long> prefixes = new TreeMap<>();
+        long uuids = 0;
+        for (final Map.Entry<String, LongAdder> entry : PREFIX_COUNTERS.entrySet()) {
+            final long count = entry.getValue().sum();
+            prefixes.put(entry.getKey(), count);
+            uuids += count;
+        }
+        final long[] latency = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; ++i) {
+            latency[i] = LATENCY[i].sum();
+        }
+        return new Snapshot(System.currentTimeMillis(), uuids, Collections.unmodifiableMap(prefixes),
+                BYTES_HASHED.sum(), latency);
+    }
+
+    /**
+     * Counter for the UUIDs of a prefix.
+     *
+     * @param prefix scheme prefix
+     * @return counter, null if metrics are disabled
+     */
+    static LongAdder prefixCounter(final String prefix)
+    {
+        if (!ENABLED) {
+            return null;
+        }
+        final LongAdder counter = PREFIX_COUNTERS.get(prefix);
+        if (null != counter) {
+            return counter;
+        }
+        if (PREFIX_COUNTERS.size() >= MAX_PREFIXES) {
+            return PREFIX_COUNTERS.computeIfAbsent(OTHER_PREFIXES, p -> new LongAdder());
+        }
+        return PREFIX_COUNTERS.computeIfAbsent(prefix, p -> new LongAdder());
+    }
+
+    /**
+     * Record generated UUIDs. Must only be called if metrics are enabled.
+     * UUIDs of internal prefixes, which have no counter, are not recorded.
+     *
+     * @param prefix prefix of the UUIDs
+     * @param count number of UUIDs
+     * @param bytes total number of bytes hashed, 0 for UUIDs found in a cache
+     * @param nanos total time taken
+     */
+    static void record(final NamePrefix prefix, final int count, final long bytes, final long nanos)
+    {
+        final LongAdder counter = prefix.mCounter;
+        if (null == counter) {
+            return;
+        }
+        counter.add(count);
+        BYTES_HASHED.add(bytes);
+        final long perUUID = nanos / count;
+        final int bucket = Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(perUUID));
+        LATENCY[bucket].add(count);
+    }
+
+    /**
+     * Immutable snapshot of the metrics.
+     */
+    public static final class Snapshot
+    {
+        private final long mTimestamp;
+        private final long mUUIDs;
+        private final Map<String, Long> mUUIDsPerPrefix;
+        private final long mBytesHashed;
+        private final long[] mLatency;
+
+        Snapshot(final long timestamp, final long uuids, final Map<String, Long> uuidsPerPrefix,
+                 final long bytesHashed, final long[] latency)
+        {
+            mTimestamp = timestamp;
+            mUUIDs = uuids;
+            mUUIDsPerPrefix = uuidsPerPrefix;
+            mBytesHashed = bytesHashed;
+            mLatency = latency;
+        }
+
+        /**
+         * @return time the snapshot was taken in milliseconds since the epoch
+         */
+        public long getTimestamp()
+        {
+            return mTimestamp;
+        }
+
+        /**
+         * @return total number of UUIDs generated, including UUIDs found in a cache
+         */
+        public long getUUIDs()
+        {
+            return mUUIDs;
+        }
+
+        /**
+         * @return number of UUIDs generated per prefix, sorted by prefix
+         */
+        public Map<String, Long> getUUIDsPerPrefix()
+        {
+            return mUUIDsPerPrefix;
+        }
+
+        /**
+         * @return total number of name bytes hashed, including namespace and prefix, cache hits hash none
+         */
+        public long getBytesHashed()
+        {
+            return mBytesHashed;
+        }
+
+        /**
+         * Latency histogram with {@link #LATENCY_BUCKETS} power-of-two buckets.
+         * UUIDs generated in batches are counted with the average latency of their batch.
+         *
+         * @return number of UUIDs per latency bucket
+         */
+        public long[] getLatencyHistogram()
+        {
+            return mLatency.clone();
+        }
+
+        /**
+         * Estimate a latency percentile from the histogram.
+         *
+         * @param percentile percentile between 0 and 100
+         * @return upper bound of the histogram bucket the percentile falls into in nanoseconds, 0 if empty
+         */
+        public long getLatencyPercentile(final double percentile)
+        {
+            long total = 0;
+            for (final long count : mLatency) {
+                total += count;
+            }
+            final double rank = percentile / 100.0 * total;
+            long seen = 0;
+            for (int i = 0; i < mLatency.length; ++i) {
+                seen += mLatency[i];
+                if (0 < mLatency[i] && seen >= rank) {
+                    return 1L << i;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * MXBean view of the metrics.
+     */
+    private static final class MXBean implements UUIDMetricsMXBean
+    {
+        @Override
+        public long getUUIDs()
+        {
+            return snapshot().getUUIDs();
+        }
+
+        @Override
+        public Map<String, Long> getUUIDsPerPrefix()
+        {
+            return snapshot().getUUIDsPerPrefix();
+        }
+
+        @Override
+        public long getBytesHashed()
+        {
+            return BYTES_HASHED.sum();
+        }
+
+        @Override
+        public long[] getLatencyHistogram()
+        {
+            return snapshot().getLatencyHistogram();
+        }
+
+        @Override
+        public long getLatencyMedianNanos()
+        {
+            return snapshot().getLatencyPercentile(50);
+        }
+
+        @Override
+        public long getLatency99thPercentileNanos()
+        {
+            return snapshot().getLatencyPercentile(99);
+        }
+
+        @Override
+        public long getLatency999thPercentileNanos()
+        {
+            return snapshot().getLatencyPercentile(99.9);
+        }
+    }
+}
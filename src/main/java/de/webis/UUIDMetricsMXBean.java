@@ -0,0 +1,72 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.util.Map;
+
+/**
+ * JMX interface of {@link UUIDMetrics}, registered as {@value UUIDMetrics#OBJECT_NAME}
+ * if metrics are enabled. All values are cumulative since startup.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+public interface UUIDMetricsMXBean
+{
+    /**
+     * @return total number of UUIDs generated, including UUIDs found in a cache
+     */
+    long getUUIDs();
+
+    /**
+     * @return number of UUIDs generated per prefix
+     */
+    Map<String, Long> getUUIDsPerPrefix();
+
+    /**
+     * @return total number of name bytes hashed
+     */
+    long getBytesHashed();
+
+    /**
+     * @return number of UUIDs per power-of-two latency bucket, see {@link UUIDMetrics#LATENCY_BUCKETS}
+     */
+    long[] getLatencyHistogram();
+
+    /**
+     * @return estimated median latency per UUID in nanoseconds
+     */
+    long getLatencyMedianNanos();
+
+    /**
+     * @return estimated 99th percentile latency per UUID in nanoseconds
+     */
+    long getLatency99thPercentileNanos();
+
+    /**
+     * @return estimated 99.9th percentile latency per UUID in nanoseconds
+     */
+    long getLatency999thPercentileNanos();
+}
@@ -0,0 +1,57 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+/**
+ * Access to SIMD implementations, which require the Java Vector API.
+ * This is the Java 8 version of the class, which never provides a SIMD implementation.
+ * A multi-release variant for Java 17 and newer replaces it and provides implementations
+ * if the {@code jdk.incubator.vector} module has been added to the module graph.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class VectorSupport
+{
+    private VectorSupport()
+    {
+    }
+
+    /**
+     * @return whether SIMD implementations are available
+     */
+    static boolean isAvailable()
+    {
+        return false;
+    }
+
+    /**
+     * @return new multi-buffer SHA-1 engine, null if SIMD implementations are not available
+     */
+    static MultiBufferSha1 newMultiBufferSha1()
+    {
+        return null;
+    }
+}
@@ -25,39 +25,151 @@
 
 package de.webis;
 
-import org.apache.commons.codec.binary.Hex;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Generator for version 5 (name-based SHA1) UUIDs to identify records in generated web corpus MapFiles.
  * UUIDs are generated within NameSpace_URL as defined by RFC 4122.
  * The name part consists of a given scheme prefix (e.g. clueweb09) followed by a colon and the internal
  * (globally non-unique) record ID (e.g. clueweb09-en0001-02-21241).
+ * Names are UTF-8 encoded, which yields the same UUIDs as Python's {@code uuid.uuid5()}.
+ * All methods are thread-safe. Each thread reuses its own digest and scratch buffers.
  *
  * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
  */
 public class WebisUUID
 {
-    // RFC 4122 defines 6ba7b811-9dad-11d1-80b4-00c04fd430c8
-    private static final byte[] UUID_NAMESPACE_URL = { 107, -89, -72, 17, -99, -83, 17, -47, -128, -76, 0, -64, 79, -44, 48, -56 };
+    /**
+     * System property for encoding names with the platform default charset instead of UTF-8.
+     * Earlier versions used the default charset, so non-ASCII names on machines with a
+     * non-UTF-8 default charset map to different UUIDs. Set this property to {@code true}
+     * only for reproducing UUIDs generated that way.
+     */
+    public static final String LEGACY_CHARSET_PROPERTY = "de.webis.uuid.legacyCharset";
+
+    /**
+     * Per-thread digest and scratch buffers, reused across calls.
+     */
+    private static final ThreadLocal<GeneratorContext> CONTEXT = ThreadLocal.withInitial(GeneratorContext::new);
+
+    /**
+     * Fixed prefix for usage with non-static member methods, with its hash input precomputed.
+     */
+    private final NamePrefix mPrefix;
+
+    /**
+     * SHA-1 engine for usage with non-static member methods.
+     */
+    private final HashEngine mEngine;
+
+    /**
+     * Cache of generated UUIDs for usage with non-static member methods, null if not cached.
+     */
+    private final UUIDCache mCache;
 
     /**
-     * Fixed prefix for usage with non-static member methods.
+     * Cache of generated UUIDs shared with other processes, null if not used.
      */
-    private final String mPrefix;
+    private final SharedUUIDCache mSharedCache;
 
     /**
      * If you are generating several UUIDs with the same prefix you may consider
      * creating a generator instance with that prefix for convenience reasons
      * instead of using the static generator method.
+     * The hash input for the prefix is computed once at construction time.
      *
      * @param prefix UUID prefix
      */
     public WebisUUID(final String prefix)
     {
-        mPrefix = prefix;
+        this(prefix, getDefaultEngine());
+    }
+
+    /**
+     * Create a generator instance with a fixed prefix that hashes with a specific SHA-1 engine.
+     *
+     * @param prefix UUID prefix
+     * @param engine SHA-1 engine
+     */
+    public WebisUUID(final String prefix, final HashEngine engine)
+    {
+        this(prefix, engine, null);
+    }
+
+    /**
+     * Create a generator instance with a fixed prefix that looks up UUIDs in a cache before hashing.
+     * The cache is used by all member methods generating a single UUID from a {@link CharSequence},
+     * which pays off if the same internal IDs are generated over and over. Batch methods and
+     * methods for encoded internal IDs do not use the cache. Neither do the static methods,
+     * which are not tied to an instance, so cached UUIDs must be generated with this instance.
+     *
+     * @param prefix UUID prefix
+     * @param engine SHA-1 engine
+     * @param cache cache of generated UUIDs, may be shared with other generators, null for no cache
+     */
+    public WebisUUID(final String prefix, final HashEngine engine, final UUIDCache cache)
+    {
+        this(prefix, engine, cache, null);
+    }
+
+    /**
+     * Create a generator instance with a fixed prefix that looks up UUIDs in an in-heap cache and then
+     * in a cache shared with other processes before hashing. Both caches are used by the same methods
+     * as in {@link #WebisUUID(String, HashEngine, UUIDCache)} and UUIDs found in the shared cache are
+     * added to the in-heap cache.
+     *
+     * @param prefix UUID prefix
+     * @param engine SHA-1 engine
+     * @param cache in-heap cache of generated UUIDs, null for no in-heap cache
+     * @param sharedCache cache of generated UUIDs shared with other processes, null for no shared cache
+     */
+    public WebisUUID(final String prefix, final HashEngine engine, final UUIDCache cache,
+                     final SharedUUIDCache sharedCache)
+    {
+        mPrefix = new NamePrefix(prefix);
+        mEngine = engine;
+        mCache = cache;
+        mSharedCache = sharedCache;
+    }
+
+    /**
+     * SHA-1 engine used by the static batch and parallel methods and by instances created without
+     * an explicit engine. The engine is configured via {@link HashEngine#ENGINE_PROPERTY} or selected
+     * by a short calibration run when this method or one of these static methods is first used.
+     * The static methods generating a single UUID do not calibrate and use {@link HashEngine#JCA}
+     * unless an engine is configured.
+     *
+     * @return active default engine
+     */
+    public static HashEngine getDefaultEngine()
+    {
+        return EngineHolder.ENGINE;
+    }
+
+    /**
+     * @return SHA-1 engine used by this instance
+     */
+    public HashEngine getEngine()
+    {
+        return mEngine;
+    }
+
+    /**
+     * @return cache of generated UUIDs used by this instance, null if not cached
+     */
+    public UUIDCache getCache()
+    {
+        return mCache;
     }
 
     /**
@@ -70,7 +182,278 @@ public class WebisUUID
      */
     public UUID generateUUID(final String internalId)
     {
-        return generateUUID(mPrefix, internalId);
+        return generateUUID((CharSequence) internalId);
+    }
+
+    /**
+     * Generate a version 5 UUID.
+     * The hashed name part is prefix:internalId where prefix has been
+     * defined during object instantiation.
+     *
+     * @param internalId internal ID (scheme-specific part)
+     * @return generated version 5 UUID
+     */
+    public UUID generateUUID(final CharSequence internalId)
+    {
+        final GeneratorContext context = generate(internalId);
+        return new UUID(context.mMsb, context.mLsb);
+    }
+
+    /**
+     * Generate a version 5 UUID from an encoded internal ID.
+     * The hashed name part is prefix:internalId where prefix has been
+     * defined during object instantiation. The internal ID bytes are hashed as they are,
+     * so they should be UTF-8 encoded to obtain the same UUIDs as for the equivalent string.
+     *
+     * @param buf buffer holding the encoded internal ID
+     * @param off offset of the internal ID in {@code buf}
+     * @param len length of the internal ID in bytes
+     * @return generated version 5 UUID
+     */
+    public UUID generateUUID(final byte[] buf, final int off, final int len)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        context.generate(mPrefix, buf, off, len, mEngine);
+        return new UUID(context.mMsb, context.mLsb);
+    }
+
+    /**
+     * Generate a version 5 UUID from an encoded internal ID.
+     * The hashed name part is prefix:internalId where prefix has been
+     * defined during object instantiation. The remaining bytes of the buffer are
+     * hashed as they are, the buffer position is not changed.
+     *
+     * @param internalId buffer holding the encoded internal ID
+     * @return generated version 5 UUID
+     */
+    public UUID generateUUID(final ByteBuffer internalId)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        context.generate(mPrefix, internalId, mEngine);
+        return new UUID(context.mMsb, context.mLsb);
+    }
+
+    /**
+     * Generate a version 5 UUID into a reusable holder.
+     * The hashed name part is prefix:internalId where prefix has been
+     * defined during object instantiation.
+     *
+     * @param internalId internal ID (scheme-specific part)
+     * @param out holder receiving the UUID bits
+     */
+    public void generateUUID(final CharSequence internalId, final MutableUUID out)
+    {
+        final GeneratorContext context = generate(internalId);
+        out.set(context.mMsb, context.mLsb);
+    }
+
+    /**
+     * Generate a version 5 UUID from an encoded internal ID into a reusable holder.
+     * The hashed name part is prefix:internalId where prefix has been
+     * defined during object instantiation.
+     *
+     * @param buf buffer holding the UTF-8 encoded internal ID
+     * @param off offset of the internal ID in {@code buf}
+     * @param len length of the internal ID in bytes
+     * @param out holder receiving the UUID bits
+     */
+    public void generateUUID(final byte[] buf, final int off, final int len, final MutableUUID out)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        context.generate(mPrefix, buf, off, len, mEngine);
+        out.set(context.mMsb, context.mLsb);
+    }
+
+    /**
+     * Generate a version 5 UUID from an encoded internal ID into a reusable holder.
+     * The hashed name part is prefix:internalId where prefix has been
+     * defined during object instantiation. The buffer position is not changed.
+     *
+     * @param internalId buffer holding the UTF-8 encoded internal ID
+     * @param out holder receiving the UUID bits
+     */
+    public void generateUUID(final ByteBuffer internalId, final MutableUUID out)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        context.generate(mPrefix, internalId, mEngine);
+        out.set(context.mMsb, context.mLsb);
+    }
+
+    /**
+     * Generate a version 5 UUID into a long array.
+     * The most significant bits are stored at {@code dst[index]}, the least significant
+     * bits at {@code dst[index + 1]}.
+     *
+     * @param internalId internal ID (scheme-specific part)
+     * @param dst destination array
+     * @param index index of the most significant bits
+     */
+    public void generateUUID(final CharSequence internalId, final long[] dst, final int index)
+    {
+        final GeneratorContext context = generate(internalId);
+        dst[index] = context.mMsb;
+        dst[index + 1] = context.mLsb;
+    }
+
+    /**
+     * Generate a version 5 UUID into a byte array as 16 bytes in big-endian order.
+     *
+     * @param internalId internal ID (scheme-specific part)
+     * @param dst destination array
+     * @param off offset of the first byte to write
+     */
+    public void generateUUID(final CharSequence internalId, final byte[] dst, final int off)
+    {
+        final GeneratorContext context = generate(internalId);
+        UUIDBits.put(context.mMsb, context.mLsb, dst, off);
+    }
+
+    /**
+     * Generate a version 5 UUID into a byte buffer as 16 bytes in big-endian order.
+     * The bytes are written at the current position, which is advanced by 16.
+     * <p>
+     * A {@link String} internal ID has to be passed as {@link CharSequence}, otherwise the call
+     * resolves to the static {@link #generateUUID(String, ByteBuffer)}, which hashes the buffer.
+     *
+     * @param internalId internal ID (scheme-specific part)
+     * @param dst destination buffer
+     */
+    public void generateUUID(final CharSequence internalId, final ByteBuffer dst)
+    {
+        final GeneratorContext context = generate(internalId);
+        UUIDBits.put(context.mMsb, context.mLsb, dst);
+    }
+
+    /**
+     * Generate a version 5 UUID in its canonical text form without creating a {@link UUID} object.
+     * The hashed name part is prefix:internalId where prefix has been
+     * defined during object instantiation.
+     *
+     * @param internalId internal ID (scheme-specific part)
+     * @return text form of the generated version 5 UUID
+     */
+    public String generateUUIDString(final CharSequence internalId)
+    {
+        final GeneratorContext context = generate(internalId);
+        return context.uuidString();
+    }
+
+    /**
+     * @return cache of generated UUIDs shared with other processes used by this instance, null if not used
+     */
+    public SharedUUIDCache getSharedCache()
+    {
+        return mSharedCache;
+    }
+
+    /**
+     * Generate a version 5 UUID with the prefix of this instance, looking it up in the caches first.
+     * UUIDs found in a cache are recorded in the {@link UUIDMetrics} like generated ones, without hashed bytes.
+     *
+     * @param internalId internal ID (scheme-specific part)
+     * @return context of the calling thread holding the UUID
+     */
+    private GeneratorContext generate(final CharSequence internalId)
+    {
+        final long start = UUIDMetrics.ENABLED ? System.nanoTime() : 0L;
+        final GeneratorContext context = CONTEXT.get();
+        if (null != mCache && mCache.get(mPrefix, internalId, context)) {
+            if (UUIDMetrics.ENABLED) {
+                UUIDMetrics.record(mPrefix, 1, 0, System.nanoTime() - start);
+            }
+            return context;
+        }
+        if (null == mSharedCache) {
+            context.generate(mPrefix, internalId, mEngine);
+        } else if (!mSharedCache.get(mPrefix, internalId, context)) {
+            context.generate(mPrefix, internalId, mEngine);
+            mSharedCache.put(context);
+        } else if (UUIDMetrics.ENABLED) {
+            UUIDMetrics.record(mPrefix, 1, 0, System.nanoTime() - start);
+        }
+        if (null != mCache) {
+            mCache.put(mPrefix, internalId, context.mMsb, context.mLsb);
+        }
+        return context;
+    }
+
+    /**
+     * Generate version 5 UUIDs for an array of internal IDs.
+     * The contents of {@code out} are replaced with the UUID of {@code ids[i]} at index i.
+     *
+     * @param ids internal IDs
+     * @param out batch receiving the UUIDs
+     */
+    public void generateBatch(final CharSequence[] ids, final UUIDBatch out)
+    {
+        generateBatch(mPrefix, ids, 0, ids.length, mEngine, out);
+    }
+
+    /**
+     * Generate version 5 UUIDs for a range of an array of internal IDs.
+     * The contents of {@code out} are replaced with the UUID of {@code ids[from + i]} at index i.
+     *
+     * @param ids internal IDs
+     * @param from index of the first internal ID
+     * @param to end index of the internal IDs (exclusive)
+     * @param out batch receiving the UUIDs
+     */
+    public void generateBatch(final CharSequence[] ids, final int from, final int to, final UUIDBatch out)
+    {
+        generateBatch(mPrefix, ids, from, to, mEngine, out);
+    }
+
+    /**
+     * Generate version 5 UUIDs for a list or any other iterable of internal IDs.
+     * The contents of {@code out} are replaced with the UUIDs in iteration order.
+     *
+     * @param ids internal IDs
+     * @param out batch receiving the UUIDs
+     */
+    public void generateBatch(final Iterable<? extends CharSequence> ids, final UUIDBatch out)
+    {
+        generateBatch(mPrefix, ids, mEngine, out);
+    }
+
+    /**
+     * Generate version 5 UUIDs for all remaining internal IDs of an iterator.
+     * The contents of {@code out} are replaced with the UUIDs in iteration order.
+     *
+     * @param ids internal IDs
+     * @param out batch receiving the UUIDs
+     */
+    public void generateBatch(final Iterator<? extends CharSequence> ids, final UUIDBatch out)
+    {
+        out.clear();
+        generateBatch(mPrefix, ids, mEngine, out);
+    }
+
+    /**
+     * Generate version 5 UUIDs for an array of internal IDs in parallel on the common fork-join pool.
+     * See {@link #generateParallel(String, CharSequence[], long[], long[], ForkJoinPool)}.
+     *
+     * @param ids internal IDs
+     * @param msb preallocated output array for the most significant bits
+     * @param lsb preallocated output array for the least significant bits
+     */
+    public void generateParallel(final CharSequence[] ids, final long[] msb, final long[] lsb)
+    {
+        generateParallel(ids, msb, lsb, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generate version 5 UUIDs for an array of internal IDs in parallel on a fork-join pool.
+     * See {@link #generateParallel(String, CharSequence[], long[], long[], ForkJoinPool)}.
+     *
+     * @param ids internal IDs
+     * @param msb preallocated output array for the most significant bits
+     * @param lsb preallocated output array for the least significant bits
+     * @param pool pool to run on
+     */
+    public void generateParallel(final CharSequence[] ids, final long[] msb, final long[] lsb,
+                                 final ForkJoinPool pool)
+    {
+        generateParallel(mPrefix, ids, mEngine, msb, lsb, pool);
     }
 
     /**
@@ -83,52 +466,462 @@ public class WebisUUID
      */
     public static UUID generateUUID(final String prefix, final String internalId)
     {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA1");
-            md.update(UUID_NAMESPACE_URL);
-            md.update((prefix + ":" + internalId).getBytes());
-            final byte[] digest = md.digest();
-            final byte[] shortened = new byte[16];
-            System.arraycopy(digest, 0, shortened, 0, 16);
-
-            // set version
-            shortened[6] &= 0x0f;
-            shortened[6] |= 0x50;
-
-            // set variant
-            shortened[8] &= 0x3f;
-            shortened[8] |= 0x80;
-
-            // format string
-            final String encodedHex = Hex.encodeHexString(shortened);
-            final StringBuilder strBuilder = new StringBuilder();
-            for (int i = 0; i < encodedHex.length(); ++i) {
-                if (8 == i || 12 == i || 16 == i || 20 == i) {
-                    strBuilder.append("-");
-                }
-                strBuilder.append(encodedHex.charAt(i));
-            }
+        return generateUUID(prefix, (CharSequence) internalId);
+    }
+
+    /**
+     * Generate a version 5 UUID.
+     * The hashed name part is prefix:internalId.
+     *
+     * @param prefix the scheme prefix
+     * @param internalId internal ID (scheme-specific part)
+     * @return generated version 5 UUID
+     */
+    public static UUID generateUUID(final String prefix, final CharSequence internalId)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        context.generate(context.resolve(prefix), internalId, SingleNameEngineHolder.ENGINE);
+        return new UUID(context.mMsb, context.mLsb);
+    }
+
+    /**
+     * Generate a version 5 UUID from an encoded internal ID.
+     * The hashed name part is prefix:internalId. The internal ID bytes are hashed as they are,
+     * so they should be UTF-8 encoded to obtain the same UUIDs as for the equivalent string.
+     *
+     * @param prefix the scheme prefix
+     * @param buf buffer holding the encoded internal ID
+     * @param off offset of the internal ID in {@code buf}
+     * @param len length of the internal ID in bytes
+     * @return generated version 5 UUID
+     */
+    public static UUID generateUUID(final String prefix, final byte[] buf, final int off, final int len)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        context.generate(context.resolve(prefix), buf, off, len, SingleNameEngineHolder.ENGINE);
+        return new UUID(context.mMsb, context.mLsb);
+    }
+
+    /**
+     * Generate a version 5 UUID from an encoded internal ID.
+     * The hashed name part is prefix:internalId. The remaining bytes of the buffer are
+     * hashed as they are, the buffer position is not changed.
+     *
+     * @param prefix the scheme prefix
+     * @param internalId buffer holding the encoded internal ID
+     * @return generated version 5 UUID
+     */
+    public static UUID generateUUID(final String prefix, final ByteBuffer internalId)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        context.generate(context.resolve(prefix), internalId, SingleNameEngineHolder.ENGINE);
+        return new UUID(context.mMsb, context.mLsb);
+    }
+
+    /**
+     * Generate a version 5 UUID into a reusable holder.
+     * The hashed name part is prefix:internalId.
+     *
+     * @param prefix the scheme prefix
+     * @param internalId internal ID (scheme-specific part)
+     * @param out holder receiving the UUID bits
+     */
+    public static void generateUUID(final String prefix, final CharSequence internalId, final MutableUUID out)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        context.generate(context.resolve(prefix), internalId, SingleNameEngineHolder.ENGINE);
+        out.set(context.mMsb, context.mLsb);
+    }
+
+    /**
+     * Generate a version 5 UUID from an encoded internal ID into a reusable holder.
+     * The hashed name part is prefix:internalId.
+     *
+     * @param prefix the scheme prefix
+     * @param buf buffer holding the UTF-8 encoded internal ID
+     * @param off offset of the internal ID in {@code buf}
+     * @param len length of the internal ID in bytes
+     * @param out holder receiving the UUID bits
+     */
+    public static void generateUUID(final String prefix, final byte[] buf, final int off, final int len,
+                                    final MutableUUID out)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        context.generate(context.resolve(prefix), buf, off, len, SingleNameEngineHolder.ENGINE);
+        out.set(context.mMsb, context.mLsb);
+    }
+
+    /**
+     * Generate a version 5 UUID from an encoded internal ID into a reusable holder.
+     * The hashed name part is prefix:internalId. The buffer position is not changed.
+     *
+     * @param prefix the scheme prefix
+     * @param internalId buffer holding the UTF-8 encoded internal ID
+     * @param out holder receiving the UUID bits
+     */
+    public static void generateUUID(final String prefix, final ByteBuffer internalId, final MutableUUID out)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        context.generate(context.resolve(prefix), internalId, SingleNameEngineHolder.ENGINE);
+        out.set(context.mMsb, context.mLsb);
+    }
+
+    /**
+     * Generate a version 5 UUID into a long array.
+     * The most significant bits are stored at {@code dst[index]}, the least significant
+     * bits at {@code dst[index + 1]}.
+     *
+     * @param prefix the scheme prefix
+     * @param internalId internal ID (scheme-specific part)
+     * @param dst destination array
+     * @param index index of the most significant bits
+     */
+    public static void generateUUID(final String prefix, final CharSequence internalId, final long[] dst,
+                                    final int index)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        context.generate(context.resolve(prefix), internalId, SingleNameEngineHolder.ENGINE);
+        dst[index] = context.mMsb;
+        dst[index + 1] = context.mLsb;
+    }
+
+    /**
+     * Generate a version 5 UUID into a byte array as 16 bytes in big-endian order.
+     *
+     * @param prefix the scheme prefix
+     * @param internalId internal ID (scheme-specific part)
+     * @param dst destination array
+     * @param off offset of the first byte to write
+     */
+    public static void generateUUID(final String prefix, final CharSequence internalId, final byte[] dst,
+                                    final int off)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        context.generate(context.resolve(prefix), internalId, SingleNameEngineHolder.ENGINE);
+        UUIDBits.put(context.mMsb, context.mLsb, dst, off);
+    }
+
+    /**
+     * Generate a version 5 UUID into a byte buffer as 16 bytes in big-endian order.
+     * The bytes are written at the current position, which is advanced by 16.
+     *
+     * @param prefix the scheme prefix
+     * @param internalId internal ID (scheme-specific part)
+     * @param dst destination buffer
+     */
+    public static void generateUUID(final String prefix, final CharSequence internalId, final ByteBuffer dst)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        context.generate(context.resolve(prefix), internalId, SingleNameEngineHolder.ENGINE);
+        UUIDBits.put(context.mMsb, context.mLsb, dst);
+    }
+
+    /**
+     * Generate a version 5 UUID in its canonical text form without creating a {@link UUID} object.
+     * The hashed name part is prefix:internalId.
+     *
+     * @param prefix the scheme prefix
+     * @param internalId internal ID (scheme-specific part)
+     * @return text form of the generated version 5 UUID
+     */
+    public static String generateUUIDString(final String prefix, final CharSequence internalId)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        context.generate(context.resolve(prefix), internalId, SingleNameEngineHolder.ENGINE);
+        return context.uuidString();
+    }
+
+    /**
+     * Generate version 5 UUIDs for an array of internal IDs.
+     * The contents of {@code out} are replaced with the UUID of {@code ids[i]} at index i.
+     *
+     * @param prefix the scheme prefix
+     * @param ids internal IDs
+     * @param out batch receiving the UUIDs
+     */
+    public static void generateBatch(final String prefix, final CharSequence[] ids, final UUIDBatch out)
+    {
+        generateBatch(NamePrefix.of(prefix), ids, 0, ids.length, EngineHolder.ENGINE, out);
+    }
 
-            return UUID.fromString(strBuilder.toString());
-        } catch (NoSuchAlgorithmException ignored) {
-            // should never happen
-            return UUID.fromString("00000000-0000-0000-0000-000000000000");
+    /**
+     * Generate version 5 UUIDs for a range of an array of internal IDs.
+     * The contents of {@code out} are replaced with the UUID of {@code ids[from + i]} at index i.
+     *
+     * @param prefix the scheme prefix
+     * @param ids internal IDs
+     * @param from index of the first internal ID
+     * @param to end index of the internal IDs (exclusive)
+     * @param out batch receiving the UUIDs
+     */
+    public static void generateBatch(final String prefix, final CharSequence[] ids, final int from, final int to,
+                                     final UUIDBatch out)
+    {
+        generateBatch(NamePrefix.of(prefix), ids, from, to, EngineHolder.ENGINE, out);
+    }
+
+    /**
+     * Generate version 5 UUIDs for a list or any other iterable of internal IDs.
+     * The contents of {@code out} are replaced with the UUIDs in iteration order.
+     *
+     * @param prefix the scheme prefix
+     * @param ids internal IDs
+     * @param out batch receiving the UUIDs
+     */
+    public static void generateBatch(final String prefix, final Iterable<? extends CharSequence> ids,
+                                     final UUIDBatch out)
+    {
+        generateBatch(NamePrefix.of(prefix), ids, EngineHolder.ENGINE, out);
+    }
+
+    /**
+     * Generate version 5 UUIDs for all remaining internal IDs of an iterator.
+     * The contents of {@code out} are replaced with the UUIDs in iteration order.
+     *
+     * @param prefix the scheme prefix
+     * @param ids internal IDs
+     * @param out batch receiving the UUIDs
+     */
+    public static void generateBatch(final String prefix, final Iterator<? extends CharSequence> ids,
+                                     final UUIDBatch out)
+    {
+        out.clear();
+        generateBatch(NamePrefix.of(prefix), ids, EngineHolder.ENGINE, out);
+    }
+
+    /**
+     * Fill a batch with the UUIDs of a range of internal IDs.
+     *
+     * @param prefix precomputed scheme prefix
+     * @param ids internal IDs
+     * @param from index of the first internal ID
+     * @param to end index of the internal IDs (exclusive)
+     * @param engine SHA-1 engine
+     * @param out batch receiving the UUIDs
+     */
+    private static void generateBatch(final NamePrefix prefix, final CharSequence[] ids, final int from,
+                                      final int to, final HashEngine engine, final UUIDBatch out)
+    {
+        if (from < 0 || to > ids.length || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + ids.length);
+        }
+        out.clear();
+        out.ensureCapacity(to - from);
+        final GeneratorContext context = CONTEXT.get();
+        final long bytes = context.mEncodedBytes;
+        final Object event = FlightEvents.beginBatch();
+        context.generate(prefix, ids, from, to, engine, out.mostSignificantBits(), out.leastSignificantBits(), 0);
+        out.setSize(to - from);
+        FlightEvents.commitBatch(event, prefix, "batch", engine, to - from, context.mEncodedBytes - bytes);
+    }
+
+    /**
+     * Fill a batch with the UUIDs of an iterable of internal IDs.
+     *
+     * @param prefix precomputed scheme prefix
+     * @param ids internal IDs
+     * @param engine SHA-1 engine
+     * @param out batch receiving the UUIDs
+     */
+    private static void generateBatch(final NamePrefix prefix, final Iterable<? extends CharSequence> ids,
+                                      final HashEngine engine, final UUIDBatch out)
+    {
+        out.clear();
+        if (ids instanceof Collection) {
+            out.ensureCapacity(((Collection<?>) ids).size());
         }
+        generateBatch(prefix, ids.iterator(), engine, out);
+    }
+
+    /**
+     * Append the UUIDs of all remaining internal IDs of an iterator to a batch.
+     *
+     * @param prefix precomputed scheme prefix
+     * @param ids internal IDs
+     * @param engine SHA-1 engine
+     * @param out batch receiving the UUIDs
+     */
+    private static void generateBatch(final NamePrefix prefix, final Iterator<? extends CharSequence> ids,
+                                      final HashEngine engine, final UUIDBatch out)
+    {
+        final GeneratorContext context = CONTEXT.get();
+        final long bytes = context.mEncodedBytes;
+        final Object event = FlightEvents.beginBatch();
+        context.generate(prefix, ids, engine, out);
+        FlightEvents.commitBatch(event, prefix, "batch", engine, out.size(), context.mEncodedBytes - bytes);
+    }
+
+    /**
+     * Generate version 5 UUIDs for an array of internal IDs in parallel on the common fork-join pool.
+     * See {@link #generateParallel(String, CharSequence[], long[], long[], ForkJoinPool)}.
+     *
+     * @param prefix the scheme prefix
+     * @param ids internal IDs
+     * @param msb preallocated output array for the most significant bits
+     * @param lsb preallocated output array for the least significant bits
+     */
+    public static void generateParallel(final String prefix, final CharSequence[] ids, final long[] msb,
+                                        final long[] lsb)
+    {
+        generateParallel(prefix, ids, msb, lsb, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generate version 5 UUIDs for an array of internal IDs in parallel on a fork-join pool.
+     * The UUID of {@code ids[i]} is stored in {@code msb[i]} and {@code lsb[i]}. The call returns
+     * once all UUIDs have been generated.
+     * <p>
+     * The input is split into contiguous ranges of at least 1024 IDs, about four per worker.
+     * Every worker hashes with its own per-thread context and writes to its own part of the
+     * output arrays, so the only shared data is the read-only input. For arrays of only a few
+     * thousand IDs, the task overhead outweighs the gain and the batch API is the better choice.
+     * <p>
+     * How throughput scales with the number of cores has not been measured. More workers than
+     * cores cannot increase throughput, so pools should have at most one worker per core.
+     *
+     * @param prefix the scheme prefix
+     * @param ids internal IDs
+     * @param msb preallocated output array for the most significant bits
+     * @param lsb preallocated output array for the least significant bits
+     * @param pool pool to run on
+     */
+    public static void generateParallel(final String prefix, final CharSequence[] ids, final long[] msb,
+                                        final long[] lsb, final ForkJoinPool pool)
+    {
+        generateParallel(NamePrefix.of(prefix), ids, EngineHolder.ENGINE, msb, lsb, pool);
+    }
+
+    /**
+     * Run a parallel generation task.
+     *
+     * @param prefix precomputed scheme prefix
+     * @param ids internal IDs
+     * @param engine SHA-1 engine
+     * @param msb preallocated output array for the most significant bits
+     * @param lsb preallocated output array for the least significant bits
+     * @param pool pool to run on
+     */
+    private static void generateParallel(final NamePrefix prefix, final CharSequence[] ids, final HashEngine engine,
+                                         final long[] msb, final long[] lsb, final ForkJoinPool pool)
+    {
+        if (msb.length < ids.length || lsb.length < ids.length) {
+            throw new IllegalArgumentException("Output arrays are shorter than the input array.");
+        }
+        final Object event = FlightEvents.beginBatch();
+        final ParallelGenerator task = new ParallelGenerator(prefix, ids, engine, msb, lsb, pool.getParallelism());
+        pool.invoke(task);
+        FlightEvents.commitBatch(event, prefix, "parallel", engine, ids.length, task.encodedBytes());
+    }
+
+    /**
+     * @return generation context of the calling thread
+     */
+    static GeneratorContext context()
+    {
+        return CONTEXT.get();
+    }
+
+    /**
+     * Lazy holder for the default engine, so that calibration only runs once it is needed.
+     */
+    private static final class EngineHolder
+    {
+        static final HashEngine ENGINE = HashEngine.configured();
+    }
+
+    /**
+     * Lazy holder for the engine of the static methods generating a single UUID, which never calibrate.
+     */
+    private static final class SingleNameEngineHolder
+    {
+        static final HashEngine ENGINE = HashEngine.configuredForSingleNames();
     }
 
     /**
      * Command line interface for generating UUIDs.
+     * Generates a single UUID for a prefix and an internal ID or, with {@code --stream},
+     * one record per line of newline-separated internal IDs read from a file or standard input.
+     * With {@code --bulk}, a file of internal IDs is memory-mapped and processed on multiple
+     * threads ({@code --threads}, all available processors by default). Both modes write
+     * records in the format selected with {@code --format} (see {@link OutputFormat}).
      *
      * @param args command line arguments.
      */
     public static void main(final String[] args)
     {
-        if (2 != args.length) {
-            System.err.println("ERROR: Missing arguments!");
-            System.err.println("Usage: webis-uuid.jar PREFIX INTERNAL_ID");
+        final boolean stream = 0 < args.length && "--stream".equals(args[0]);
+        final boolean bulk = 0 < args.length && "--bulk".equals(args[0]);
+        if (!stream && !bulk) {
+            if (2 != args.length) {
+                usageError("Missing arguments!");
+            }
+            System.out.println(generateUUID(args[0], args[1]).toString());
+            return;
+        }
+
+        OutputFormat format = OutputFormat.UUID;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int arg = 1;
+        while (arg < args.length && args[arg].startsWith("--")) {
+            if (arg + 1 == args.length) {
+                usageError("Missing value for " + args[arg] + "!");
+            }
+            final String value = args[arg + 1];
+            if ("--format".equals(args[arg])) {
+                try {
+                    format = OutputFormat.of(value);
+                } catch (IllegalArgumentException e) {
+                    usageError("Invalid format: " + value);
+                }
+            } else if (bulk && "--threads".equals(args[arg])) {
+                try {
+                    threads = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    threads = 0;
+                }
+                if (threads < 1) {
+                    usageError("Invalid number of threads: " + value);
+                }
+            } else {
+                usageError("Unknown option: " + args[arg]);
+            }
+            arg += 2;
+        }
+
+        final int operands = args.length - arg;
+        if (stream ? (1 != operands && 2 != operands) : 3 != operands) {
+            usageError("Missing arguments!");
+        }
+        final WebisUUID generator = new WebisUUID(args[arg]);
+        try {
+            if (stream) {
+                try (InputStream in = 2 == operands
+                        ? new FileInputStream(args[arg + 1])
+                        : new FileInputStream(FileDescriptor.in)) {
+                    new StreamGenerator(generator, format).run(in, new FileOutputStream(FileDescriptor.out));
+                }
+            } else {
+                new BulkGenerator(generator, format, threads)
+                        .run(Paths.get(args[arg + 1]), Paths.get(args[arg + 2]));
+            }
+        } catch (IOException e) {
+            System.err.println("ERROR: " + e.getMessage());
             System.exit(1);
         }
+    }
 
-        System.out.println(generateUUID(args[0], args[1]).toString());
+    /**
+     * Print an error message and the command line usage and exit.
+     *
+     * @param message error message
+     */
+    private static void usageError(final String message)
+    {
+        System.err.println("ERROR: " + message);
+        System.err.println("Usage: webis-uuid.jar PREFIX INTERNAL_ID");
+        System.err.println("       webis-uuid.jar --stream [--format FORMAT] PREFIX [INPUT_FILE]");
+        System.err.println("       webis-uuid.jar --bulk [--format FORMAT] [--threads N] PREFIX INPUT_FILE OUTPUT_FILE");
+        System.err.println("FORMAT: uuid (default), tsv, jsonl or binary");
+        System.exit(1);
     }
 }
@@ -0,0 +1,68 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Atomic access to longs in direct byte buffers, which are atomic across processes if the buffers
+ * are mappings of the same file. Values are stored in big-endian byte order like with
+ * {@link ByteBuffer#getLong(int)}, so that atomic and plain accesses can be mixed.
+ * This is the Java 11 version of the class, which uses a byte buffer view {@link VarHandle}.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class AtomicBuffers
+{
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private AtomicBuffers()
+    {
+    }
+
+    static boolean isAvailable()
+    {
+        return true;
+    }
+
+    static long getLongVolatile(final ByteBuffer buffer, final int index)
+    {
+        return (long) LONGS.getVolatile(buffer, index);
+    }
+
+    static void putLongVolatile(final ByteBuffer buffer, final int index, final long value)
+    {
+        LONGS.setVolatile(buffer, index, value);
+    }
+
+    static boolean compareAndSetLong(final ByteBuffer buffer, final int index, final long expected, final long value)
+    {
+        return LONGS.compareAndSet(buffer, index, expected, value);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+/**
+ * Java Flight Recorder events of UUID generation.
+ * This is the Java 11 version of the class, which emits the {@code jdk.jfr} events of {@link JfrEvents}.
+ * Runtime images can be built without the {@code jdk.jfr} module, in which case no events are emitted
+ * like with the Java 8 version and {@link JfrEvents} is never loaded.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class FlightEvents
+{
+    static final String STAGE_READ = "read";
+    static final String STAGE_HASH = "hash";
+    static final String STAGE_WRITE = "write";
+
+    private static final boolean AVAILABLE = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    private FlightEvents()
+    {
+    }
+
+    static Object beginBatch()
+    {
+        return AVAILABLE ? JfrEvents.beginBatch() : null;
+    }
+
+    static void commitBatch(final Object event, final NamePrefix prefix, final String mode, final HashEngine engine,
+                            final long count, final long bytes)
+    {
+        if (null != event) {
+            JfrEvents.commitBatch(event, prefix, mode, engine, count, bytes);
+        }
+    }
+
+    static Object beginStage()
+    {
+        return AVAILABLE ? JfrEvents.beginStage() : null;
+    }
+
+    static void commitStage(final Object event, final String stage, final long lines, final long bytes)
+    {
+        if (null != event) {
+            JfrEvents.commitStage(event, stage, lines, bytes);
+        }
+    }
+
+    static void prefixLookup(final boolean hit)
+    {
+        if (AVAILABLE) {
+            JfrEvents.prefixLookup(hit);
+        }
+    }
+
+    static void cacheLookup(final boolean hit)
+    {
+        if (AVAILABLE) {
+            JfrEvents.cacheLookup(hit);
+        }
+    }
+}
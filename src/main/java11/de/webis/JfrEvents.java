@@ -0,0 +1,231 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder events of UUID generation, emitted through {@link FlightEvents}. There are events
+ * for batch generation, the stages of the command line tool and, periodically, prefix registry and UUID cache
+ * statistics. Lookups are only
+ * counted while the periodic events are enabled, so the hot path does not pay for them otherwise. Duration events
+ * have a default threshold, so that only calls long enough to matter in a timeline are recorded.
+ * Thresholds can be changed in the recording settings like for any other event.
+ * <p>
+ * This class links against {@code jdk.jfr}, so it must only be loaded if that module is present.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class JfrEvents
+{
+    private static final EventType BATCH_TYPE = EventType.getEventType(BatchEvent.class);
+    private static final EventType STAGE_TYPE = EventType.getEventType(StageEvent.class);
+    private static final EventType PREFIX_REGISTRY_TYPE = EventType.getEventType(PrefixRegistryEvent.class);
+    private static final EventType CACHE_TYPE = EventType.getEventType(CacheEvent.class);
+
+    private static final LongAdder PREFIX_HITS = new LongAdder();
+    private static final LongAdder PREFIX_MISSES = new LongAdder();
+    private static final LongAdder CACHE_HITS = new LongAdder();
+    private static final LongAdder CACHE_MISSES = new LongAdder();
+
+    static {
+        FlightRecorder.addPeriodicEvent(PrefixRegistryEvent.class, () -> {
+            final PrefixRegistryEvent event = new PrefixRegistryEvent();
+            event.hits = PREFIX_HITS.sum();
+            event.misses = PREFIX_MISSES.sum();
+            event.size = NamePrefix.registrySize();
+            event.commit();
+        });
+        FlightRecorder.addPeriodicEvent(CacheEvent.class, () -> {
+            final CacheEvent event = new CacheEvent();
+            event.hits = CACHE_HITS.sum();
+            event.misses = CACHE_MISSES.sum();
+            event.commit();
+        });
+    }
+
+    private JfrEvents()
+    {
+    }
+
+    static Object beginBatch()
+    {
+        if (!BATCH_TYPE.isEnabled()) {
+            return null;
+        }
+        final BatchEvent event = new BatchEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitBatch(final Object event, final NamePrefix prefix, final String mode, final HashEngine engine,
+                            final long count, final long bytes)
+    {
+        if (null == event) {
+            return;
+        }
+        final BatchEvent batch = (BatchEvent) event;
+        batch.end();
+        if (batch.shouldCommit()) {
+            batch.prefix = prefix.mPrefix;
+            batch.mode = mode;
+            batch.engine = engine.name();
+            batch.count = count;
+            batch.bytes = bytes;
+            batch.commit();
+        }
+    }
+
+    static Object beginStage()
+    {
+        if (!STAGE_TYPE.isEnabled()) {
+            return null;
+        }
+        final StageEvent event = new StageEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitStage(final Object event, final String stage, final long lines, final long bytes)
+    {
+        if (null == event) {
+            return;
+        }
+        final StageEvent stageEvent = (StageEvent) event;
+        stageEvent.end();
+        if (stageEvent.shouldCommit()) {
+            stageEvent.stage = stage;
+            stageEvent.lines = lines;
+            stageEvent.bytes = bytes;
+            stageEvent.commit();
+        }
+    }
+
+    static void prefixLookup(final boolean hit)
+    {
+        // lookups are only counted while the event is recorded, so they cost nothing otherwise
+        if (PREFIX_REGISTRY_TYPE.isEnabled()) {
+            (hit ? PREFIX_HITS : PREFIX_MISSES).increment();
+        }
+    }
+
+    static void cacheLookup(final boolean hit)
+    {
+        if (CACHE_TYPE.isEnabled()) {
+            (hit ? CACHE_HITS : CACHE_MISSES).increment();
+        }
+    }
+
+    @Name("de.webis.uuid.BatchGeneration")
+    @Label("UUID Batch Generation")
+    @Description("Generation of a batch of UUIDs or of one range of a parallel generation")
+    @Category({ "Webis", "UUID" })
+    @Threshold("1 ms")
+    static final class BatchEvent extends Event
+    {
+        @Label("Prefix")
+        String prefix;
+
+        @Label("Mode")
+        @Description("batch, parallel or parallel-task")
+        String mode;
+
+        @Label("Engine")
+        String engine;
+
+        @Label("UUIDs")
+        long count;
+
+        @Label("Input Size")
+        @Description("Encoded size of the internal IDs")
+        @DataAmount(DataAmount.BYTES)
+        long bytes;
+    }
+
+    @Name("de.webis.uuid.CommandLineStage")
+    @Label("UUID Command Line Stage")
+    @Description("Reading, hashing or writing a buffer in the command line tool")
+    @Category({ "Webis", "UUID" })
+    @Threshold("10 ms")
+    @StackTrace(false)
+    static final class StageEvent extends Event
+    {
+        @Label("Stage")
+        String stage;
+
+        @Label("Lines")
+        long lines;
+
+        @Label("Bytes")
+        @DataAmount(DataAmount.BYTES)
+        long bytes;
+    }
+
+    @Name("de.webis.uuid.PrefixRegistry")
+    @Label("UUID Prefix Registry")
+    @Description("Cumulative lookups in the shared prefix registry while this event is enabled")
+    @Category({ "Webis", "UUID" })
+    @Period("1 s")
+    @StackTrace(false)
+    static final class PrefixRegistryEvent extends Event
+    {
+        @Label("Hits")
+        long hits;
+
+        @Label("Misses")
+        long misses;
+
+        @Label("Size")
+        long size;
+    }
+
+    @Name("de.webis.uuid.Cache")
+    @Label("UUID Cache")
+    @Description("Cumulative lookups in all UUID caches while this event is enabled")
+    @Category({ "Webis", "UUID" })
+    @Period("1 s")
+    @StackTrace(false)
+    static final class CacheEvent extends Event
+    {
+        @Label("Hits")
+        long hits;
+
+        @Label("Misses")
+        long misses;
+    }
+}
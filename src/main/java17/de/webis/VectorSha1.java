@@ -0,0 +1,169 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Multi-buffer SHA-1 engine based on the Java Vector API.
+ * Hashes as many messages as the preferred vector shape has 32-bit lanes, e.g. eight with
+ * AVX2 and sixteen with AVX-512, by running the compression function on all lanes at once.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+final class VectorSha1 extends MultiBufferSha1
+{
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private static final int LANES = SPECIES.length();
+
+    /**
+     * Expanded message schedule of the current block, interleaved like the input words.
+     */
+    private final int[] mSchedule = new int[80 * LANES];
+
+    private final int[] mH0 = new int[LANES];
+    private final int[] mH1 = new int[LANES];
+    private final int[] mH2 = new int[LANES];
+    private final int[] mH3 = new int[LANES];
+
+    @Override
+    int lanes()
+    {
+        return LANES;
+    }
+
+    @Override
+    void digest(final int[] state, final int[] words, final int blocks, final long[] msb, final long[] lsb,
+                final int off)
+    {
+        IntVector h0 = IntVector.broadcast(SPECIES, state[0]);
+        IntVector h1 = IntVector.broadcast(SPECIES, state[1]);
+        IntVector h2 = IntVector.broadcast(SPECIES, state[2]);
+        IntVector h3 = IntVector.broadcast(SPECIES, state[3]);
+        IntVector h4 = IntVector.broadcast(SPECIES, state[4]);
+
+        final int[] w = mSchedule;
+        for (int block = 0; block < blocks; ++block) {
+            System.arraycopy(words, block * 16 * LANES, w, 0, 16 * LANES);
+            for (int t = 16; t < 80; ++t) {
+                IntVector.fromArray(SPECIES, w, (t - 3) * LANES)
+                        .lanewise(VectorOperators.XOR, IntVector.fromArray(SPECIES, w, (t - 8) * LANES))
+                        .lanewise(VectorOperators.XOR, IntVector.fromArray(SPECIES, w, (t - 14) * LANES))
+                        .lanewise(VectorOperators.XOR, IntVector.fromArray(SPECIES, w, (t - 16) * LANES))
+                        .lanewise(VectorOperators.ROL, 1)
+                        .intoArray(w, t * LANES);
+            }
+
+            IntVector a = h0;
+            IntVector b = h1;
+            IntVector c = h2;
+            IntVector d = h3;
+            IntVector e = h4;
+            IntVector f;
+            IntVector temp;
+
+            for (int t = 0; t < 20; ++t) {
+                // Ch(b, c, d) = (b & c) | (~b & d), written as d ^ (b & (c ^ d))
+                f = d.lanewise(VectorOperators.XOR,
+                        b.lanewise(VectorOperators.AND, c.lanewise(VectorOperators.XOR, d)));
+                temp = round(a, f, e, w, t, 0x5a827999);
+                e = d;
+                d = c;
+                c = b.lanewise(VectorOperators.ROL, 30);
+                b = a;
+                a = temp;
+            }
+            for (int t = 20; t < 40; ++t) {
+                f = b.lanewise(VectorOperators.XOR, c).lanewise(VectorOperators.XOR, d);
+                temp = round(a, f, e, w, t, 0x6ed9eba1);
+                e = d;
+                d = c;
+                c = b.lanewise(VectorOperators.ROL, 30);
+                b = a;
+                a = temp;
+            }
+            for (int t = 40; t < 60; ++t) {
+                // Maj(b, c, d) = (b & c) | (b & d) | (c & d), written as (b & c) | (d & (b | c))
+                f = b.lanewise(VectorOperators.AND, c).lanewise(VectorOperators.OR,
+                        d.lanewise(VectorOperators.AND, b.lanewise(VectorOperators.OR, c)));
+                temp = round(a, f, e, w, t, 0x8f1bbcdc);
+                e = d;
+                d = c;
+                c = b.lanewise(VectorOperators.ROL, 30);
+                b = a;
+                a = temp;
+            }
+            for (int t = 60; t < 80; ++t) {
+                f = b.lanewise(VectorOperators.XOR, c).lanewise(VectorOperators.XOR, d);
+                temp = round(a, f, e, w, t, 0xca62c1d6);
+                e = d;
+                d = c;
+                c = b.lanewise(VectorOperators.ROL, 30);
+                b = a;
+                a = temp;
+            }
+
+            h0 = h0.add(a);
+            h1 = h1.add(b);
+            h2 = h2.add(c);
+            h3 = h3.add(d);
+            h4 = h4.add(e);
+        }
+
+        h0.intoArray(mH0, 0);
+        h1.intoArray(mH1, 0);
+        h2.intoArray(mH2, 0);
+        h3.intoArray(mH3, 0);
+        for (int l = 0; l < LANES; ++l) {
+            msb[off + l] = ((long) mH0[l] << 32) | (mH1[l] & 0xffffffffL);
+            lsb[off + l] = ((long) mH2[l] << 32) | (mH3[l] & 0xffffffffL);
+        }
+    }
+
+    /**
+     * Compute the new value of working variable a for one round on all lanes.
+     *
+     * @param a working variable a
+     * @param f round function of b, c and d
+     * @param e working variable e
+     * @param w message schedule
+     * @param t round number
+     * @param k round constant
+     * @return rotl(a, 5) + f + e + w[t] + k
+     */
+    private static IntVector round(final IntVector a, final IntVector f, final IntVector e, final int[] w,
+                                   final int t, final int k)
+    {
+        return a.lanewise(VectorOperators.ROL, 5)
+                .add(f)
+                .add(e)
+                .add(IntVector.fromArray(SPECIES, w, t * LANES))
+                .add(k);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that the bulk generator writes the same records in the same order as the stream generator
+ * for any number of threads, i.e. chunks, independent of where the chunk boundaries fall.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+class BulkGeneratorTest
+{
+    private static final int[] THREADS = { 1, 2, 3, 7, 16, 64 };
+
+    @TempDir
+    Path mDir;
+
+    private byte[] run(final OutputFormat format, final byte[] input, final int threads, final long expectedLines)
+            throws Exception
+    {
+        final Path in = mDir.resolve("input.txt");
+        final Path out = mDir.resolve("output");
+        Files.write(in, input);
+        final WebisUUID generator = new WebisUUID(StreamGeneratorTest.PREFIX);
+        assertEquals(expectedLines, new BulkGenerator(generator, format, threads).run(in, out));
+        return Files.readAllBytes(out);
+    }
+
+    @ParameterizedTest
+    @EnumSource(OutputFormat.class)
+    void recordsMatchSingleNameAPIForAnyThreadCount(final OutputFormat format) throws Exception
+    {
+        final List<String> lines = StreamGeneratorTest.lines();
+        final byte[] expected = StreamGeneratorTest.expected(format, lines);
+        for (final int threads : THREADS) {
+            assertArrayEquals(expected, run(format, StreamGeneratorTest.input(lines, "\n", true), threads,
+                    lines.size()), threads + " threads");
+            assertArrayEquals(expected, run(format, StreamGeneratorTest.input(lines, "\r\n", true), threads,
+                    lines.size()), threads + " threads with CRLF");
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(OutputFormat.class)
+    void lastLineWithoutNewlineIsProcessed(final OutputFormat format) throws Exception
+    {
+        final List<String> lines = new ArrayList<>(StreamGeneratorTest.lines());
+        lines.add("last");
+        final byte[] expected = StreamGeneratorTest.expected(format, lines);
+        for (final int threads : THREADS) {
+            assertArrayEquals(expected, run(format, StreamGeneratorTest.input(lines, "\r\n", false), threads,
+                    lines.size()), threads + " threads");
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(OutputFormat.class)
+    void emptyInputsAndLinesAreProcessed(final OutputFormat format) throws Exception
+    {
+        for (final int threads : THREADS) {
+            assertArrayEquals(new byte[0], run(format, new byte[0], threads, 0));
+
+            // more threads than lines, so that most chunk boundaries fall into the same line
+            assertArrayEquals(StreamGeneratorTest.expected(format, Arrays.asList("", "", "")),
+                    run(format, new byte[] { '\n', '\r', '\n', '\n' }, threads, 3), threads + " threads");
+            assertArrayEquals(StreamGeneratorTest.expected(format, Arrays.asList("", "a")),
+                    run(format, new byte[] { '\n', 'a', '\r' }, threads, 2), threads + " threads");
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(OutputFormat.class)
+    void linesLongerThanBuffersAreProcessed(final OutputFormat format) throws Exception
+    {
+        final StringBuilder longLine = new StringBuilder();
+        while (longLine.length() < 3 * BulkGenerator.BUFFER_SIZE) {
+            longLine.append("clueweb12-0000tw-00-\"00000\"\t");
+        }
+        final List<String> lines = new ArrayList<>(StreamGeneratorTest.lines());
+        lines.add(0, longLine.toString());
+        lines.add(lines.size() / 2, longLine.toString());
+        lines.add(longLine.toString());
+        final byte[] expected = StreamGeneratorTest.expected(format, lines);
+        for (final int threads : THREADS) {
+            assertArrayEquals(expected, run(format, StreamGeneratorTest.input(lines, "\n", false), threads,
+                    lines.size()), threads + " threads");
+        }
+    }
+
+    @Test
+    void existingOutputIsTruncated() throws Exception
+    {
+        Files.write(mDir.resolve("output"), new byte[1 << 16]);
+        assertArrayEquals(StreamGeneratorTest.expected(OutputFormat.UUID, Arrays.asList("a", "b")),
+                run(OutputFormat.UUID, new byte[] { 'a', '\n', 'b', '\n' }, 4, 2));
+    }
+
+    @Test
+    void threadCountMustBePositive()
+    {
+        assertThrows(IllegalArgumentException.class,
+                () -> new BulkGenerator(new WebisUUID(StreamGeneratorTest.PREFIX), OutputFormat.UUID, 0));
+    }
+}
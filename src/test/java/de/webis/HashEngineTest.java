@@ -0,0 +1,193 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests that all engines generate the same UUIDs in batches of mixed-length IDs and that the
+ * multi-buffer SHA-1 engine computes the same digests as the built-in engine in every lane.
+ * Tests of the {@link HashEngine#VECTOR} engine only run on Java 17+ with
+ * {@code --add-modules jdk.incubator.vector}, which the Gradle test task passes.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+class HashEngineTest
+{
+    /**
+     * Prefix without a midstate and prefix whose head spans a full block.
+     */
+    private static final String[] PREFIXES = { "clueweb12", "clueweb12-with-a-very-long-prefix-for-testing" };
+
+    private static final String CHARS = "abcdefghijklmnopqrstuvwxyz0123456789-_/.:\u00e4\u00df\u20ac\u6f22";
+
+    @ParameterizedTest
+    @EnumSource(HashEngine.class)
+    void singleNamesMatchReference(final HashEngine engine) throws Exception
+    {
+        // the static API does not take an engine
+        for (final String prefix : PREFIXES) {
+            final WebisUUID generator = new WebisUUID(prefix, engine);
+            for (final String id : WebisUUIDTest.ids()) {
+                assertEquals(WebisUUIDTest.reference(prefix, id), generator.generateUUID(id), id);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(HashEngine.class)
+    void batchesOfMixedLengthsMatchReference(final HashEngine engine) throws Exception
+    {
+        assumeTrue(engine.isAvailable(), engine + " engine not available");
+        final Random random = new Random(42);
+        for (final String prefix : PREFIXES) {
+            // all names in one block, lengths varying within two blocks, lengths varying across blocks
+            assertBatch(prefix, engine, ids(random, 1000, 0, 20));
+            assertBatch(prefix, engine, ids(random, 1000, 40, 80));
+            assertBatch(prefix, engine, ids(random, 1001, 0, 150));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 1, 2 })
+    void multiBufferDigestMatchesSha1(final int stateBlocks)
+    {
+        assumeTrue(VectorSupport.isAvailable(), "Vector API not available");
+        final MultiBufferSha1 multiBuffer = VectorSupport.newMultiBufferSha1();
+        assertNotNull(multiBuffer);
+        final int lanes = multiBuffer.lanes();
+        final int stateBytes = stateBlocks * Sha1.BLOCK_SIZE;
+
+        final Random random = new Random(stateBlocks);
+        final byte[][] messages = new byte[lanes][];
+        final Sha1 sha1 = new Sha1();
+        for (int blocks = 1; blocks <= 4; ++blocks) {
+            // lengths after the midstate that all occupy the same number of blocks after padding
+            final int minLength = Math.max(0, (blocks - 1) * Sha1.BLOCK_SIZE - 8);
+            final int maxLength = blocks * Sha1.BLOCK_SIZE - 9;
+            final int[] state = Sha1.midstate(randomBytes(random, stateBytes), stateBlocks);
+            final int[] words = new int[blocks * 16 * lanes];
+            for (int l = 0; l < lanes; ++l) {
+                final int length = 0 == l ? minLength : 1 == l ? maxLength
+                        : minLength + random.nextInt(maxLength - minLength + 1);
+                messages[l] = randomBytes(random, length);
+                assertEquals(blocks, MultiBufferSha1.blocks(length));
+                MultiBufferSha1.pack(messages[l], 0, length, stateBytes, words, l, lanes);
+            }
+
+            final long[] msb = new long[lanes + 1];
+            final long[] lsb = new long[lanes + 1];
+            multiBuffer.digest(state, words, blocks, msb, lsb, 1);
+            for (int l = 0; l < lanes; ++l) {
+                sha1.digest(state, stateBytes, messages[l], 0, messages[l].length);
+                assertEquals(Long.toHexString(sha1.mMsb), Long.toHexString(msb[l + 1]), "lane " + l + " msb");
+                assertEquals(Long.toHexString(sha1.mLsb), Long.toHexString(lsb[l + 1]), "lane " + l + " lsb");
+            }
+        }
+    }
+
+    @Test
+    void configuredEngineIgnoresCase()
+    {
+        assertEquals(HashEngine.JCA, HashEngine.configured("jca"));
+        assertEquals(HashEngine.BUILTIN, HashEngine.configured(" BuiltIn "));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "foo", "auto" })
+    void invalidConfiguredEngineFallsBackToCalibration(final String value)
+    {
+        assertTrue(HashEngine.configured(value).isAvailable());
+    }
+
+    @Test
+    void singleNameEngineSkipsCalibration()
+    {
+        assertEquals(HashEngine.JCA, HashEngine.configuredForSingleNames("auto"));
+        assertEquals(HashEngine.JCA, HashEngine.configuredForSingleNames("foo"));
+        assertEquals(HashEngine.BUILTIN, HashEngine.configuredForSingleNames("builtin"));
+    }
+
+    @Test
+    void vectorEngineIsAvailableWithVectorModule()
+    {
+        // Set by the build together with --add-modules jdk.incubator.vector
+        assumeTrue(Boolean.getBoolean("de.webis.uuid.test.vectorModule"), "Vector API not added");
+        assertTrue(HashEngine.VECTOR.isAvailable());
+    }
+
+    /**
+     * Generate a batch with an engine and compare the UUIDs with the reference implementation.
+     *
+     * @param prefix scheme prefix
+     * @param engine engine to test
+     * @param ids internal IDs
+     * @throws Exception if the reference implementation fails
+     */
+    private static void assertBatch(final String prefix, final HashEngine engine, final String[] ids) throws Exception
+    {
+        final UUIDBatch batch = new UUIDBatch();
+        new WebisUUID(prefix, engine).generateBatch(ids, batch);
+        assertEquals(ids.length, batch.size());
+        for (int i = 0; i < ids.length; ++i) {
+            final UUID expected = WebisUUIDTest.reference(prefix, ids[i]);
+            assertEquals(expected, batch.get(i), ids[i]);
+        }
+    }
+
+    private static String[] ids(final Random random, final int count, final int minLength, final int maxLength)
+    {
+        final String[] ids = new String[count];
+        final StringBuilder id = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            id.setLength(0);
+            final int length = minLength + random.nextInt(maxLength - minLength + 1);
+            for (int j = 0; j < length; ++j) {
+                id.append(CHARS.charAt(random.nextInt(CHARS.length())));
+            }
+            ids[i] = id.toString();
+        }
+        return ids;
+    }
+
+    private static byte[] randomBytes(final Random random, final int length)
+    {
+        final byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of dictionary files: decoding every ordinal, finding every ID and the insertion points of IDs
+ * that are not in the dictionary for several block sizes and numbers of IDs, the ordering checks of the
+ * builder, out-of-range ordinals and validation of the header and block index.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+class IdDictionaryTest
+{
+    private static final int BLOCK = IdDictionary.DEFAULT_BLOCK_SIZE;
+
+    @TempDir
+    Path mDir;
+
+    /**
+     * @return sorted internal IDs of {@link WebisUUIDTest#ids()} that are valid UTF-16, so that their
+     *         encoding is unique, and corpus IDs with long shared prefixes
+     */
+    static List<String> sortedIds()
+    {
+        final TreeSet<String> ids = new TreeSet<>(IdDictionary.ORDER);
+        for (final String id : WebisUUIDTest.ids()) {
+            if (isValid(id)) {
+                ids.add(id);
+            }
+        }
+        for (int i = 0; i < 300; ++i) {
+            ids.add(String.format(Locale.ROOT, "clueweb12-%04dwb-%02d-%05d", i / 50, i % 7, i * 31));
+        }
+        ids.add("\uffff");
+        ids.add("\ud83d\ude01");
+        ids.add("\ud83d\ude01\u0000");
+        return new ArrayList<>(ids);
+    }
+
+    @Test
+    void idsAndOrdinalsRoundTrip() throws Exception
+    {
+        final List<String> all = sortedIds();
+        final List<String> probes = probes(all);
+        for (final int blockSize : new int[] { 1, 2, 3, BLOCK, 1000 }) {
+            for (final int count : new int[] { 1, 2, BLOCK - 1, BLOCK, BLOCK + 1, 2 * BLOCK + 5, all.size() }) {
+                final List<String> ids = all.subList(0, count);
+                final Path file = mDir.resolve("dict-" + blockSize + "-" + count);
+                try (IdDictionary.Builder builder = IdDictionary.create(file, blockSize)) {
+                    for (final String id : ids) {
+                        builder.add(id);
+                    }
+                    assertEquals(count, builder.size());
+                }
+
+                final IdDictionary.Reader reader = IdDictionary.open(file);
+                final String name = "block size " + blockSize + ", count " + count;
+                assertEquals(count, reader.size(), name);
+                assertEquals(blockSize, reader.getBlockSize(), name);
+                for (int i = 0; i < count; ++i) {
+                    assertEquals(ids.get(i), reader.get(i), name);
+                    assertEquals(i, reader.ordinal(ids.get(i)), name);
+                    assertEquals(i, reader.ordinal(new StringBuilder(ids.get(i))), name);
+                }
+                for (final String probe : probes) {
+                    assertEquals(Collections.binarySearch(ids, probe, IdDictionary.ORDER), reader.ordinal(probe),
+                            name + ", probe " + probe);
+                }
+            }
+        }
+    }
+
+    @Test
+    void largeDictionaryWithDefaultBlockSize() throws Exception
+    {
+        // more block data than fits into the write buffer of the builder
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 20_000; ++i) {
+            ids.add(String.format(Locale.ROOT, "clueweb12-%06d-%08x", i, i * 0x9e3779b9));
+        }
+        final Path file = mDir.resolve("dict");
+        IdDictionary.build(file, ids);
+        assertEquals(20_000 % BLOCK, ids.size() % BLOCK, "count must not be a multiple of the block size");
+
+        final IdDictionary.Reader reader = IdDictionary.open(file);
+        assertEquals(BLOCK, reader.getBlockSize());
+        assertEquals(ids.size(), reader.size());
+        for (int i = 0; i < ids.size(); ++i) {
+            assertEquals(ids.get(i), reader.get(i));
+            assertEquals(i, reader.ordinal(ids.get(i)));
+        }
+        assertEquals(-ids.size() - 1, reader.ordinal("clueweb13"));
+        assertEquals(-1, reader.ordinal("clueweb11"));
+    }
+
+    @Test
+    void emptyDictionary() throws Exception
+    {
+        final Path file = mDir.resolve("dict");
+        IdDictionary.build(file, new ArrayList<String>());
+        final IdDictionary.Reader reader = IdDictionary.open(file);
+        assertEquals(0, reader.size());
+        assertEquals(-1, reader.ordinal(""));
+        assertEquals(-1, reader.ordinal("a"));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.get(0));
+    }
+
+    @Test
+    void outOfRangeOrdinalsAreRejected() throws Exception
+    {
+        final Path file = mDir.resolve("dict");
+        IdDictionary.build(file, Arrays.asList("a", "b", "c"));
+        final IdDictionary.Reader reader = IdDictionary.open(file);
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.get(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.get(Long.MAX_VALUE));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.get(Long.MIN_VALUE));
+    }
+
+    @Test
+    void unsortedIdsAreRejected() throws Exception
+    {
+        final Path file = mDir.resolve("dict");
+        assertThrows(IllegalArgumentException.class, () -> IdDictionary.create(file, 0));
+        for (final List<String> ids : Arrays.asList(Arrays.asList("b", "a"), Arrays.asList("a", "a"),
+                Arrays.asList("ab", "a"), Arrays.asList("", ""), Arrays.asList("\ud83d\ude00", "\uffff"))) {
+            try (IdDictionary.Builder builder = IdDictionary.create(file)) {
+                builder.add(ids.get(0));
+                assertThrows(IllegalArgumentException.class, () -> builder.add(ids.get(1)), ids.toString());
+                assertEquals(1, builder.size());
+            }
+        }
+    }
+
+    @Test
+    void corruptHeadersAreRejected() throws Exception
+    {
+        // magic, version, block size, count, block data length and longest ID
+        assertCorrupt(0, ByteBuffer.allocate(1).put((byte) 'X'));
+        assertCorrupt(8, ByteBuffer.allocate(4).putInt(IdDictionary.VERSION + 1));
+        assertCorrupt(12, ByteBuffer.allocate(4).putInt(0));
+        assertCorrupt(12, ByteBuffer.allocate(4).putInt(-1));
+        assertCorrupt(12, ByteBuffer.allocate(4).putInt(1));
+        assertCorrupt(16, ByteBuffer.allocate(8).putLong(-1));
+        assertCorrupt(16, ByteBuffer.allocate(8).putLong(Long.MAX_VALUE));
+        assertCorrupt(16, ByteBuffer.allocate(8).putLong((long) BLOCK * Integer.MAX_VALUE));
+        assertCorrupt(24, ByteBuffer.allocate(8).putLong(-1));
+        assertCorrupt(24, ByteBuffer.allocate(8).putLong(Long.MAX_VALUE));
+        assertCorrupt(24, ByteBuffer.allocate(8).putLong(2));
+        assertCorrupt(32, ByteBuffer.allocate(4).putInt(-1));
+        assertCorrupt(32, ByteBuffer.allocate(4).putInt(Integer.MAX_VALUE));
+
+        // block index of the 2 blocks, which starts at 48 after the 7 bytes of block data
+        assertCorrupt(48, ByteBuffer.allocate(8).putLong(0));
+        assertCorrupt(56, ByteBuffer.allocate(8).putLong(40));
+        assertCorrupt(56, ByteBuffer.allocate(8).putLong(47));
+    }
+
+    @Test
+    void truncatedFilesAreRejected() throws Exception
+    {
+        final Path file = mDir.resolve("dict");
+        Files.write(file, new byte[39]);
+        assertThrows(IOException.class, () -> IdDictionary.open(file));
+
+        IdDictionary.build(file, Arrays.asList("a", "b", "c"));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 1);
+        }
+        assertThrows(IOException.class, () -> IdDictionary.open(file));
+    }
+
+    /**
+     * IDs that are not in the dictionary, but sort around the given IDs: their prefixes and IDs
+     * extended or changed at the end.
+     *
+     * @param ids sorted IDs
+     * @return probes that are valid UTF-16
+     */
+    private static List<String> probes(final List<String> ids)
+    {
+        final TreeSet<String> probes = new TreeSet<>(IdDictionary.ORDER);
+        for (final String id : ids) {
+            probes.add(id + "\u0000");
+            probes.add(id + "~");
+            probes.add(id + "\ud83d\ude00");
+            for (int length = Math.max(0, id.length() - 3); length < id.length(); ++length) {
+                probes.add(id.substring(0, length));
+            }
+            if (!id.isEmpty()) {
+                final char last = id.charAt(id.length() - 1);
+                probes.add(id.substring(0, id.length() - 1) + (char) (last + 1));
+                probes.add(id.substring(0, id.length() - 1) + (char) (last - 1));
+            }
+        }
+        probes.removeIf(probe -> !isValid(probe));
+        return new ArrayList<>(probes);
+    }
+
+    /**
+     * @param id internal ID
+     * @return whether the ID has no unpaired surrogates, i.e. survives a round trip through UTF-8
+     */
+    private static boolean isValid(final String id)
+    {
+        return id.equals(new String(id.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Overwrite part of the header or block index of a new dictionary of 3 IDs in blocks of 2 IDs
+     * and check that opening it fails.
+     *
+     * @param position position in the file
+     * @param bytes bytes to write
+     * @throws IOException if the file cannot be written
+     */
+    private void assertCorrupt(final long position, final ByteBuffer bytes) throws IOException
+    {
+        final Path file = Files.createTempFile(mDir, "dict", null);
+        try (IdDictionary.Builder builder = IdDictionary.create(file, 2)) {
+            builder.add("a");
+            builder.add("b");
+            builder.add("c");
+        }
+        bytes.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+        assertThrows(IOException.class, () -> IdDictionary.open(file));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of the record formats of the command line tool: exact records, JSON escaping and
+ * agreement of the computed record sizes with the written bytes.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+class OutputFormatTest
+{
+    private static final UUID DOCUMENTED = UUID.fromString("7f476110-58fd-5698-b104-8b29c3ac6d55");
+
+    private static String write(final OutputFormat format, final String id)
+    {
+        // the ID is placed in the middle of a larger buffer to check that only its range is used
+        final byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer input = ByteBuffer.allocate(bytes.length + 6);
+        input.put(new byte[] { '"', '\\', '\n' }).put(bytes).put(new byte[] { '"', '\\', '\n' });
+        input.position(1).limit(bytes.length + 5);
+
+        final int length = format.length(input, 3, 3 + bytes.length);
+        final ByteBuffer dst = ByteBuffer.allocate(length + 8);
+        dst.position(4);
+        format.write(input, 3, 3 + bytes.length, DOCUMENTED.getMostSignificantBits(),
+                DOCUMENTED.getLeastSignificantBits(), dst);
+        assertEquals(4 + length, dst.position(), "length of " + format);
+        assertEquals(1, input.position());
+        assertEquals(bytes.length + 5, input.limit());
+        if (0 <= format.mFixedLength) {
+            assertEquals(format.mFixedLength, length);
+        }
+        return new String(Arrays.copyOfRange(dst.array(), 4, 4 + length), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void uuidRecordIsCanonicalTextLine()
+    {
+        assertEquals(DOCUMENTED + "\n", write(OutputFormat.UUID, "clueweb12-0200wb-93-16911"));
+        assertEquals(DOCUMENTED + "\n", write(OutputFormat.UUID, ""));
+    }
+
+    @Test
+    void tsvRecordKeepsIdUnchanged()
+    {
+        assertEquals("clueweb12-0200wb-93-16911\t" + DOCUMENTED + "\n",
+                write(OutputFormat.TSV, "clueweb12-0200wb-93-16911"));
+        assertEquals("\t" + DOCUMENTED + "\n", write(OutputFormat.TSV, ""));
+        assertEquals("a\"b\\c\u0001\t" + DOCUMENTED + "\n", write(OutputFormat.TSV, "a\"b\\c\u0001"));
+    }
+
+    @Test
+    void jsonlRecordEscapesQuotesBackslashesAndControlCharacters()
+    {
+        assertEquals("{\"id\":\"\",\"uuid\":\"" + DOCUMENTED + "\"}\n", write(OutputFormat.JSONL, ""));
+        assertEquals("{\"id\":\"say \\\"hi\\\"\",\"uuid\":\"" + DOCUMENTED + "\"}\n",
+                write(OutputFormat.JSONL, "say \"hi\""));
+        assertEquals("{\"id\":\"C:\\\\dir\\\\\",\"uuid\":\"" + DOCUMENTED + "\"}\n",
+                write(OutputFormat.JSONL, "C:\\dir\\"));
+        assertEquals("{\"id\":\"a\\u0009b\\u0000\\u001f\\u0008\\u001b\u007f\",\"uuid\":\"" + DOCUMENTED + "\"}\n",
+                write(OutputFormat.JSONL, "a\tb\u0000\u001f\u0008\u001b\u007f"));
+
+        // multi-byte UTF-8 sequences are written unchanged, none of their bytes is below 0x20
+        final String utf8 = new String("\u00e4\u20ac\ud83d\ude00".getBytes(StandardCharsets.UTF_8),
+                StandardCharsets.ISO_8859_1);
+        assertEquals("{\"id\":\"" + utf8 + "\\\"\",\"uuid\":\"" + DOCUMENTED + "\"}\n",
+                write(OutputFormat.JSONL, "\u00e4\u20ac\ud83d\ude00\""));
+    }
+
+    @Test
+    void binaryRecordIsBigEndian()
+    {
+        final byte[] expected = ByteBuffer.allocate(16).putLong(DOCUMENTED.getMostSignificantBits())
+                .putLong(DOCUMENTED.getLeastSignificantBits()).array();
+        assertArrayEquals(expected, write(OutputFormat.BINARY, "id").getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @ParameterizedTest
+    @EnumSource(OutputFormat.class)
+    void lengthMatchesWrittenBytes(final OutputFormat format)
+    {
+        for (final String id : StreamGeneratorTest.lines()) {
+            write(format, id);
+        }
+    }
+
+    @Test
+    void formatsAreLookedUpCaseInsensitively()
+    {
+        assertEquals(OutputFormat.JSONL, OutputFormat.of("jsonl"));
+        assertEquals(OutputFormat.TSV, OutputFormat.of("Tsv"));
+        assertEquals(OutputFormat.BINARY, OutputFormat.of("BINARY"));
+        assertThrows(IllegalArgumentException.class, () -> OutputFormat.of("csv"));
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of reverse index files: lookups of all indexed UUIDs against the reference implementation,
+ * lookups of UUIDs that are not indexed, the limits of the builder and validation of the header.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+class ReverseIndexTest
+{
+    private static final String PREFIX = "clueweb12";
+
+    @TempDir
+    Path mDir;
+
+    @Test
+    void indexedUUIDsMapToTheirIds() throws Exception
+    {
+        final List<String> ids = new ArrayList<>(WebisUUIDTest.ids());
+
+        // IDs longer than the initial encoding buffer and enough IDs to write the blob in several parts
+        final char[] longId = new char[100_000];
+        Arrays.fill(longId, '\u00e4');
+        ids.add(new String(longId));
+        for (int i = 0; i < 10_000; ++i) {
+            ids.add("clueweb12-" + i + "wb-00-00000");
+        }
+        final Path file = mDir.resolve("index");
+        ReverseIndex.build(file, PREFIX, ids);
+
+        // names are hashed as UTF-8, unpaired surrogates are stored like their replacement
+        final Set<UUID> distinct = new HashSet<>();
+        final ReverseIndex.Reader reader = ReverseIndex.open(file);
+        assertEquals(PREFIX, reader.getPrefix());
+        for (final String id : ids) {
+            final UUID uuid = WebisUUIDTest.reference(PREFIX, id);
+            distinct.add(uuid);
+            final String stored = new String(id.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+            assertEquals(stored, reader.get(uuid));
+            assertEquals(stored, reader.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
+            assertTrue(reader.contains(uuid));
+        }
+        assertEquals(distinct.size(), reader.size());
+    }
+
+    @Test
+    void unknownUUIDsAreNotFound() throws Exception
+    {
+        final Path file = mDir.resolve("index");
+        ReverseIndex.build(file, PREFIX, Arrays.asList("a", "b", "c"));
+        final ReverseIndex.Reader reader = ReverseIndex.open(file);
+        assertEquals(3, reader.size());
+        assertNull(reader.get(WebisUUIDTest.reference(PREFIX, "d")));
+        assertNull(reader.get(WebisUUIDTest.reference("clueweb09", "a")));
+        assertFalse(reader.contains(WebisUUIDTest.reference(PREFIX, "d")));
+        assertNull(reader.get(0, 0));
+        assertNull(reader.get(0, WebisUUIDTest.reference(PREFIX, "a").getLeastSignificantBits()));
+
+        // the table of three IDs has five slots, so most of these probe past occupied slots
+        final Random random = new Random(42);
+        for (int i = 0; i < 1000; ++i) {
+            assertNull(reader.get(new UUID(random.nextLong(), random.nextLong())));
+        }
+    }
+
+    @Test
+    void emptyIndexHasNoEntries() throws Exception
+    {
+        final Path file = mDir.resolve("index");
+        ReverseIndex.build(file, "", new ArrayList<String>());
+        final ReverseIndex.Reader reader = ReverseIndex.open(file);
+        assertEquals("", reader.getPrefix());
+        assertEquals(0, reader.size());
+        assertNull(reader.get(WebisUUIDTest.reference("", "")));
+    }
+
+    @Test
+    void builderSkipsDuplicatesAndEnforcesLimits() throws Exception
+    {
+        final Path file = mDir.resolve("index");
+        try (ReverseIndex.Builder builder = ReverseIndex.create(file, "cl\u00fceweb", 2)) {
+            assertTrue(builder.add("a"));
+            assertFalse(builder.add("a"));
+            assertTrue(builder.add(new StringBuilder("b")));
+            assertFalse(builder.add("b"));
+            assertThrows(IllegalStateException.class, () -> builder.add("c"));
+            assertEquals(2, builder.size());
+        }
+        final ReverseIndex.Reader reader = ReverseIndex.open(file);
+        assertEquals("cl\u00fceweb", reader.getPrefix());
+        assertEquals("b", reader.get(WebisUUIDTest.reference("cl\u00fceweb", "b")));
+        assertNull(reader.get(WebisUUIDTest.reference("cl\u00fceweb", "c")));
+
+        try (ReverseIndex.Builder builder = ReverseIndex.create(file, PREFIX, 1)) {
+            final char[] tooLong = new char[ReverseIndex.MAX_ID_LENGTH + 1];
+            Arrays.fill(tooLong, 'a');
+            assertThrows(IllegalArgumentException.class, () -> builder.add(new String(tooLong)));
+        }
+        assertThrows(IllegalArgumentException.class, () -> ReverseIndex.create(file, PREFIX, -1));
+        assertThrows(IllegalArgumentException.class, () -> ReverseIndex.create(file, PREFIX, Long.MAX_VALUE));
+    }
+
+    @Test
+    void corruptHeadersAreRejected() throws Exception
+    {
+        // magic, version, header length, counts and prefix length
+        assertCorrupt(0, ByteBuffer.allocate(1).put((byte) 'X'));
+        assertCorrupt(8, ByteBuffer.allocate(4).putInt(ReverseIndex.VERSION + 1));
+        assertCorrupt(12, ByteBuffer.allocate(4).putInt(48));
+        assertCorrupt(12, ByteBuffer.allocate(4).putInt(60));
+        assertCorrupt(12, ByteBuffer.allocate(4).putInt(-8));
+        assertCorrupt(16, ByteBuffer.allocate(8).putLong(-1));
+        assertCorrupt(16, ByteBuffer.allocate(8).putLong(5));
+        assertCorrupt(24, ByteBuffer.allocate(8).putLong(0));
+        assertCorrupt(24, ByteBuffer.allocate(8).putLong(6));
+        assertCorrupt(32, ByteBuffer.allocate(8).putLong(-1));
+        assertCorrupt(32, ByteBuffer.allocate(8).putLong(4));
+        assertCorrupt(40, ByteBuffer.allocate(4).putInt(-1));
+        assertCorrupt(40, ByteBuffer.allocate(4).putInt(Integer.MAX_VALUE));
+
+        // slot count and blob length whose file length overflows to less than the actual length
+        assertCorrupt(24, ByteBuffer.allocate(8).putLong(Long.divideUnsigned(-1L, 24) + 1));
+        assertCorrupt(32, ByteBuffer.allocate(8).putLong(Long.MAX_VALUE - 200));
+    }
+
+    @Test
+    void truncatedFilesAreRejected() throws Exception
+    {
+        final Path file = mDir.resolve("index");
+        ReverseIndex.build(file, PREFIX, Arrays.asList("a", "b", "c"));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 1);
+        }
+        assertThrows(IOException.class, () -> ReverseIndex.open(file));
+
+        Files.write(file, new byte[40]);
+        assertThrows(IOException.class, () -> ReverseIndex.open(file));
+    }
+
+    /**
+     * Overwrite part of the header of a new index of 3 IDs in 5 slots with a 3 byte blob and check that
+     * opening it fails. The header is 56 bytes long.
+     *
+     * @param position position in the file
+     * @param bytes bytes to write
+     * @throws IOException if the file cannot be written
+     */
+    private void assertCorrupt(final long position, final ByteBuffer bytes) throws IOException
+    {
+        final Path file = Files.createTempFile(mDir, "index", null);
+        ReverseIndex.build(file, PREFIX, Arrays.asList("a", "b", "c"));
+        bytes.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+        assertThrows(IOException.class, () -> ReverseIndex.open(file));
+    }
+}
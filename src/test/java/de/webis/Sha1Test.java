@@ -0,0 +1,134 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that the built-in SHA-1 engine computes the same digests as the JDK's SHA-1 {@link MessageDigest}
+ * for all message lengths up to 200 bytes after the midstate, which covers the cases of one or two final
+ * blocks (remainders around 55/56 and 64 bytes) and messages spanning several blocks.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+class Sha1Test
+{
+    private static final int MAX_LENGTH = 200;
+    private static final int MAX_MIDSTATE_BLOCKS = 3;
+
+    /**
+     * Random input, bytes with the high bit set included.
+     */
+    private static final byte[] DATA = new byte[MAX_MIDSTATE_BLOCKS * Sha1.BLOCK_SIZE + MAX_LENGTH];
+
+    static {
+        new Random(42).nextBytes(DATA);
+    }
+
+    /**
+     * @return pairs of number of midstate blocks and number of bytes hashed after the midstate
+     */
+    static List<Arguments> lengths()
+    {
+        final List<Arguments> lengths = new ArrayList<>();
+        for (int blocks = 0; blocks <= MAX_MIDSTATE_BLOCKS; ++blocks) {
+            for (int length = 0; length <= MAX_LENGTH; ++length) {
+                lengths.add(Arguments.of(blocks, length));
+            }
+        }
+        return lengths;
+    }
+
+    @ParameterizedTest
+    @MethodSource("lengths")
+    void digestMatchesMessageDigest(final int blocks, final int length) throws Exception
+    {
+        final int stateBytes = blocks * Sha1.BLOCK_SIZE;
+        final Sha1 sha1 = new Sha1();
+        sha1.digest(Sha1.midstate(DATA, blocks), stateBytes, DATA, stateBytes, stateBytes + length);
+        assertDigest(Arrays.copyOf(DATA, stateBytes + length), sha1);
+    }
+
+    @ParameterizedTest
+    @MethodSource("lengths")
+    void digestMatchesMessageDigestAtOffset(final int blocks, final int length) throws Exception
+    {
+        // the bytes after the midstate are taken from another buffer at an unaligned offset
+        final int stateBytes = blocks * Sha1.BLOCK_SIZE;
+        final byte[] tail = new byte[length + 13];
+        System.arraycopy(DATA, stateBytes, tail, 7, length);
+        final Sha1 sha1 = new Sha1();
+        sha1.digest(Sha1.midstate(DATA, blocks), stateBytes, tail, 7, 7 + length);
+        assertDigest(Arrays.copyOf(DATA, stateBytes + length), sha1);
+    }
+
+    @Test
+    void reusedInstanceMatchesMessageDigest() throws Exception
+    {
+        final Sha1 sha1 = new Sha1();
+        for (int blocks = MAX_MIDSTATE_BLOCKS; blocks >= 0; --blocks) {
+            final int stateBytes = blocks * Sha1.BLOCK_SIZE;
+            final int[] midstate = Sha1.midstate(DATA, blocks);
+            for (int length = MAX_LENGTH; length >= 0; --length) {
+                sha1.digest(midstate, stateBytes, DATA, stateBytes, stateBytes + length);
+                assertDigest(Arrays.copyOf(DATA, stateBytes + length), sha1);
+            }
+        }
+    }
+
+    @Test
+    void midstateMatchesInitialState()
+    {
+        assertEquals(Arrays.toString(Sha1.INITIAL_STATE), Arrays.toString(Sha1.midstate(DATA, 0)));
+    }
+
+    /**
+     * Compare the first 128 bits of the last digest of an engine with the digest of a {@link MessageDigest}.
+     *
+     * @param message whole message
+     * @param sha1 engine after hashing the message
+     * @throws NoSuchAlgorithmException if SHA-1 is not supported
+     */
+    private static void assertDigest(final byte[] message, final Sha1 sha1) throws NoSuchAlgorithmException
+    {
+        final ByteBuffer expected = ByteBuffer.wrap(MessageDigest.getInstance("SHA-1").digest(message));
+        assertEquals(Long.toHexString(expected.getLong()), Long.toHexString(sha1.mMsb), "msb");
+        assertEquals(Long.toHexString(expected.getLong()), Long.toHexString(sha1.mLsb), "lsb");
+    }
+}
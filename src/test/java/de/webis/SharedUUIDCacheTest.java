@@ -0,0 +1,286 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests of the shared cache file: lookups against the reference implementation, probing of colliding
+ * slots, full tables, reopening existing files, concurrent population and validation of the header.
+ * The tests only run on Java 11+, which the Gradle test task uses.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+class SharedUUIDCacheTest
+{
+    private static final String PREFIX = "clueweb12";
+
+    @TempDir
+    Path mDir;
+
+    @BeforeAll
+    static void requireSharedCaches()
+    {
+        assumeTrue(SharedUUIDCache.isSupported(), "Shared caches require Java 11");
+    }
+
+    @Test
+    void cachedUUIDsMatchReference() throws Exception
+    {
+        final List<String> ids = WebisUUIDTest.ids();
+
+        // names are cached by their encoding, unpaired surrogates of different IDs may encode the same
+        final Set<UUID> distinct = new HashSet<>();
+        for (final String id : ids) {
+            distinct.add(WebisUUIDTest.reference(PREFIX, id));
+        }
+        final SharedUUIDCache cache = SharedUUIDCache.open(mDir.resolve("cache"), 4096);
+        final WebisUUID generator = new WebisUUID(PREFIX, HashEngine.JCA, null, cache);
+        for (final String id : ids) {
+            assertEquals(WebisUUIDTest.reference(PREFIX, id), generator.generateUUID(id), id);
+        }
+        assertEquals(distinct.size(), cache.size());
+        assertEquals(distinct.size(), cache.getMissCount());
+
+        for (final String id : ids) {
+            assertEquals(WebisUUIDTest.reference(PREFIX, id), generator.generateUUID(id), id);
+        }
+        assertEquals(2 * ids.size() - distinct.size(), cache.getHitCount());
+        assertEquals(distinct.size(), cache.getMissCount());
+        assertEquals(1.0 - distinct.size() / (2.0 * ids.size()), cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void newFileIsRoundedToPowerOfTwo() throws Exception
+    {
+        assertEquals(128, SharedUUIDCache.open(mDir.resolve("a"), 100).capacity());
+        assertEquals(1, SharedUUIDCache.open(mDir.resolve("b"), 1).capacity());
+        assertThrows(IllegalArgumentException.class, () -> SharedUUIDCache.open(mDir.resolve("c"), 0));
+        assertThrows(IllegalArgumentException.class, () -> SharedUUIDCache.open(mDir.resolve("d"), 1L << 58));
+    }
+
+    @Test
+    void reopenedFileKeepsEntriesAndSlotCount() throws Exception
+    {
+        final Path file = mDir.resolve("cache");
+        final WebisUUID writer = new WebisUUID(PREFIX, HashEngine.JCA, null, SharedUUIDCache.open(file, 64));
+        for (int i = 0; i < 20; ++i) {
+            writer.generateUUID("id-" + i);
+        }
+
+        // slot count of an existing file wins over the requested one
+        final SharedUUIDCache reopened = SharedUUIDCache.open(file, 1 << 20);
+        assertEquals(64, reopened.capacity());
+        assertEquals(20, reopened.size());
+        assertEquals(64 + 64 * 32, Files.size(file));
+
+        final WebisUUID reader = new WebisUUID(PREFIX, HashEngine.JCA, null, reopened);
+        for (int i = 0; i < 20; ++i) {
+            assertEquals(WebisUUIDTest.reference(PREFIX, "id-" + i), reader.generateUUID("id-" + i));
+        }
+        assertEquals(20, reopened.getHitCount());
+        assertEquals(0, reopened.getMissCount());
+    }
+
+    @Test
+    void fullTableStopsCachingButKeepsGenerating() throws Exception
+    {
+        final SharedUUIDCache cache = SharedUUIDCache.open(mDir.resolve("cache"), 8);
+        final WebisUUID generator = new WebisUUID(PREFIX, HashEngine.JCA, null, cache);
+        for (int round = 0; round < 2; ++round) {
+            for (int i = 0; i < 50; ++i) {
+                assertEquals(WebisUUIDTest.reference(PREFIX, "id-" + i), generator.generateUUID("id-" + i));
+            }
+        }
+        assertEquals(8, cache.size());
+        assertEquals(8, cache.getHitCount());
+        assertEquals(92, cache.getMissCount());
+    }
+
+    @Test
+    void partialFingerprintMatchesAreProbedPast() throws Exception
+    {
+        final SharedUUIDCache cache = SharedUUIDCache.open(mDir.resolve("cache"), 64);
+        final NamePrefix prefix = new NamePrefix(PREFIX);
+        final GeneratorContext context = new GeneratorContext();
+        assertFalse(cache.get(prefix, "id", context));
+        final long high = context.mFingerprintHigh;
+        final long low = context.mFingerprintLow;
+
+        // same home slot and second half with a different first half, then the other way round
+        context.mFingerprintHigh = high ^ 1;
+        context.mMsb = 1;
+        context.mLsb = 2;
+        cache.put(context);
+        context.mFingerprintHigh = high;
+        context.mFingerprintLow = low ^ 64;
+        context.mMsb = 3;
+        context.mLsb = 4;
+        cache.put(context);
+        assertEquals(2, cache.size());
+        assertFalse(cache.get(prefix, "id", context));
+
+        context.generate(prefix, "id", HashEngine.JCA);
+        cache.put(context);
+        final GeneratorContext lookup = new GeneratorContext();
+        assertTrue(cache.get(prefix, "id", lookup));
+        assertEquals(WebisUUIDTest.reference(PREFIX, "id"), new UUID(lookup.mMsb, lookup.mLsb));
+
+        // inserting a cached name again does not store it twice
+        cache.put(context);
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void concurrentPopulationStoresCorrectUUIDs() throws Exception
+    {
+        final Path file = mDir.resolve("cache");
+        final int threads = 8;
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 4000; ++i) {
+            ids.add("clueweb12-" + i + "wb-" + (i % 100));
+        }
+        final List<UUID> expected = new ArrayList<>();
+        for (final String id : ids) {
+            expected.add(WebisUUIDTest.reference(PREFIX, id));
+        }
+
+        // every thread maps the file separately like a process of its own and starts at a different ID
+        final CyclicBarrier start = new CyclicBarrier(threads);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                final int offset = t * ids.size() / threads;
+                futures.add(executor.submit(() -> {
+                    final WebisUUID generator = new WebisUUID(PREFIX, HashEngine.JCA, null,
+                            SharedUUIDCache.open(file, 1 << 14));
+                    start.await();
+                    for (int i = 0; i < ids.size(); ++i) {
+                        final int n = (offset + i) % ids.size();
+                        assertEquals(expected.get(n), generator.generateUUID(ids.get(n)), ids.get(n));
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // concurrent insertions of the same name may store it more than once
+        final SharedUUIDCache cache = SharedUUIDCache.open(file, 1 << 14);
+        assertTrue(cache.size() >= ids.size() && cache.size() <= (long) threads * ids.size(), "size " + cache.size());
+        final WebisUUID generator = new WebisUUID(PREFIX, HashEngine.JCA, null, cache);
+        for (int i = 0; i < ids.size(); ++i) {
+            assertEquals(expected.get(i), generator.generateUUID(ids.get(i)), ids.get(i));
+        }
+        assertEquals(ids.size(), cache.getHitCount());
+    }
+
+    @Test
+    void badMagicIsRejected() throws Exception
+    {
+        assertCorrupt(0, ByteBuffer.allocate(8).putLong(0x5745424953554944L));
+    }
+
+    @Test
+    void unsupportedVersionIsRejected() throws Exception
+    {
+        assertCorrupt(8, ByteBuffer.allocate(4).putInt(SharedUUIDCache.VERSION + 1));
+    }
+
+    @Test
+    void invalidSlotCountsAreRejected() throws Exception
+    {
+        assertCorrupt(16, ByteBuffer.allocate(8).putLong(0));
+        assertCorrupt(16, ByteBuffer.allocate(8).putLong(48));
+        assertCorrupt(16, ByteBuffer.allocate(8).putLong(128));
+
+        // table size overflowing to zero
+        assertCorrupt(16, ByteBuffer.allocate(8).putLong(1L << 59));
+    }
+
+    @Test
+    void truncatedFilesAreRejected() throws Exception
+    {
+        final Path header = mDir.resolve("header");
+        Files.write(header, new byte[10]);
+        assertThrows(IOException.class, () -> SharedUUIDCache.open(header, 64));
+
+        final Path table = mDir.resolve("table");
+        SharedUUIDCache.open(table, 64);
+        try (FileChannel channel = FileChannel.open(table, StandardOpenOption.WRITE)) {
+            channel.truncate(64 + 63 * 32);
+        }
+        assertThrows(IOException.class, () -> SharedUUIDCache.open(table, 64));
+    }
+
+    /**
+     * Overwrite part of the header of a new cache file with 64 slots and check that opening it fails.
+     *
+     * @param position position in the file
+     * @param bytes bytes to write
+     * @throws IOException if the file cannot be written
+     */
+    private void assertCorrupt(final long position, final ByteBuffer bytes) throws IOException
+    {
+        final Path file = Files.createTempFile(mDir, "cache", null);
+        Files.delete(file);
+        SharedUUIDCache.open(file, 64);
+        bytes.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+        assertThrows(IOException.class, () -> SharedUUIDCache.open(file, 64));
+    }
+}
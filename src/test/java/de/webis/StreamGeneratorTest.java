@@ -0,0 +1,247 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that the stream generator writes the same records for every input line as would be
+ * formatted from {@link WebisUUID#generateUUID(String, CharSequence)}, independent of line endings,
+ * read sizes and buffer boundaries.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+class StreamGeneratorTest
+{
+    static final String PREFIX = "clueweb12";
+
+    /**
+     * Input lines: all test IDs plus empty lines and IDs with characters that JSON requires to be escaped.
+     *
+     * @return input lines
+     */
+    static List<String> lines()
+    {
+        final List<String> lines = new ArrayList<>(WebisUUIDTest.ids());
+        lines.add("");
+        lines.add("");
+        lines.add("quoted \"id\"");
+        lines.add("back\\slash\\");
+        lines.add("tab\tseparated");
+        lines.add("control \u0000\u0001\u001b\u001f\u007f");
+        lines.add("cr\rinside");
+        lines.add("\u00e4\"\u20ac\\\ud83d\ude00");
+        return lines;
+    }
+
+    /**
+     * Join lines to an input file.
+     *
+     * @param lines input lines
+     * @param separator line separator
+     * @param terminated whether the last line is followed by a separator
+     * @return UTF-8 encoded input
+     */
+    static byte[] input(final List<String> lines, final String separator, final boolean terminated)
+    {
+        final StringBuilder input = new StringBuilder();
+        for (int i = 0; i < lines.size(); ++i) {
+            input.append(lines.get(i));
+            if (terminated || i < lines.size() - 1) {
+                input.append(separator);
+            }
+        }
+        return input.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Build the expected output for input lines from UUIDs generated with the static single-name API.
+     *
+     * @param format output format
+     * @param lines input lines
+     * @return expected output
+     */
+    static byte[] expected(final OutputFormat format, final List<String> lines)
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (final String line : lines) {
+            final UUID uuid = WebisUUID.generateUUID(PREFIX, line);
+            final byte[] text = uuid.toString().getBytes(StandardCharsets.US_ASCII);
+            final byte[] id = line.getBytes(StandardCharsets.UTF_8);
+            switch (format) {
+                case UUID:
+                    out.write(text, 0, text.length);
+                    out.write('\n');
+                    break;
+                case TSV:
+                    out.write(id, 0, id.length);
+                    out.write('\t');
+                    out.write(text, 0, text.length);
+                    out.write('\n');
+                    break;
+                case JSONL:
+                    final byte[] json = ("{\"id\":\"" + escape(id) + "\",\"uuid\":\"" + uuid + "\"}\n")
+                            .getBytes(StandardCharsets.ISO_8859_1);
+                    out.write(json, 0, json.length);
+                    break;
+                case BINARY:
+                    final byte[] bits = ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits())
+                            .putLong(uuid.getLeastSignificantBits()).array();
+                    out.write(bits, 0, bits.length);
+                    break;
+                default:
+                    throw new AssertionError(format);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Escape UTF-8 bytes for a JSON string, with one char per byte.
+     *
+     * @param id UTF-8 bytes
+     * @return escaped bytes as ISO-8859-1 string
+     */
+    private static String escape(final byte[] id)
+    {
+        final StringBuilder escaped = new StringBuilder();
+        for (final byte b : id) {
+            final int c = b & 0xff;
+            if ('"' == c || '\\' == c) {
+                escaped.append('\\').append((char) c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", c));
+            } else {
+                escaped.append((char) c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static byte[] run(final OutputFormat format, final InputStream in, final long expectedLines)
+            throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(expectedLines, new StreamGenerator(new WebisUUID(PREFIX), format).run(in, out));
+        return out.toByteArray();
+    }
+
+    @ParameterizedTest
+    @EnumSource(OutputFormat.class)
+    void recordsMatchSingleNameAPI(final OutputFormat format) throws Exception
+    {
+        final List<String> lines = lines();
+        assertArrayEquals(expected(format, lines),
+                run(format, new ByteArrayInputStream(input(lines, "\n", true)), lines.size()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(OutputFormat.class)
+    void carriageReturnsBeforeNewlinesAreStripped(final OutputFormat format) throws Exception
+    {
+        final List<String> lines = lines();
+        assertArrayEquals(expected(format, lines),
+                run(format, new ByteArrayInputStream(input(lines, "\r\n", true)), lines.size()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(OutputFormat.class)
+    void lastLineWithoutNewlineIsProcessed(final OutputFormat format) throws Exception
+    {
+        final List<String> lines = new ArrayList<>(lines());
+        lines.add("last");
+        assertArrayEquals(expected(format, lines),
+                run(format, new ByteArrayInputStream(input(lines, "\n", false)), lines.size()));
+        assertArrayEquals(expected(format, lines),
+                run(format, new ByteArrayInputStream(input(lines, "\r\n", false)), lines.size()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(OutputFormat.class)
+    void emptyLinesGiveRecords(final OutputFormat format) throws Exception
+    {
+        assertArrayEquals(new byte[0], run(format, new ByteArrayInputStream(new byte[0]), 0));
+        assertArrayEquals(expected(format, Arrays.asList("", "", "")),
+                run(format, new ByteArrayInputStream("\n\r\n\n".getBytes(StandardCharsets.US_ASCII)), 3));
+        assertArrayEquals(expected(format, Collections.singletonList("")),
+                run(format, new ByteArrayInputStream("\r".getBytes(StandardCharsets.US_ASCII)), 1));
+    }
+
+    @ParameterizedTest
+    @EnumSource(OutputFormat.class)
+    void linesSpanningReadsAndBuffersAreProcessed(final OutputFormat format) throws Exception
+    {
+        // lines longer than the buffers, split across single-byte reads at every position
+        final List<String> lines = new ArrayList<>(lines());
+        final StringBuilder longLine = new StringBuilder();
+        while (longLine.length() < 3 * StreamGenerator.BUFFER_SIZE) {
+            longLine.append("clueweb12-0000tw-00-\"00000\"\t");
+        }
+        lines.add(1, longLine.toString());
+        lines.add(longLine.toString());
+
+        final byte[] input = input(lines, "\r\n", false);
+        final InputStream trickle = new ByteArrayInputStream(input)
+        {
+            @Override
+            public synchronized int read(final byte[] b, final int off, final int len)
+            {
+                return super.read(b, off, Math.min(len, 1 + pos % 7));
+            }
+        };
+        assertArrayEquals(expected(format, lines), run(format, trickle, lines.size()));
+    }
+
+    @Test
+    void manyShortLinesFillOutputBuffer() throws Exception
+    {
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 20000; ++i) {
+            lines.add("clueweb09-en0000-00-" + i);
+        }
+        for (final OutputFormat format : OutputFormat.values()) {
+            assertArrayEquals(expected(format, lines),
+                    run(format, new ByteArrayInputStream(input(lines, "\n", true)), lines.size()), format.name());
+        }
+    }
+}
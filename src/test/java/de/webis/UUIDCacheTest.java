@@ -0,0 +1,187 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the in-heap UUID cache: cached UUIDs against the reference implementation, statistics,
+ * CLOCK eviction in a single bucket, copying of mutable keys and sizing by memory.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+class UUIDCacheTest
+{
+    private static final String PREFIX = "clueweb12";
+
+    @Test
+    void cachedUUIDsMatchReference() throws Exception
+    {
+        final List<String> ids = WebisUUIDTest.ids();
+        final UUIDCache cache = new UUIDCache(1 << 14);
+        final WebisUUID generator = new WebisUUID(PREFIX, HashEngine.JCA, cache);
+        for (int round = 0; round < 2; ++round) {
+            for (final String id : ids) {
+                assertEquals(WebisUUIDTest.reference(PREFIX, id), generator.generateUUID(id), id);
+                assertEquals(WebisUUIDTest.reference(PREFIX, id).toString(), generator.generateUUIDString(id), id);
+            }
+        }
+        assertEquals(ids.size(), cache.size());
+        assertEquals(ids.size(), cache.getMissCount());
+        assertEquals(4 * ids.size() - ids.size(), cache.getHitCount());
+        assertEquals(0.75, cache.getHitRate());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    void prefixesShareCacheWithoutMixingUp() throws Exception
+    {
+        final UUIDCache cache = new UUIDCache(64);
+        final WebisUUID clueweb12 = new WebisUUID(PREFIX, HashEngine.JCA, cache);
+        final WebisUUID clueweb09 = new WebisUUID("clueweb09", HashEngine.JCA, cache);
+        for (int round = 0; round < 2; ++round) {
+            assertEquals(WebisUUIDTest.reference(PREFIX, "id"), clueweb12.generateUUID("id"));
+            assertEquals(WebisUUIDTest.reference("clueweb09", "id"), clueweb09.generateUUID("id"));
+        }
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    void mutatedKeysDoNotHitOldEntries() throws Exception
+    {
+        final UUIDCache cache = new UUIDCache(64);
+        final WebisUUID generator = new WebisUUID(PREFIX, HashEngine.JCA, cache);
+        final StringBuilder id = new StringBuilder("clueweb12-0000wb-00-00000");
+        assertEquals(WebisUUIDTest.reference(PREFIX, id.toString()), generator.generateUUID(id));
+
+        // the cache must have copied the key, so changing the builder changes the lookup
+        id.setCharAt(id.length() - 1, '1');
+        assertEquals(WebisUUIDTest.reference(PREFIX, id.toString()), generator.generateUUID(id));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.size());
+
+        // strings and other sequences with the same content find the same entry
+        assertEquals(WebisUUIDTest.reference(PREFIX, "clueweb12-0000wb-00-00000"),
+                generator.generateUUID("clueweb12-0000wb-00-00000"));
+        id.setCharAt(id.length() - 1, '0');
+        assertEquals(WebisUUIDTest.reference(PREFIX, id.toString()), generator.generateUUID(id));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void clockEvictsUnreferencedEntriesFirst()
+    {
+        // a single bucket, so that the eviction order is deterministic
+        final UUIDCache cache = new UUIDCache(UUIDCache.WAYS);
+        final NamePrefix prefix = new NamePrefix(PREFIX);
+        final GeneratorContext context = new GeneratorContext();
+        for (int i = 0; i < UUIDCache.WAYS; ++i) {
+            cache.put(prefix, "id-" + i, i, -i);
+        }
+        assertEquals(UUIDCache.WAYS, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+
+        // the clock hand skips and clears the referenced entries 0 to 3 and evicts entry 4
+        for (int i = 0; i < 4; ++i) {
+            assertTrue(cache.get(prefix, "id-" + i, context));
+        }
+        cache.put(prefix, "id-new", 42, 42);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(UUIDCache.WAYS, cache.size());
+        assertFalse(cache.get(prefix, "id-4", context));
+        assertTrue(cache.get(prefix, "id-new", context));
+        assertEquals(42, context.mMsb);
+        for (int i = 0; i < UUIDCache.WAYS; ++i) {
+            if (4 != i) {
+                assertTrue(cache.get(prefix, "id-" + i, context), "id-" + i);
+                assertEquals(i, context.mMsb);
+                assertEquals(-i, context.mLsb);
+            }
+        }
+
+        // hot entries survive a stream of one-off entries
+        for (int i = 0; i < 100; ++i) {
+            for (int hot = 0; hot < 4; ++hot) {
+                assertTrue(cache.get(prefix, "id-" + hot, context), "round " + i);
+            }
+            cache.put(prefix, "one-off-" + i, i, i);
+        }
+        assertTrue(cache.get(prefix, "one-off-99", context));
+        assertFalse(cache.get(prefix, "one-off-0", context));
+        assertEquals(UUIDCache.WAYS, cache.size());
+        assertEquals(101, cache.getEvictionCount());
+    }
+
+    @Test
+    void clearRemovesEntriesButKeepsStatistics() throws Exception
+    {
+        final UUIDCache cache = new UUIDCache(64);
+        final WebisUUID generator = new WebisUUID(PREFIX, HashEngine.JCA, cache);
+        generator.generateUUID("a");
+        generator.generateUUID("a");
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(WebisUUIDTest.reference(PREFIX, "a"), generator.generateUUID("a"));
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void capacityIsRoundedToBuckets()
+    {
+        assertEquals(96, new UUIDCache(100).capacity());
+        assertEquals(UUIDCache.WAYS, new UUIDCache(UUIDCache.WAYS).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new UUIDCache(UUIDCache.WAYS - 1));
+    }
+
+    @Test
+    void ofMemorySizesByEntryLayout()
+    {
+        // an entry with a 25 character ID takes 124 bytes with compact strings and 148 bytes on Java 8
+        final int capacity = UUIDCache.ofMemory(1 << 20, 25).capacity();
+        assertEquals(0, capacity % UUIDCache.WAYS);
+        final double bytesPerEntry = (double) (1 << 20) / capacity;
+        assertTrue(bytesPerEntry >= 124 && bytesPerEntry < 150, "bytes per entry " + bytesPerEntry);
+
+        // longer IDs take more memory, twice the memory holds about twice the entries
+        assertTrue(UUIDCache.ofMemory(1 << 20, 100).capacity() < capacity);
+        final int doubled = UUIDCache.ofMemory(1 << 21, 25).capacity();
+        assertTrue(Math.abs(doubled - 2 * capacity) <= UUIDCache.WAYS, "doubled " + doubled);
+
+        // at least one bucket
+        assertEquals(UUIDCache.WAYS, UUIDCache.ofMemory(0, 25).capacity());
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of UUID files: writing records with every writer method, reading them back with every reader
+ * method, records in the second mapped segment, out-of-range indexes and validation of the header.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+class UUIDFileTest
+{
+    @TempDir
+    Path mDir;
+
+    @Test
+    void recordsRoundTrip() throws Exception
+    {
+        for (final String prefix : new String[] { "clueweb12", "", "cl\u00fceweb-with-a-longer-prefix" }) {
+            final Path file = mDir.resolve("uuids");
+            final List<String> ids = WebisUUIDTest.ids();
+            final int count = ids.size();
+            try (UUIDFile.Writer writer = UUIDFile.create(file, prefix, count)) {
+                assertEquals(prefix, writer.getPrefix());
+                assertEquals(count, writer.size());
+
+                // first half by ID, then a batch, then the rest as bits and mutable UUIDs
+                final int half = count / 2;
+                for (int i = 0; i < half; ++i) {
+                    writer.put(i, ids.get(i));
+                }
+                final UUIDBatch batch = new UUIDBatch();
+                WebisUUID.generateBatch(prefix, ids.subList(half, half + 10), batch);
+                writer.put(half, batch);
+                final MutableUUID uuid = new MutableUUID();
+                for (int i = half + 10; i < count; ++i) {
+                    final UUID expected = WebisUUIDTest.reference(prefix, ids.get(i));
+                    if (0 == i % 2) {
+                        writer.put(i, expected.getMostSignificantBits(), expected.getLeastSignificantBits());
+                    } else {
+                        uuid.set(expected.getMostSignificantBits(), expected.getLeastSignificantBits());
+                        writer.put(i, uuid);
+                    }
+                }
+            }
+
+            final UUIDFile.Reader reader = UUIDFile.open(file);
+            assertEquals(prefix, reader.getPrefix());
+            assertEquals(count, reader.size());
+            assertEquals(0, (Files.size(file) - 16L * count) % 16);
+            final MutableUUID uuid = new MutableUUID();
+            for (int i = 0; i < count; ++i) {
+                final UUID expected = WebisUUIDTest.reference(prefix, ids.get(i));
+                assertEquals(expected, reader.get(i), ids.get(i));
+                assertEquals(expected.getMostSignificantBits(), reader.getMostSignificantBits(i));
+                assertEquals(expected.getLeastSignificantBits(), reader.getLeastSignificantBits(i));
+                reader.get(i, uuid);
+                assertEquals(expected, uuid.toUUID());
+            }
+        }
+    }
+
+    @Test
+    void recordsInSecondSegment() throws Exception
+    {
+        // sparse file just over one mapped segment, only the written records take up space
+        final Path file = mDir.resolve("uuids");
+        final long count = MappedFile.SEGMENT_SIZE / 16 + 8;
+        try (UUIDFile.Writer writer = UUIDFile.create(file, "clueweb12", count)) {
+            for (long i = count - 16; i < count; ++i) {
+                writer.put(i, i, ~i);
+            }
+        }
+        final UUIDFile.Reader reader = UUIDFile.open(file);
+        assertEquals(count, reader.size());
+        for (long i = count - 16; i < count; ++i) {
+            assertEquals(new UUID(i, ~i), reader.get(i));
+        }
+        assertEquals(new UUID(0, 0), reader.get(0));
+    }
+
+    @Test
+    void outOfRangeIndexesAreRejected() throws Exception
+    {
+        final Path file = mDir.resolve("uuids");
+        try (UUIDFile.Writer writer = UUIDFile.create(file, "clueweb12", 4)) {
+            assertThrows(IndexOutOfBoundsException.class, () -> writer.put(-1, 1, 1));
+            assertThrows(IndexOutOfBoundsException.class, () -> writer.put(4, 1, 1));
+            final UUIDBatch batch = new UUIDBatch();
+            WebisUUID.generateBatch("clueweb12", new String[] { "a", "b", "c" }, batch);
+            assertThrows(IndexOutOfBoundsException.class, () -> writer.put(2, batch));
+            writer.put(1, batch);
+        }
+        final UUIDFile.Reader reader = UUIDFile.open(file);
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.get(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.get(4));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.getMostSignificantBits(Long.MAX_VALUE));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.getLeastSignificantBits(Long.MIN_VALUE));
+        assertEquals(new UUID(0, 0), reader.get(0));
+        assertEquals(WebisUUIDTest.reference("clueweb12", "c"), reader.get(3));
+
+        try (UUIDFile.Writer writer = UUIDFile.create(file, "clueweb12", 0)) {
+            assertThrows(IndexOutOfBoundsException.class, () -> writer.put(0, 1, 1));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> UUIDFile.open(file).get(0));
+        assertThrows(IllegalArgumentException.class, () -> UUIDFile.create(file, "clueweb12", -1));
+        assertThrows(IllegalArgumentException.class, () -> UUIDFile.create(file, "clueweb12", Long.MAX_VALUE));
+    }
+
+    @Test
+    void corruptHeadersAreRejected() throws Exception
+    {
+        // magic, version, header length, count and prefix length
+        assertCorrupt(0, ByteBuffer.allocate(1).put((byte) 'X'));
+        assertCorrupt(8, ByteBuffer.allocate(4).putInt(UUIDFile.VERSION + 1));
+        assertCorrupt(12, ByteBuffer.allocate(4).putInt(24));
+        assertCorrupt(12, ByteBuffer.allocate(4).putInt(40));
+        assertCorrupt(12, ByteBuffer.allocate(4).putInt(-16));
+        assertCorrupt(16, ByteBuffer.allocate(8).putLong(-1));
+        assertCorrupt(16, ByteBuffer.allocate(8).putLong(5));
+        assertCorrupt(24, ByteBuffer.allocate(4).putInt(-1));
+        assertCorrupt(24, ByteBuffer.allocate(4).putInt(Integer.MAX_VALUE));
+
+        // record counts whose file length overflows to the actual length or below
+        assertCorrupt(16, ByteBuffer.allocate(8).putLong((1L << 60) + 4));
+        assertCorrupt(16, ByteBuffer.allocate(8).putLong(Long.MAX_VALUE / 8));
+    }
+
+    @Test
+    void truncatedFilesAreRejected() throws Exception
+    {
+        final Path file = mDir.resolve("uuids");
+        UUIDFile.create(file, "clueweb12", 4).close();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 1);
+        }
+        assertThrows(IOException.class, () -> UUIDFile.open(file));
+
+        Files.write(file, new byte[20]);
+        assertThrows(IOException.class, () -> UUIDFile.open(file));
+        Files.write(file, new byte[0]);
+        assertThrows(IOException.class, () -> UUIDFile.open(file));
+    }
+
+    /**
+     * Overwrite part of the header of a new file with 4 records and check that opening it fails.
+     *
+     * @param position position in the file
+     * @param bytes bytes to write
+     * @throws IOException if the file cannot be written
+     */
+    private void assertCorrupt(final long position, final ByteBuffer bytes) throws IOException
+    {
+        final Path file = Files.createTempFile(mDir, "uuids", null);
+        UUIDFile.create(file, "clueweb12", 4).close();
+        bytes.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+        assertThrows(IOException.class, () -> UUIDFile.open(file));
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.CharArrayWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that the UUID text formatter and parser agree with {@link UUID#toString()} and
+ * {@link UUID#fromString(String)} and that the parser rejects everything but the canonical form.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+class UUIDFormatTest
+{
+    private static final String VALID = "7f476110-58fd-5698-b104-8b29c3ac6d55";
+    private static final UUID UNCHANGED = new UUID(1, 2);
+
+    private static UUID[] uuids()
+    {
+        final Random random = new Random(42);
+        final UUID[] uuids = new UUID[10000];
+        uuids[0] = new UUID(0, 0);
+        uuids[1] = new UUID(-1, -1);
+        uuids[2] = new UUID(Long.MIN_VALUE, Long.MAX_VALUE);
+        uuids[3] = UUID.fromString(VALID);
+        for (int i = 4; i < uuids.length; ++i) {
+            uuids[i] = 0 == i % 2 ? UUID.randomUUID() : new UUID(random.nextLong(), random.nextLong());
+        }
+        return uuids;
+    }
+
+    /**
+     * Parse a text with every overload, at offset 0 and behind other characters,
+     * and check that all agree.
+     *
+     * @param text text to parse
+     * @param expected expected UUID, null if the text must be rejected
+     */
+    private static void assertParse(final String text, final UUID expected)
+    {
+        final boolean valid = null != expected;
+        final UUID result = valid ? expected : UNCHANGED;
+        final String padded = "x-" + text;
+        final String message = "parsing \"" + text + "\"";
+
+        MutableUUID out = new MutableUUID(1, 2);
+        assertEquals(valid, UUIDFormat.parse(text, 0, out), message);
+        assertEquals(result, out.toUUID(), message);
+        out = new MutableUUID(1, 2);
+        assertEquals(valid, UUIDFormat.parse(new StringBuilder(padded), 2, out), message);
+        assertEquals(result, out.toUUID(), message);
+        out = new MutableUUID(1, 2);
+        assertEquals(valid, UUIDFormat.parse(padded.toCharArray(), 2, out), message);
+        assertEquals(result, out.toUUID(), message);
+
+        for (int i = 0; i < padded.length(); ++i) {
+            if (padded.charAt(i) > 0xff) {
+                return;
+            }
+        }
+        final byte[] bytes = padded.getBytes(StandardCharsets.ISO_8859_1);
+        out = new MutableUUID(1, 2);
+        assertEquals(valid, UUIDFormat.parse(bytes, 2, out), message);
+        assertEquals(result, out.toUUID(), message);
+
+        // a heap buffer with an array offset and a direct buffer, both with the position behind the text
+        final ByteBuffer heap = ByteBuffer.allocate(bytes.length + 3);
+        heap.position(3);
+        for (final ByteBuffer buffer : new ByteBuffer[] { heap.slice(), ByteBuffer.allocateDirect(bytes.length) }) {
+            buffer.put(bytes);
+            out = new MutableUUID(1, 2);
+            assertEquals(valid, UUIDFormat.parse(buffer, 2, out), message);
+            assertEquals(result, out.toUUID(), message);
+            assertEquals(bytes.length, buffer.position());
+        }
+    }
+
+    @Test
+    void formatMatchesUUIDToString() throws Exception
+    {
+        for (final UUID uuid : uuids()) {
+            final long msb = uuid.getMostSignificantBits();
+            final long lsb = uuid.getLeastSignificantBits();
+            final String expected = uuid.toString();
+            assertEquals(expected, UUIDFormat.toString(msb, lsb));
+
+            final char[] chars = new char[UUIDFormat.LENGTH + 5];
+            Arrays.fill(chars, '#');
+            UUIDFormat.format(msb, lsb, chars, 3);
+            assertEquals("###" + expected + "##", new String(chars));
+
+            final byte[] bytes = new byte[UUIDFormat.LENGTH + 5];
+            Arrays.fill(bytes, (byte) '#');
+            UUIDFormat.format(msb, lsb, bytes, 3);
+            assertEquals("###" + expected + "##", new String(bytes, StandardCharsets.US_ASCII));
+
+            final ByteBuffer heap = ByteBuffer.allocate(UUIDFormat.LENGTH + 8);
+            heap.position(3);
+            final ByteBuffer slice = heap.slice();
+            slice.position(2);
+            UUIDFormat.format(msb, lsb, slice);
+            assertEquals(2 + UUIDFormat.LENGTH, slice.position());
+            assertEquals(expected, new String(heap.array(), 5, UUIDFormat.LENGTH, StandardCharsets.US_ASCII));
+
+            final ByteBuffer direct = ByteBuffer.allocateDirect(UUIDFormat.LENGTH + 2);
+            direct.position(1);
+            UUIDFormat.format(msb, lsb, direct);
+            assertEquals(1 + UUIDFormat.LENGTH, direct.position());
+            final byte[] written = new byte[UUIDFormat.LENGTH];
+            direct.position(1);
+            direct.get(written);
+            assertEquals(expected, new String(written, StandardCharsets.US_ASCII));
+
+            assertEquals("id " + expected, UUIDFormat.format(msb, lsb, new StringBuilder("id ")).toString());
+            final CharArrayWriter writer = new CharArrayWriter();
+            writer.append("id ");
+            assertEquals(writer, UUIDFormat.format(msb, lsb, writer));
+            assertEquals("id " + expected, writer.toString());
+        }
+    }
+
+    @Test
+    void parseMatchesUUIDFromString()
+    {
+        for (final UUID uuid : uuids()) {
+            final String text = uuid.toString();
+            assertEquals(uuid, UUID.fromString(text));
+            assertParse(text, uuid);
+            assertParse(text.toUpperCase(Locale.ROOT), uuid);
+        }
+
+        // further characters after the 36 parsed ones are not looked at
+        assertParse(VALID + "-0", UUID.fromString(VALID));
+    }
+
+    @Test
+    void parseRejectsMisplacedDashes()
+    {
+        for (int i = 0; i < UUIDFormat.LENGTH; ++i) {
+            final char[] chars = VALID.toCharArray();
+            chars[i] = '-' == chars[i] ? 'a' : '-';
+            assertParse(new String(chars), null);
+        }
+
+        // dashes in the places accepted by UUID.fromString()
+        assertParse("7f47611-058fd-5698-b104-8b29c3ac6d55", null);
+        assertParse("7f476110-58fd5-698-b104-8b29c3ac6d55", null);
+        assertParse("7f476110058fd05698-b104-8b29c3ac6d55", null);
+        assertParse("7f476110-58fd-5698-b1048b29c3ac6d55-", null);
+        assertParse("7f4761-10-58fd-5698-b104-8b29c3ac6d", null);
+    }
+
+    @Test
+    void parseRejectsNonHexCharacters()
+    {
+        // the non-ASCII characters have the same low seven bits as hex digits
+        final char[] invalid = { 'g', 'G', 'x', '/', ':', '@', '`', ' ', '+', '\u0000', '\u007f',
+                                 '\u00b0', '\u00e1', '\u00c6', '\u0130', '\u0661', '\uff41', '\uffe6' };
+        for (int i = 0; i < UUIDFormat.LENGTH; ++i) {
+            if ('-' == VALID.charAt(i)) {
+                continue;
+            }
+            for (final char c : invalid) {
+                final char[] chars = VALID.toCharArray();
+                chars[i] = c;
+                assertParse(new String(chars), null);
+            }
+        }
+
+        // bytes of multi-byte UTF-8 sequences
+        final byte[] bytes = VALID.getBytes(StandardCharsets.US_ASCII);
+        for (final int b : new int[] { 0x80, 0xb0, 0xc3, 0xe1, 0xff }) {
+            final byte[] copy = bytes.clone();
+            copy[20] = (byte) b;
+            final MutableUUID out = new MutableUUID(1, 2);
+            assertFalse(UUIDFormat.parse(copy, 0, out));
+            assertFalse(UUIDFormat.parse(ByteBuffer.wrap(copy), 0, out));
+            assertEquals(UNCHANGED, out.toUUID());
+        }
+    }
+
+    @Test
+    void parseRejectsShortInput()
+    {
+        for (int length = 0; length < UUIDFormat.LENGTH; ++length) {
+            assertParse(VALID.substring(0, length), null);
+            assertParse(VALID.substring(UUIDFormat.LENGTH - length), null);
+        }
+    }
+
+    @Test
+    void parseRejectsOutOfRangeOffsets()
+    {
+        final MutableUUID out = new MutableUUID(1, 2);
+        final String text = "0" + VALID;
+        for (final int off : new int[] { -1, Integer.MIN_VALUE, 2, text.length(), Integer.MAX_VALUE }) {
+            assertFalse(UUIDFormat.parse(text, off, out));
+            assertFalse(UUIDFormat.parse(text.toCharArray(), off, out));
+            assertFalse(UUIDFormat.parse(text.getBytes(StandardCharsets.US_ASCII), off, out));
+            assertFalse(UUIDFormat.parse(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)), off, out));
+        }
+        assertEquals(UNCHANGED, out.toUUID());
+
+        // the limit of a buffer bounds the input even if the capacity is larger
+        final ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+        buffer.limit(UUIDFormat.LENGTH);
+        assertFalse(UUIDFormat.parse(buffer, 1, out));
+        assertEquals(UNCHANGED, out.toUUID());
+    }
+
+    @Test
+    void formatRejectsOutOfRangeOffsets()
+    {
+        for (final int off : new int[] { -1, Integer.MIN_VALUE, 5, Integer.MAX_VALUE }) {
+            assertThrows(IndexOutOfBoundsException.class,
+                    () -> UUIDFormat.format(1, 2, new char[UUIDFormat.LENGTH + 4], off));
+            assertThrows(IndexOutOfBoundsException.class,
+                    () -> UUIDFormat.format(1, 2, new byte[UUIDFormat.LENGTH + 4], off));
+        }
+
+        for (final ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(UUIDFormat.LENGTH + 4),
+                                                          ByteBuffer.allocateDirect(UUIDFormat.LENGTH + 4) }) {
+            buffer.position(5);
+            assertThrows(BufferOverflowException.class, () -> UUIDFormat.format(1, 2, buffer));
+            assertEquals(5, buffer.position());
+            buffer.position(4);
+            buffer.limit(UUIDFormat.LENGTH + 3);
+            assertThrows(BufferOverflowException.class, () -> UUIDFormat.format(1, 2, buffer));
+            assertEquals(4, buffer.position());
+            buffer.clear();
+            for (int i = 0; i < buffer.capacity(); ++i) {
+                assertEquals(0, buffer.get(i));
+            }
+        }
+    }
+}
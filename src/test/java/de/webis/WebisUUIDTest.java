@@ -0,0 +1,412 @@
+/*
+ * Webis UUID Generator.
+ * Copyright (C) 2015-2017 Janek Bevendorff, Webis Group
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.webis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that generated UUIDs are identical to those of the original implementation, which hashed
+ * the name with a SHA-1 {@link MessageDigest}, set the version and variant bits in the digest bytes
+ * and parsed the UUID from their hex string.
+ *
+ * @author Janek Bevendorff &lt;janek.bevendorff@uni-weimar.de&gt;
+ */
+class WebisUUIDTest
+{
+    private static final UUID NAMESPACE_URL = UUID.fromString("6ba7b811-9dad-11d1-80b4-00c04fd430c8");
+    private static final String[] PREFIXES = { "clueweb12", "", "cl\u00fceweb" };
+
+    /**
+     * Internal IDs used with all prefixes. The namespace and the prefix clueweb12: take 26 bytes,
+     * so IDs of up to 200 bytes end on and around all padding and block boundaries of the first
+     * four SHA-1 blocks (55/56, 64, 119/120, 128, 183/184, 192 bytes).
+     *
+     * @return internal IDs
+     */
+    static List<String> ids()
+    {
+        final List<String> ids = new ArrayList<>();
+        ids.add("");
+        ids.add("clueweb12-0200wb-93-16911");
+        ids.add("clueweb09-en0001-02-21241");
+        ids.add("CC-MAIN-20170322212949-00140-ip-10-233-31-227.ec2.internal.warc.gz-0000000042");
+        ids.add("https://www.example.com/index.php?id=42&lang=en#top");
+
+        // ASCII of every length up to 200 bytes
+        final String ascii = "clueweb12-0000tw-00-00000/abcdefghijklmnopqrstuvwxyz0123456789";
+        final StringBuilder id = new StringBuilder();
+        for (int i = 1; i <= 200; ++i) {
+            id.append(ascii.charAt(i % ascii.length()));
+            ids.add(id.toString());
+        }
+
+        // two-, three- and four-byte sequences crossing the boundaries at every offset
+        ids.add("m\u00fcnchen");
+        ids.add("\u6f22\u5b57");
+        ids.add("\ud83d\ude00");
+        final String mixed = "a\u00e4\u20ac\ud83d\ude00";
+        id.setLength(0);
+        for (int i = 0; i < 100; ++i) {
+            id.append(mixed.charAt(i % mixed.length()));
+            if (!Character.isHighSurrogate(id.charAt(id.length() - 1))) {
+                ids.add(id.toString());
+            }
+        }
+
+        // unpaired surrogates are encoded as '?' like by String.getBytes()
+        ids.add("a\ud83db");
+        ids.add("a\ude00b");
+        ids.add("\ud83d");
+        return ids;
+    }
+
+    static List<Arguments> names()
+    {
+        final List<Arguments> names = new ArrayList<>();
+        for (final String prefix : PREFIXES) {
+            for (final String id : ids()) {
+                names.add(Arguments.of(prefix, id));
+            }
+        }
+        return names;
+    }
+
+    @Test
+    void generatesDocumentedUUID()
+    {
+        assertEquals(UUID.fromString("7f476110-58fd-5698-b104-8b29c3ac6d55"),
+                WebisUUID.generateUUID("clueweb12", "clueweb12-0200wb-93-16911"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("names")
+    void staticGenerationMatchesReference(final String prefix, final String internalId) throws Exception
+    {
+        assertEquals(reference(prefix, internalId), WebisUUID.generateUUID(prefix, internalId));
+    }
+
+    @ParameterizedTest
+    @MethodSource("names")
+    void instanceGenerationMatchesReference(final String prefix, final String internalId) throws Exception
+    {
+        assertEquals(reference(prefix, internalId), new WebisUUID(prefix).generateUUID(internalId));
+    }
+
+    @ParameterizedTest
+    @MethodSource("names")
+    void staticInputOverloadsMatchReference(final String prefix, final String internalId) throws Exception
+    {
+        final UUID expected = reference(prefix, internalId);
+        final byte[] encoded = internalId.getBytes(StandardCharsets.UTF_8);
+        final byte[] padded = pad(encoded);
+
+        assertEquals(expected, WebisUUID.generateUUID(prefix, (CharSequence) new StringBuilder(internalId)));
+        assertEquals(expected, WebisUUID.generateUUID(prefix, CharBuffer.wrap(internalId)));
+        assertEquals(expected, WebisUUID.generateUUID(prefix, padded, 3, encoded.length));
+        assertEquals(expected, WebisUUID.generateUUID(prefix, ByteBuffer.wrap(padded, 3, encoded.length)));
+        final ByteBuffer direct = direct(padded, encoded.length);
+        assertEquals(expected, WebisUUID.generateUUID(prefix, direct));
+        assertEquals(3, direct.position());
+    }
+
+    @ParameterizedTest
+    @MethodSource("names")
+    void instanceInputOverloadsMatchReference(final String prefix, final String internalId) throws Exception
+    {
+        final UUID expected = reference(prefix, internalId);
+        final byte[] encoded = internalId.getBytes(StandardCharsets.UTF_8);
+        final byte[] padded = pad(encoded);
+        final WebisUUID generator = new WebisUUID(prefix);
+
+        assertEquals(expected, generator.generateUUID(new StringBuilder(internalId)));
+        assertEquals(expected, generator.generateUUID(CharBuffer.wrap(internalId)));
+        assertEquals(expected, generator.generateUUID(padded, 3, encoded.length));
+        assertEquals(expected, generator.generateUUID(ByteBuffer.wrap(padded, 3, encoded.length)));
+        final ByteBuffer direct = direct(padded, encoded.length);
+        assertEquals(expected, generator.generateUUID(direct));
+        assertEquals(3, direct.position());
+    }
+
+    @ParameterizedTest
+    @MethodSource("names")
+    void staticOutputOverloadsMatchReference(final String prefix, final String internalId) throws Exception
+    {
+        final UUID expected = reference(prefix, internalId);
+        final byte[] encoded = internalId.getBytes(StandardCharsets.UTF_8);
+        final byte[] padded = pad(encoded);
+
+        MutableUUID out = new MutableUUID();
+        WebisUUID.generateUUID(prefix, new StringBuilder(internalId), out);
+        assertEquals(expected, out.toUUID());
+        out = new MutableUUID();
+        WebisUUID.generateUUID(prefix, padded, 3, encoded.length, out);
+        assertEquals(expected, out.toUUID());
+        out = new MutableUUID();
+        final ByteBuffer direct = direct(padded, encoded.length);
+        WebisUUID.generateUUID(prefix, direct, out);
+        assertEquals(expected, out.toUUID());
+        assertEquals(3, direct.position());
+
+        final long[] longs = new long[4];
+        WebisUUID.generateUUID(prefix, internalId, longs, 1);
+        assertArrayEquals(new long[] { 0, expected.getMostSignificantBits(), expected.getLeastSignificantBits(), 0 },
+                longs);
+        final byte[] bytes = new byte[20];
+        WebisUUID.generateUUID(prefix, internalId, bytes, 2);
+        assertArrayEquals(bits(expected, 2, 20), bytes);
+        final ByteBuffer buffer = ByteBuffer.allocate(20);
+        buffer.position(2);
+        WebisUUID.generateUUID(prefix, internalId, buffer);
+        assertEquals(18, buffer.position());
+        assertArrayEquals(bits(expected, 2, 20), buffer.array());
+
+        assertEquals(expected.toString(), WebisUUID.generateUUIDString(prefix, new StringBuilder(internalId)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("names")
+    void instanceOutputOverloadsMatchReference(final String prefix, final String internalId) throws Exception
+    {
+        final UUID expected = reference(prefix, internalId);
+        final byte[] encoded = internalId.getBytes(StandardCharsets.UTF_8);
+        final byte[] padded = pad(encoded);
+        final WebisUUID generator = new WebisUUID(prefix);
+
+        MutableUUID out = new MutableUUID();
+        generator.generateUUID(new StringBuilder(internalId), out);
+        assertEquals(expected, out.toUUID());
+        out = new MutableUUID();
+        generator.generateUUID(padded, 3, encoded.length, out);
+        assertEquals(expected, out.toUUID());
+        out = new MutableUUID();
+        final ByteBuffer direct = direct(padded, encoded.length);
+        generator.generateUUID(direct, out);
+        assertEquals(expected, out.toUUID());
+        assertEquals(3, direct.position());
+
+        final long[] longs = new long[4];
+        generator.generateUUID(internalId, longs, 1);
+        assertArrayEquals(new long[] { 0, expected.getMostSignificantBits(), expected.getLeastSignificantBits(), 0 },
+                longs);
+        final byte[] bytes = new byte[20];
+        generator.generateUUID(internalId, bytes, 2);
+        assertArrayEquals(bits(expected, 2, 20), bytes);
+        final ByteBuffer buffer = ByteBuffer.allocate(20);
+        buffer.position(2);
+        // without the cast, the static generateUUID(String prefix, ByteBuffer internalId) would be called
+        generator.generateUUID((CharSequence) internalId, buffer);
+        assertEquals(18, buffer.position());
+        assertArrayEquals(bits(expected, 2, 20), buffer.array());
+
+        assertEquals(expected.toString(), generator.generateUUIDString(new StringBuilder(internalId)));
+    }
+
+    @Test
+    void batchAndParallelGenerationMatchReference() throws Exception
+    {
+        // enough IDs to be split into several parallel tasks, as strings and builders
+        final List<String> ids = ids();
+        final List<CharSequence> names = new ArrayList<>();
+        for (int i = 0; names.size() < 5000; ++i) {
+            final String id = ids.get(i % ids.size());
+            names.add(0 == i % 3 ? new StringBuilder(id) : id);
+        }
+        final CharSequence[] array = names.toArray(new CharSequence[0]);
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (final String prefix : PREFIXES) {
+                final UUID[] expected = new UUID[array.length];
+                for (int i = 0; i < array.length; ++i) {
+                    expected[i] = reference(prefix, array[i].toString());
+                }
+                final WebisUUID generator = new WebisUUID(prefix);
+
+                // a small batch that has to grow and is reused, so that old contents must be replaced
+                final UUIDBatch batch = new UUIDBatch(4);
+                WebisUUID.generateBatch(prefix, array, batch);
+                assertBatch(expected, 0, expected.length, batch);
+                WebisUUID.generateBatch(prefix, array, 7, 1000, batch);
+                assertBatch(expected, 7, 1000, batch);
+                WebisUUID.generateBatch(prefix, names, batch);
+                assertBatch(expected, 0, expected.length, batch);
+                Iterator<CharSequence> iterator = names.iterator();
+                for (int i = 0; i < 3; ++i) {
+                    iterator.next();
+                }
+                WebisUUID.generateBatch(prefix, iterator, batch);
+                assertBatch(expected, 3, expected.length, batch);
+
+                generator.generateBatch(array, batch);
+                assertBatch(expected, 0, expected.length, batch);
+                generator.generateBatch(array, 7, 1000, batch);
+                assertBatch(expected, 7, 1000, batch);
+                generator.generateBatch(names, batch);
+                assertBatch(expected, 0, expected.length, batch);
+                iterator = names.iterator();
+                iterator.next();
+                generator.generateBatch(iterator, batch);
+                assertBatch(expected, 1, expected.length, batch);
+                generator.generateBatch(new CharSequence[0], batch);
+                assertEquals(0, batch.size());
+
+                long[] msb = new long[array.length];
+                long[] lsb = new long[array.length];
+                WebisUUID.generateParallel(prefix, array, msb, lsb);
+                assertBits(expected, msb, lsb);
+                msb = new long[array.length];
+                lsb = new long[array.length];
+                WebisUUID.generateParallel(prefix, array, msb, lsb, pool);
+                assertBits(expected, msb, lsb);
+                msb = new long[array.length];
+                lsb = new long[array.length];
+                generator.generateParallel(array, msb, lsb);
+                assertBits(expected, msb, lsb);
+                msb = new long[array.length];
+                lsb = new long[array.length];
+                generator.generateParallel(array, msb, lsb, pool);
+                assertBits(expected, msb, lsb);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Surround an encoded ID with three bytes before and two bytes after it,
+     * which must not be hashed.
+     *
+     * @param encoded encoded internal ID
+     * @return padded copy
+     */
+    private static byte[] pad(final byte[] encoded)
+    {
+        final byte[] padded = new byte[encoded.length + 5];
+        padded[0] = 'x';
+        padded[1] = ':';
+        padded[2] = (byte) 0xff;
+        System.arraycopy(encoded, 0, padded, 3, encoded.length);
+        padded[padded.length - 2] = '\n';
+        padded[padded.length - 1] = 'x';
+        return padded;
+    }
+
+    /**
+     * @param padded padded internal ID
+     * @param length length of the encoded internal ID
+     * @return direct buffer holding {@code padded} with position and limit around the internal ID
+     */
+    private static ByteBuffer direct(final byte[] padded, final int length)
+    {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(padded.length);
+        buffer.put(padded);
+        buffer.limit(3 + length);
+        buffer.position(3);
+        return buffer;
+    }
+
+    /**
+     * @param uuid UUID
+     * @param off offset of the UUID bytes
+     * @param length array length
+     * @return zeroed array with the big-endian UUID bytes at {@code off}
+     */
+    private static byte[] bits(final UUID uuid, final int off, final int length)
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.position(off);
+        buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        return buffer.array();
+    }
+
+    private static void assertBatch(final UUID[] expected, final int from, final int to, final UUIDBatch batch)
+    {
+        assertEquals(to - from, batch.size());
+        final MutableUUID out = new MutableUUID();
+        for (int i = 0; i < batch.size(); ++i) {
+            assertEquals(expected[from + i], batch.get(i));
+            batch.get(i, out);
+            assertEquals(expected[from + i], out.toUUID());
+        }
+    }
+
+    private static void assertBits(final UUID[] expected, final long[] msb, final long[] lsb)
+    {
+        for (int i = 0; i < expected.length; ++i) {
+            assertEquals(expected[i], new UUID(msb[i], lsb[i]), "index " + i);
+        }
+    }
+
+    /**
+     * Original UUID generation with {@link MessageDigest} and a hex string round trip.
+     *
+     * @param prefix the scheme prefix
+     * @param internalId internal ID
+     * @return version 5 UUID
+     * @throws NoSuchAlgorithmException if SHA-1 is not supported
+     */
+    static UUID reference(final String prefix, final String internalId) throws NoSuchAlgorithmException
+    {
+        final MessageDigest md = MessageDigest.getInstance("SHA-1");
+        md.update(ByteBuffer.allocate(16).putLong(NAMESPACE_URL.getMostSignificantBits())
+                .putLong(NAMESPACE_URL.getLeastSignificantBits()).array());
+        md.update((prefix + ":" + internalId).getBytes(StandardCharsets.UTF_8));
+        final byte[] digest = md.digest();
+
+        // set version
+        digest[6] &= 0x0f;
+        digest[6] |= 0x50;
+
+        // set variant
+        digest[8] &= 0x3f;
+        digest[8] |= 0x80;
+
+        final StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < 16; ++i) {
+            if (4 == i || 6 == i || 8 == i || 10 == i) {
+                hex.append('-');
+            }
+            hex.append(String.format("%02x", digest[i] & 0xff));
+        }
+        return UUID.fromString(hex.toString());
+    }
+}